@@ -1,32 +1,100 @@
 import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AdminDAO {
-    private Connection connection;
+    private final DatabaseConnection database;
 
     public AdminDAO() throws SQLException {
-        this.connection = DatabaseConnection.getInstance().getConnection();
+        this.database = DatabaseConnection.getInstance();
     }
 
-    // Authenticate admin
+    // How long a stored hash is trusted without re-reading it, e.g. in case a change was made straight in the database
+    private static final long PASSWORD_CACHE_MILLIS = Long.getLong("auth.passwordCacheSeconds", 60L) * 1000;
+
+    private static final class StoredPassword {
+        final String password;
+        final long expires;
+
+        StoredPassword(String password, long expires) {
+            this.password = password;
+            this.expires = expires;
+        }
+    }
+
+    // Stored password hash per username, so repeated logins skip the SELECT; dropped on any admin write
+    private static final Map<String, StoredPassword> storedPasswords = new ConcurrentHashMap<>();
+
+    // An admin another node changed (see ChangeLogTailer); null forgets every cached hash
+    public static void forgetPassword(String username) {
+        if (username == null) {
+            storedPasswords.clear();
+        } else {
+            storedPasswords.remove(username);
+        }
+    }
+
+    // Authenticate admin against the salted hash; a legacy plaintext password is re-stored hashed on success
     public boolean authenticateAdmin(String username, String password) {
-        String sql = "SELECT id FROM admin WHERE username = ? AND password = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        if (username == null || password == null) return false;
+        StoredPassword cached = storedPasswords.get(username);
+        boolean fresh = cached == null || cached.expires <= System.currentTimeMillis();
+        String stored = fresh ? loadPassword(username) : cached.password;
+        if (stored == null) {
+            storedPasswords.remove(username);
+            return false;
+        }
+
+        if (!PasswordHasher.verify(password, stored)) return false;
+        if (PasswordHasher.isHashed(stored)) {
+            if (fresh) remember(username, stored);
+        } else {
+            upgradePassword(username, stored, password);
+        }
+        return true;
+    }
+
+    private static void remember(String username, String stored) {
+        storedPasswords.put(username, new StoredPassword(stored, System.currentTimeMillis() + PASSWORD_CACHE_MILLIS));
+    }
+
+    private String loadPassword(String username) {
+        String sql = "SELECT password FROM admin WHERE username = ?";
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            
+
             try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next(); // Returns true if admin exists
+                return rs.next() ? rs.getString("password") : null;
             }
         } catch (SQLException e) {
             System.out.println("Error authenticating admin: " + e.getMessage());
-            return false;
+            return null;
+        }
+    }
+
+    // Replace a plaintext password with its hash (only if nobody changed it in between)
+    private void upgradePassword(String username, String plaintext, String password) {
+        String hashed = PasswordHasher.hash(password);
+        String sql = "UPDATE admin SET password = ? WHERE username = ? AND password = ?";
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, hashed);
+            pstmt.setString(2, username);
+            pstmt.setString(3, plaintext);
+            if (pstmt.executeUpdate() > 0) {
+                remember(username, hashed);
+            }
+        } catch (SQLException e) {
+            System.out.println("Error upgrading admin password: " + e.getMessage());
         }
     }
 
     // Get admin by username
     public Admin getAdminByUsername(String username) {
         String sql = "SELECT * FROM admin WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, username);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -47,7 +115,8 @@ public class AdminDAO {
     // Get admin by ID
     public Admin getAdminById(int id) {
         String sql = "SELECT * FROM admin WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -68,9 +137,10 @@ public class AdminDAO {
     // Add new admin (for system administration)
     public boolean addAdmin(Admin admin) {
         String sql = "INSERT INTO admin (username, password) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, admin.getUsername());
-            pstmt.setString(2, admin.getPassword());
+            pstmt.setString(2, PasswordHasher.hash(admin.getPassword()));
             
             int result = pstmt.executeUpdate();
             return result > 0;
@@ -83,11 +153,18 @@ public class AdminDAO {
     // Update admin password
     public boolean updateAdminPassword(String username, String newPassword) {
         String sql = "UPDATE admin SET password = ? WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, newPassword);
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, PasswordHasher.hash(newPassword));
             pstmt.setString(2, username);
+            connection.setAutoCommit(false);
             
             int result = pstmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.append(connection, ChangeLog.ADMIN, ChangeLog.UPDATE, 0, username);
+            }
+            connection.commit();
+            storedPasswords.remove(username);
             return result > 0;
         } catch (SQLException e) {
             System.out.println("Error updating admin password: " + e.getMessage());
@@ -98,7 +175,8 @@ public class AdminDAO {
     // Check if username exists
     public boolean usernameExists(String username) {
         String sql = "SELECT id FROM admin WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, username);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -113,10 +191,18 @@ public class AdminDAO {
     // Delete admin (for system administration)
     public boolean deleteAdmin(int id) {
         String sql = "DELETE FROM admin WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
+            connection.setAutoCommit(false);
             
             int result = pstmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.append(connection, ChangeLog.ADMIN, ChangeLog.DELETE, id, null);
+            }
+            connection.commit();
+            // Only the id is known here, so forget every cached hash
+            storedPasswords.clear();
             return result > 0;
         } catch (SQLException e) {
             System.out.println("Error deleting admin: " + e.getMessage());
@@ -0,0 +1,89 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append side of the change_log table, which lets several servers share one
+ * database and still keep their in-process caches.
+ *
+ * Every DAO write that an in-memory view depends on appends a row naming what
+ * changed (entity, action, id or key) and the node that did it, inside the
+ * write's own transaction, so a change is logged exactly when it commits.
+ * {@link ChangeLogTailer} on every other node reads the rows in id order and
+ * updates or drops its own copies; the writing node has already done so.
+ *
+ * Appends only happen once the tailer has started (and found the table), so
+ * tools and benchmarks that use the DAOs without a server write nothing extra.
+ */
+public final class ChangeLog {
+    public static final String EMPLOYEE = "EMPLOYEE";
+    public static final String PAYROLL = "PAYROLL";
+    public static final String PAY_PERIOD = "PAY_PERIOD";
+    public static final String ADMIN = "ADMIN";
+    // A logout; entity_key is "sessionId:expiresAtMillis" (see Sessions)
+    public static final String SESSION = "SESSION";
+
+    public static final String INSERT = "INSERT";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+    // Many rows at once (import, payroll run, archive); entity_id is 0 unless one period or employee is meant
+    public static final String BULK = "BULK";
+
+    private static final String SQL =
+            "INSERT INTO change_log (node_id, entity, action, entity_id, entity_key) VALUES (?, ?, ?, ?, ?)";
+
+    // Identifies this process's rows so its own tailer skips them (-Dnode.id, up to 32 characters; default random)
+    private static final String NODE_ID = System.getProperty("node.id",
+            UUID.randomUUID().toString().replace("-", "").substring(0, 12));
+
+    private static volatile boolean enabled;
+
+    private static final AtomicLong appended = new AtomicLong();
+
+    private ChangeLog() {}
+
+    // Record one change on the writer's connection, before it commits
+    public static void append(Connection connection, String entity, String action, int entityId, String entityKey)
+            throws SQLException {
+        if (!enabled) return;
+        try (PreparedStatement pstmt = connection.prepareStatement(SQL)) {
+            bind(pstmt, entity, action, entityId, entityKey);
+            pstmt.executeUpdate();
+        }
+        appended.incrementAndGet();
+    }
+
+    // Record one row per id in a single batch (e.g. a group-committed payroll batch)
+    public static void appendAll(Connection connection, String entity, String action, List<Integer> ids)
+            throws SQLException {
+        if (!enabled || ids.isEmpty()) return;
+        try (PreparedStatement pstmt = connection.prepareStatement(SQL)) {
+            for (int id : ids) {
+                bind(pstmt, entity, action, id, null);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        appended.addAndGet(ids.size());
+    }
+
+    private static void bind(PreparedStatement pstmt, String entity, String action, int entityId, String entityKey)
+            throws SQLException {
+        pstmt.setString(1, NODE_ID);
+        pstmt.setString(2, entity);
+        pstmt.setString(3, action);
+        pstmt.setInt(4, entityId);
+        pstmt.setString(5, entityKey);
+    }
+
+    static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() { return enabled; }
+    public static String getNodeId() { return NODE_ID; }
+    public static long getAppendedCount() { return appended.get(); }
+}
@@ -0,0 +1,378 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads other nodes' writes from the change_log table (see {@link ChangeLog})
+ * and applies them to this node's caches, so servers sharing one database
+ * never serve an employee, total or password another server has changed, or
+ * accept a session token another server has logged out.
+ *
+ * Every changelog.pollMs (default 500) one daemon thread reads up to
+ * changelog.batchSize (default 500) rows past the last id it has seen, through
+ * the primary key, skipping its own node's rows. A batch is coalesced before it
+ * is applied: new payroll is read back in one query and added to the totals,
+ * analytics columns and cached histories like a local insert; changed employees
+ * are re-read for the search index; everything else is invalidated.
+ *
+ * Ids are handed out at insert but become visible at commit, so a row can show
+ * up after a higher id has been read. Missing ids are looked for again on each
+ * poll until changelog.gapTimeoutMs (default 10000) has passed; a gap too large
+ * to track (e.g. after the log was purged under a stopped node) drops every
+ * cache instead. Rows older than changelog.retentionHours (default 24) are
+ * purged hourly, except logouts, which stay until the tokens they revoke have
+ * expired; a starting node reads those before it starts tailing. -Dchangelog.enabled=false turns the whole thing off; it is
+ * also off when the table does not exist.
+ */
+public final class ChangeLogTailer {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("changelog.enabled", "true"));
+    private static final long POLL_MS = Long.getLong("changelog.pollMs", 500L);
+    private static final int BATCH_SIZE = Integer.getInteger("changelog.batchSize", 500);
+    private static final long GAP_TIMEOUT_MS = Long.getLong("changelog.gapTimeoutMs", 10_000L);
+    private static final int RETENTION_HOURS = Integer.getInteger("changelog.retentionHours", 24);
+
+    // Batches read per poll before yielding to the next one, so a backlog drains without starving the purge
+    private static final int MAX_BATCHES_PER_POLL = 20;
+    // More missing ids than this in one jump are not tracked; every cache is dropped instead
+    private static final int MAX_GAPS = 1000;
+    private static final int PURGE_CHUNK = 10_000;
+
+    private static final String COLUMNS = "SELECT id, node_id, entity, action, entity_id, entity_key, created_at FROM change_log";
+
+    private static ScheduledExecutorService scheduler;
+
+    // Only touched on the tailer thread (lastId is also read by the stats)
+    private static volatile long lastId;
+    private static final Map<Long, Long> gaps = new LinkedHashMap<>();    // missing id -> when first missed
+    // The payroll aggregates' generation as the last poll started. A row first read by this poll was not
+    // visible to that one, so it committed after this was taken; -1 (odd, never current) when unknown.
+    private static long previousGeneration = -1;
+
+    private static final AtomicLong polls = new AtomicLong();
+    private static final AtomicLong applied = new AtomicLong();
+    private static final AtomicLong skipped = new AtomicLong();
+    private static final AtomicLong resyncs = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+    private static final AtomicLong purged = new AtomicLong();
+    private static volatile long lagMillis;
+
+    private ChangeLogTailer() {}
+
+    // Start tailing from the current end of the log and start appending to it
+    public static synchronized void start() {
+        if (!ENABLED || scheduler != null) return;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM change_log")) {
+            rs.next();
+            lastId = rs.getLong(1);
+            loadRevocations(connection);
+        } catch (SQLException e) {
+            System.out.println("Change log disabled (caches are not shared with other nodes): " + e.getMessage());
+            return;
+        }
+        ChangeLog.setEnabled(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-log-tailer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(ChangeLogTailer::pollSafely, POLL_MS, POLL_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(ChangeLogTailer::purgeSafely, 1, 60, TimeUnit.MINUTES);
+        System.out.println("Change log: node " + ChangeLog.getNodeId() + " tailing from id " + lastId);
+    }
+
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        ChangeLog.setEnabled(false);
+    }
+
+    // Logouts from before this node started; the log keeps them until their tokens expire
+    private static void loadRevocations(Connection connection) throws SQLException {
+        String sql = "SELECT entity_key FROM change_log WHERE entity = ? AND id <= ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, ChangeLog.SESSION);
+            pstmt.setLong(2, lastId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getString(1) != null) Sessions.getInstance().applyRevocation(rs.getString(1));
+                }
+            }
+        }
+    }
+
+    private static void pollSafely() {
+        try {
+            poll();
+        } catch (Exception e) {
+            // lastId only moves once a batch is applied, so the next poll picks up where this one stopped
+            failures.incrementAndGet();
+            System.out.println("Change log tailer error: " + e.getMessage());
+        }
+    }
+
+    // Read and apply what other nodes wrote since the last poll
+    static void poll() throws SQLException {
+        polls.incrementAndGet();
+        long generation = PayrollDAO.getAggregates().currentGeneration();
+        long sinceGeneration = previousGeneration;
+        // Anything this poll leaves unread may have committed before the next one starts
+        previousGeneration = -1;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            if (!gaps.isEmpty()) {
+                apply(readGaps(connection), sinceGeneration);
+            }
+            for (int i = 0; i < MAX_BATCHES_PER_POLL; i++) {
+                List<Change> batch = new ArrayList<>();
+                try (PreparedStatement pstmt = connection.prepareStatement(COLUMNS + " WHERE id > ? ORDER BY id LIMIT ?")) {
+                    pstmt.setLong(1, lastId);
+                    pstmt.setInt(2, BATCH_SIZE);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            batch.add(readChange(rs));
+                        }
+                    }
+                }
+                if (batch.isEmpty()) {
+                    previousGeneration = generation;
+                    return;
+                }
+
+                boolean overflow = false;
+                long expected = lastId + 1;
+                long now = System.currentTimeMillis();
+                for (Change change : batch) {
+                    if (change.id - expected > MAX_GAPS || gaps.size() + (change.id - expected) > MAX_GAPS) {
+                        overflow = true;
+                    } else {
+                        for (long id = expected; id < change.id; id++) gaps.put(id, now);
+                    }
+                    expected = change.id + 1;
+                }
+                if (overflow) {
+                    resync();
+                } else {
+                    apply(batch, sinceGeneration);
+                }
+                lastId = batch.get(batch.size() - 1).id;
+                if (batch.size() < BATCH_SIZE) {
+                    previousGeneration = generation;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Rows for ids skipped earlier that have committed since; ids missing too long are given up on
+    private static List<Change> readGaps(Connection connection) throws SQLException {
+        List<Change> found = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(COLUMNS).append(" WHERE id IN (");
+        int i = 0;
+        for (Long id : gaps.keySet()) {
+            sql.append(i++ == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY id");
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            // One SQL string per gap count; caching them would push the hot statements out
+            pstmt.setPoolable(false);
+            i = 1;
+            for (Long id : gaps.keySet()) {
+                pstmt.setLong(i++, id);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Change change = readChange(rs);
+                    gaps.remove(change.id);
+                    found.add(change);
+                }
+            }
+        }
+        // A rolled-back write leaves its id unused for good
+        long cutoff = System.currentTimeMillis() - GAP_TIMEOUT_MS;
+        for (Iterator<Long> it = gaps.values().iterator(); it.hasNext(); ) {
+            if (it.next() < cutoff) it.remove();
+        }
+        return found;
+    }
+
+    // Apply a batch, coalesced so each cache is touched once however many rows name it
+    private static void apply(List<Change> changes, long generation) throws SQLException {
+        Set<Integer> employeesChanged = new HashSet<>();
+        Set<Integer> employeesDeleted = new HashSet<>();
+        boolean employeesBulk = false;
+        Set<Integer> payrollInserted = new HashSet<>();
+        Set<Integer> payrollEmployees = new HashSet<>();
+        boolean payrollBulk = false;
+        Set<Integer> periods = new HashSet<>();
+        Set<String> admins = new HashSet<>();
+        boolean adminsAll = false;
+
+        long now = System.currentTimeMillis();
+        for (Change change : changes) {
+            if (ChangeLog.getNodeId().equals(change.nodeId)) {
+                skipped.incrementAndGet();
+                continue;
+            }
+            applied.incrementAndGet();
+            lagMillis = Math.max(0, now - change.createdAt);
+            switch (change.entity) {
+                case ChangeLog.EMPLOYEE:
+                    if (ChangeLog.BULK.equals(change.action)) {
+                        employeesBulk = true;
+                    } else if (ChangeLog.DELETE.equals(change.action)) {
+                        employeesDeleted.add(change.entityId);
+                    } else {
+                        employeesChanged.add(change.entityId);
+                    }
+                    break;
+                case ChangeLog.PAYROLL:
+                    if (ChangeLog.INSERT.equals(change.action)) {
+                        payrollInserted.add(change.entityId);
+                    } else if (ChangeLog.BULK.equals(change.action) || change.entityKey == null) {
+                        payrollBulk = true;
+                    } else {
+                        payrollEmployees.add(Integer.parseInt(change.entityKey));
+                    }
+                    break;
+                case ChangeLog.PAY_PERIOD:
+                    periods.add(change.entityId);
+                    // Archiving took the period's rows out of the payroll table
+                    if (PayPeriod.ARCHIVED.equals(change.entityKey)) payrollBulk = true;
+                    break;
+                case ChangeLog.SESSION:
+                    if (change.entityKey != null) Sessions.getInstance().applyRevocation(change.entityKey);
+                    break;
+                case ChangeLog.ADMIN:
+                    if (change.entityKey == null) {
+                        adminsAll = true;
+                    } else {
+                        admins.add(change.entityKey);
+                    }
+                    break;
+                default:
+                    // Written by a newer version; dropping everything is always correct
+                    resync();
+                    return;
+            }
+        }
+
+        for (int period : periods) PayPeriodDAO.forget(period);
+        if (adminsAll) {
+            AdminDAO.forgetPassword(null);
+        } else {
+            for (String username : admins) AdminDAO.forgetPassword(username);
+        }
+
+        employeesChanged.removeAll(employeesDeleted);
+        if (employeesBulk) {
+            EmployeeDAO.getSearchIndex().invalidate();
+            PayrollDAO.getAggregates().invalidate();
+        }
+        if (!employeesChanged.isEmpty() || !employeesDeleted.isEmpty()) {
+            new EmployeeDAO().applyRemoteChanges(employeesChanged, employeesDeleted);
+        }
+
+        if (payrollBulk) {
+            // Re-reading would only warm rows that are about to be dropped
+            PayrollDAO.applyRemoteChange(0);
+        } else {
+            if (!payrollInserted.isEmpty()) {
+                new PayrollDAO().applyRemoteInserts(payrollInserted, generation);
+            }
+            for (int employeeId : payrollEmployees) PayrollDAO.applyRemoteChange(employeeId);
+        }
+    }
+
+    // Lost track of the log: drop every cache so it is rebuilt from the database
+    private static void resync() {
+        resyncs.incrementAndGet();
+        gaps.clear();
+        EmployeeDAO.getCache().invalidateAll();
+        EmployeeDAO.getSearchIndex().invalidate();
+        PayrollDAO.applyRemoteChange(0);
+        PayPeriodDAO.forgetAll();
+        AdminDAO.forgetPassword(null);
+        System.out.println("Change log: caches dropped after a gap in the log");
+    }
+
+    private static void purgeSafely() {
+        if (RETENTION_HOURS <= 0) return;
+        String sql = "DELETE FROM change_log WHERE created_at < ? AND (entity <> ? OR created_at < ?) LIMIT " + PURGE_CHUNK;
+        long now = System.currentTimeMillis();
+        long retention = RETENTION_HOURS * 3_600_000L;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, new Timestamp(now - retention));
+            // A logout must outlive the token it revokes, or a node started later would accept it again
+            pstmt.setString(2, ChangeLog.SESSION);
+            pstmt.setTimestamp(3, new Timestamp(now - Math.max(retention, Sessions.getTtlMillis())));
+            int deleted;
+            do {
+                deleted = pstmt.executeUpdate();
+                purged.addAndGet(deleted);
+            } while (deleted == PURGE_CHUNK);
+        } catch (SQLException e) {
+            failures.incrementAndGet();
+            System.out.println("Change log purge error: " + e.getMessage());
+        }
+    }
+
+    private static Change readChange(ResultSet rs) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return new Change(rs.getLong("id"), rs.getString("node_id"), rs.getString("entity"), rs.getString("action"),
+                rs.getInt("entity_id"), rs.getString("entity_key"),
+                createdAt != null ? createdAt.getTime() : System.currentTimeMillis());
+    }
+
+    public static boolean isRunning() {
+        synchronized (ChangeLogTailer.class) {
+            return scheduler != null;
+        }
+    }
+
+    public static long getLastId() { return lastId; }
+    public static long getPolls() { return polls.get(); }
+    public static long getApplied() { return applied.get(); }
+    public static long getSkipped() { return skipped.get(); }
+    public static long getResyncs() { return resyncs.get(); }
+    public static long getFailures() { return failures.get(); }
+    public static long getPurged() { return purged.get(); }
+    public static long getLagMillis() { return lagMillis; }
+
+    private static final class Change {
+        final long id;
+        final String nodeId;
+        final String entity;
+        final String action;
+        final int entityId;
+        final String entityKey;
+        final long createdAt;
+
+        Change(long id, String nodeId, String entity, String action, int entityId, String entityKey, long createdAt) {
+            this.id = id;
+            this.nodeId = nodeId;
+            this.entity = entity;
+            this.action = action;
+            this.entityId = entityId;
+            this.entityKey = entityKey;
+            this.createdAt = createdAt;
+        }
+    }
+}
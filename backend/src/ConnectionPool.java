@@ -0,0 +1,358 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Connections handed out by {@link #borrow()} are proxies: calling close() on them
+ * returns the physical connection to the pool instead of closing it, so DAOs can
+ * keep using try-with-resources exactly as they would with a plain connection.
+ *
+ * Each physical connection also keeps up to statementCacheSize prepared
+ * statements open across borrows (see {@link StatementCache}); 0 turns that off.
+ *
+ * A connection held longer than leakThresholdMillis is logged once. Only the
+ * borrow time is recorded by default; with leakTrace every borrow also captures
+ * its stack so the log shows where the connection was taken, which costs a
+ * stack walk per borrow.
+ */
+public class ConnectionPool {
+    private final String name;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final long leakThresholdMillis;
+    private final boolean leakTrace;
+    private final int statementCacheSize;
+    private final StatementCache.Stats statementStats = new StatementCache.Stats();
+
+    // Idle connections, most recently returned first so hot connections stay hot
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private volatile boolean closed;
+
+    public ConnectionPool(String name, String url, String username, String password,
+                          int minSize, int maxSize, long idleTimeoutMillis, long acquireTimeoutMillis,
+                          long validationIntervalMillis, long leakThresholdMillis, boolean leakTrace,
+                          int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.name = name;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.leakTrace = leakTrace;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, 30_000) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Open the minimum number of connections up front
+    public void warmUp() throws SQLException {
+        while (totalConnections.get() < minSize) {
+            idle.offerLast(openConnection());
+        }
+    }
+
+    // Borrow a connection, waiting at most the acquire timeout for one to free up
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool '" + name + "' is closed");
+        }
+        waitingThreads.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waitingThreads.decrementAndGet();
+        }
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLException("Timed out after " + acquireTimeoutMillis + "ms waiting for a connection from pool '"
+                    + name + "' (active=" + borrowed.size() + ", max=" + maxSize + ")");
+        }
+
+        try {
+            PooledConnection pooled = takeValidConnection();
+            pooled.onBorrow(leakTrace && leakThresholdMillis > 0);
+            borrowed.add(pooled);
+            borrowCount.incrementAndGet();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidConnection() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return openConnection();
+    }
+
+    // Validate on borrow; skip the round trip for connections that were used very recently
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.raw.isClosed()) return false;
+            if (System.currentTimeMillis() - pooled.lastReturnedAt < validationIntervalMillis) return true;
+            return pooled.raw.isValid(5);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, username, password);
+        totalConnections.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    // Called when a borrowed handle is closed
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (pooled.statements != null) {
+                pooled.statements.releaseAll();
+            }
+            if (closed || pooled.raw.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.raw.getAutoCommit()) {
+                pooled.raw.rollback();
+                pooled.raw.setAutoCommit(true);
+            }
+            if (pooled.raw.isReadOnly()) {
+                pooled.raw.setReadOnly(false);
+            }
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            System.out.println("Discarding broken connection from pool '" + name + "': " + e.getMessage());
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        if (pooled.statements != null) {
+            pooled.statements.clear();
+        }
+        try {
+            pooled.raw.close();
+        } catch (SQLException e) {
+            // Connection is already unusable; nothing left to do
+        }
+    }
+
+    // Evict idle connections, top up to the minimum size and report leaked connections
+    private void housekeep() {
+        if (closed) return;
+        long now = System.currentTimeMillis();
+
+        for (PooledConnection pooled : idle) {
+            if (totalConnections.get() <= minSize) break;
+            if (now - pooled.lastReturnedAt > idleTimeoutMillis && idle.remove(pooled)) {
+                evictionCount.incrementAndGet();
+                discard(pooled);
+            }
+        }
+
+        try {
+            while (totalConnections.get() < minSize && !closed) {
+                idle.offerLast(openConnection());
+            }
+        } catch (SQLException e) {
+            System.out.println("Error refilling connection pool '" + name + "': " + e.getMessage());
+        }
+
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    leakCount.incrementAndGet();
+                    System.out.println("Possible connection leak in pool '" + name + "': connection held for "
+                            + (now - pooled.borrowedAt) + "ms"
+                            + (pooled.borrowSite == null ? " (-Ddb.pool.leakTrace=true logs where it was borrowed)" : ""));
+                    if (pooled.borrowSite != null) {
+                        pooled.borrowSite.printStackTrace(System.out);
+                    }
+                }
+            }
+        }
+    }
+
+    // Close every idle connection and refuse further borrows
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public String getName() { return name; }
+    public int getMaxSize() { return maxSize; }
+    public int getTotalConnections() { return totalConnections.get(); }
+    public int getIdleConnections() { return idle.size(); }
+    public int getActiveConnections() { return borrowed.size(); }
+    public int getWaitingThreads() { return waitingThreads.get(); }
+    public long getBorrowCount() { return borrowCount.get(); }
+    public long getTimeoutCount() { return timeoutCount.get(); }
+    public long getLeakCount() { return leakCount.get(); }
+    public long getEvictionCount() { return evictionCount.get(); }
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public long getStatementCacheHits() { return statementStats.hits.sum(); }
+    public long getStatementCacheMisses() { return statementStats.misses.sum(); }
+    public long getStatementCacheEvictions() { return statementStats.evictions.sum(); }
+
+    // Share of prepareStatement calls answered from the cache
+    public double getStatementCacheHitRate() {
+        long hits = getStatementCacheHits();
+        long total = hits + getStatementCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "name='" + name + '\'' +
+                ", total=" + getTotalConnections() +
+                ", idle=" + getIdleConnections() +
+                ", active=" + getActiveConnections() +
+                ", waiting=" + getWaitingThreads() +
+                ", max=" + maxSize +
+                '}';
+    }
+
+    // ---------------------- POOLED CONNECTION ----------------------
+    private final class PooledConnection {
+        private final Connection raw;
+        private final StatementCache statements;
+        private volatile long lastReturnedAt = System.currentTimeMillis();
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.statements = statementCacheSize > 0 ? new StatementCache(statementCacheSize, statementStats) : null;
+        }
+
+        void onBorrow(boolean recordSite) {
+            borrowedAt = System.currentTimeMillis();
+            borrowSite = recordSite ? new Throwable("Connection borrowed here") : null;
+            leakReported = false;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    // One handle per borrow, so a stale reference can never close somebody else's lease
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.raw.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + name + "]";
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (pooled.statements != null && "prepareStatement".equals(method.getName())
+                    && StatementCache.isCacheable(method)) {
+                return pooled.statements.prepare((Connection) proxy, pooled.raw, args);
+            }
+            try {
+                return method.invoke(pooled.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Forward-only CSV record reader over a stream (RFC 4180: comma separated,
+ * double-quoted fields may hold commas, doubled quotes and line breaks; CRLF
+ * or LF line ends).
+ *
+ * Reads through a fixed char buffer and keeps only the current record, so
+ * memory does not depend on the size of the input. Fields longer than
+ * maxFieldLength or records with more than maxFields fields are not kept
+ * whole: the record is still consumed to its end, but {@link #getError()}
+ * says what was wrong so the caller can reject just that record.
+ */
+public final class CsvReader implements AutoCloseable {
+    private final Reader in;
+    private final char[] buffer = new char[16 * 1024];
+    private int position;
+    private int limit;
+
+    private final int maxFields;
+    private final int maxFieldLength;
+    private final String[] fields;
+    private final StringBuilder field = new StringBuilder(64);
+    private int fieldCount;
+    private String error;
+
+    private long line = 1;          // line the next record starts on
+    private long recordLine;       // line the current record started on
+    private boolean started;
+
+    public CsvReader(InputStream in, int maxFields, int maxFieldLength) {
+        this.in = new InputStreamReader(in, StandardCharsets.UTF_8);
+        this.maxFields = maxFields;
+        this.maxFieldLength = maxFieldLength;
+        this.fields = new String[maxFields];
+    }
+
+    // Advance to the next record; false at end of input. Blank lines are skipped.
+    public boolean next() throws IOException {
+        while (true) {
+            fieldCount = 0;
+            error = null;
+            recordLine = line;
+            int c = read();
+            if (c < 0) return false;
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') c = read();    // byte order mark from spreadsheet exports
+                if (c < 0) return false;
+            }
+            if (c == '\r' || c == '\n') {
+                endOfLine(c);
+                continue;
+            }
+            readRecord(c);
+            return true;
+        }
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    // Field i (trimmed); null when the record has fewer fields
+    public String get(int i) {
+        return i < fieldCount ? fields[i] : null;
+    }
+
+    // Why the current record could not be read whole, or null
+    public String getError() {
+        return error;
+    }
+
+    // Line the current record starts on (1-based)
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readRecord(int c) throws IOException {
+        while (true) {
+            field.setLength(0);
+            boolean quoted = c == '"';
+            if (quoted) {
+                // Quoted field: runs to the closing quote; "" is a literal quote
+                while (true) {
+                    c = read();
+                    if (c < 0) {
+                        fail("unterminated quoted field");
+                        break;
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') break;
+                    } else if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                        line++;
+                    }
+                    append((char) c);
+                }
+                // Anything between the closing quote and the separator is kept as-is
+                while (c >= 0 && c != ',' && c != '\r' && c != '\n') {
+                    append((char) c);
+                    c = read();
+                }
+            } else {
+                while (c >= 0 && c != ',' && c != '\r' && c != '\n') {
+                    append((char) c);
+                    c = read();
+                }
+            }
+            addField();
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r' || c == '\n') endOfLine(c);
+            return;
+        }
+    }
+
+    private void append(char c) {
+        if (field.length() < maxFieldLength) {
+            field.append(c);
+        } else {
+            fail("field longer than " + maxFieldLength + " characters");
+        }
+    }
+
+    private void addField() {
+        if (fieldCount < maxFields) {
+            fields[fieldCount++] = field.toString().trim();
+        } else {
+            fail("more than " + maxFields + " fields");
+        }
+    }
+
+    private void fail(String message) {
+        if (error == null) error = message;
+    }
+
+    private void endOfLine(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') read();
+        line++;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -1,46 +1,279 @@
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/payroll_system";
+    // Server-side prepared statements: MySQL parses each statement once per connection and executions send only
+    // the parameters; the driver keeps the ones our pool's statement cache does not hold (cachePrepStmts)
+    private static final String URL = "jdbc:mysql://localhost:3306/payroll_system?rewriteBatchedStatements=true&useCursorFetch=true"
+            + "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048";
     private static final String USERNAME = "root";
     private static final String PASSWORD = "214042"; // Change this to your MySQL password
     private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
-    
+
+    // Pool settings, overridable with -Ddb.pool.<name>=<value>
+    private static final int POOL_MIN_SIZE = Integer.getInteger("db.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("db.pool.idleTimeoutMs", 300_000L);
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = Long.getLong("db.pool.acquireTimeoutMs", 5_000L);
+    private static final long POOL_VALIDATION_INTERVAL_MS = Long.getLong("db.pool.validationIntervalMs", 1_000L);
+    private static final long POOL_LEAK_THRESHOLD_MS = Long.getLong("db.pool.leakThresholdMs", 60_000L);
+    // Capture each borrower's stack for the leak log; off by default since it walks the stack on every borrow
+    private static final boolean POOL_LEAK_TRACE = Boolean.getBoolean("db.pool.leakTrace");
+    // Prepared statements kept open per pooled connection (0 disables the cache)
+    private static final int POOL_STATEMENT_CACHE_SIZE = Integer.getInteger("db.pool.statementCacheSize", 64);
+
+    // Rows fetched per round trip by the streaming (cursor) queries
+    private static final int FETCH_SIZE = Integer.getInteger("db.fetchSize", 500);
+
+    // Read replicas: -Ddb.replica.urls (comma-separated; none by default) with the primary's credentials unless
+    // -Ddb.replica.username / -Ddb.replica.password are set, and the same pool settings as the primary
+    private static final String REPLICA_URLS = System.getProperty("db.replica.urls", "");
+    // "round-robin" or "least-loaded" (fewest borrowed connections)
+    private static final boolean LEAST_LOADED = "least-loaded".equalsIgnoreCase(
+            System.getProperty("db.replica.selection", "round-robin"));
+    // A replica further behind than this serves no reads until it catches up
+    private static final long REPLICA_MAX_LAG_MS = Long.getLong("db.replica.maxLagMs", 5_000L);
+    private static final long REPLICA_LAG_CHECK_MS = Long.getLong("db.replica.lagCheckMs", 1_000L);
+    // After a user's write, that user's reads go to the primary for this long (0 disables)
+    private static final long READ_YOUR_WRITES_MS = Long.getLong("db.replica.readYourWritesMs", 5_000L);
+
+    // Reads on this thread go to the primary (set per request, see beginRequest)
+    private static final ThreadLocal<Boolean> primaryReads = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    // Username -> time of that user's last write request, for read-your-writes
+    private static final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
     private static DatabaseConnection instance;
-    private Connection connection;
+    private final ConnectionPool pool;
+    private final Replica[] replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService lagChecker;
+
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong primaryReadsPinned = new AtomicLong();
+    private final AtomicLong primaryReadsFallback = new AtomicLong();
+    private final AtomicLong replicaFailures = new AtomicLong();
 
     // Private constructor for singleton pattern
     private DatabaseConnection() throws SQLException {
         try {
-            Class.forName(DRIVER);
-            this.connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+            Class.forName(System.getProperty("db.driver", DRIVER));
         } catch (ClassNotFoundException ex) {
             System.out.println("Database Connection Creation Failed : " + ex.getMessage());
             throw new SQLException("MySQL JDBC Driver not found", ex);
         }
+        this.pool = new ConnectionPool("primary",
+                System.getProperty("db.url", URL),
+                System.getProperty("db.username", USERNAME),
+                System.getProperty("db.password", PASSWORD),
+                POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MS, POOL_ACQUIRE_TIMEOUT_MS,
+                POOL_VALIDATION_INTERVAL_MS, POOL_LEAK_THRESHOLD_MS, POOL_LEAK_TRACE, POOL_STATEMENT_CACHE_SIZE);
+        try {
+            pool.warmUp();
+        } catch (SQLException e) {
+            pool.shutdown();
+            throw e;
+        }
+
+        List<Replica> configured = new ArrayList<>();
+        for (String url : REPLICA_URLS.split(",")) {
+            if (url.isBlank()) continue;
+            ConnectionPool replicaPool = new ConnectionPool("replica" + (configured.size() + 1), url.trim(),
+                    System.getProperty("db.replica.username", System.getProperty("db.username", USERNAME)),
+                    System.getProperty("db.replica.password", System.getProperty("db.password", PASSWORD)),
+                    POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MS, POOL_ACQUIRE_TIMEOUT_MS,
+                    POOL_VALIDATION_INTERVAL_MS, POOL_LEAK_THRESHOLD_MS, POOL_LEAK_TRACE, POOL_STATEMENT_CACHE_SIZE);
+            configured.add(new Replica(replicaPool));
+        }
+        this.replicas = configured.toArray(new Replica[0]);
+        if (replicas.length == 0) {
+            this.lagChecker = null;
+            return;
+        }
+        // Replicas take reads from their first successful check on; one that is down only means reads stay
+        // on the primary until it is back
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-lag-check");
+            t.setDaemon(true);
+            return t;
+        });
+        lagChecker.scheduleWithFixedDelay(this::checkReplicas, REPLICA_LAG_CHECK_MS, REPLICA_LAG_CHECK_MS,
+                TimeUnit.MILLISECONDS);
     }
 
     // Get singleton instance
-    public static DatabaseConnection getInstance() throws SQLException {
-        if (instance == null || instance.getConnection().isClosed()) {
+    public static synchronized DatabaseConnection getInstance() throws SQLException {
+        if (instance == null) {
             instance = new DatabaseConnection();
         }
         return instance;
     }
 
-    // Get connection
-    public Connection getConnection() {
-        return connection;
+    // Borrow a pooled connection to the primary; closing it returns it to the pool.
+    // Writes, and reads whose result is kept (caches, indexes) or checked against a write, use this.
+    public Connection getConnection() throws SQLException {
+        return pool.borrow();
+    }
+
+    // Borrow a connection for a read-only query whose result is only sent back to the caller: a replica
+    // within db.replica.maxLagMs when there is one and this request does not need to see its own writes,
+    // the primary otherwise
+    public Connection getReadConnection() throws SQLException {
+        if (replicas.length == 0) {
+            return pool.borrow();
+        }
+        if (primaryReads.get()) {
+            primaryReadsPinned.incrementAndGet();
+            return pool.borrow();
+        }
+        Replica replica = selectReplica();
+        if (replica != null) {
+            try {
+                Connection connection = replica.pool.borrow();
+                replica.reads.incrementAndGet();
+                replicaReads.incrementAndGet();
+                return connection;
+            } catch (SQLException e) {
+                // Out of rotation until the next lag check finds it healthy again
+                replica.available = false;
+                replicaFailures.incrementAndGet();
+                System.out.println("Replica '" + replica.pool.getName() + "' unavailable, reading from primary: "
+                        + e.getMessage());
+            }
+        }
+        primaryReadsFallback.incrementAndGet();
+        return pool.borrow();
+    }
+
+    private Replica selectReplica() {
+        if (LEAST_LOADED) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                if (replica.available && (best == null || replica.load() < best.load())) best = replica;
+            }
+            return best;
+        }
+        int start = nextReplica.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.length; i++) {
+            Replica replica = replicas[(start + i) % replicas.length];
+            if (replica.available) return replica;
+        }
+        return null;
+    }
+
+    // Measure every replica's lag and take the ones too far behind (or unreachable) out of rotation
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            try {
+                replica.lagMillis = measureLag(replica);
+                replica.available = replica.lagMillis <= REPLICA_MAX_LAG_MS;
+            } catch (SQLException e) {
+                if (replica.available || replica.lagMillis != -1) {
+                    System.out.println("Replica '" + replica.pool.getName() + "' lag check failed: " + e.getMessage());
+                }
+                replica.lagMillis = -1;
+                replica.available = false;
+                replicaFailures.incrementAndGet();
+            }
+        }
+    }
+
+    // With the change log running, lag is how long ago the primary logged the oldest change the replica
+    // does not have yet (0 when it has them all); otherwise the database's own replication status
+    private long measureLag(Replica replica) throws SQLException {
+        if (!ChangeLog.isEnabled()) {
+            try (Connection connection = replica.pool.borrow();
+                 Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SHOW REPLICA STATUS")) {
+                if (!rs.next()) throw new SQLException("not a replica");
+                long seconds = rs.getLong("Seconds_Behind_Source");
+                // NULL while replication is stopped
+                return rs.wasNull() ? Long.MAX_VALUE : seconds * 1000;
+            }
+        }
+        long replicated;
+        try (Connection connection = replica.pool.borrow();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM change_log")) {
+            rs.next();
+            replicated = rs.getLong(1);
+        }
+        try (Connection connection = pool.borrow();
+             PreparedStatement pstmt = connection.prepareStatement(
+                     "SELECT created_at FROM change_log WHERE id > ? ORDER BY id LIMIT 1")) {
+            pstmt.setLong(1, replicated);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return 0;
+                Timestamp missing = rs.getTimestamp(1);
+                return missing == null ? 0 : Math.max(0, System.currentTimeMillis() - missing.getTime());
+            }
+        }
+    }
+
+    // Set up read routing for a request on this thread: reads go to the primary during write requests,
+    // when the caller asked for it, or for a user who wrote within db.replica.readYourWritesMs
+    public static void beginRequest(String username, boolean write, boolean primaryRequested) {
+        boolean primary = write || primaryRequested;
+        if (!primary && username != null && READ_YOUR_WRITES_MS > 0) {
+            Long wroteAt = lastWrites.get(username);
+            primary = wroteAt != null && System.currentTimeMillis() - wroteAt < READ_YOUR_WRITES_MS;
+        }
+        primaryReads.set(primary);
+    }
+
+    // Request finished: remember a write for read-your-writes and reset routing for the thread's next request
+    public static void endRequest(String username, boolean write) {
+        primaryReads.remove();
+        if (!write || username == null || READ_YOUR_WRITES_MS <= 0) return;
+        long now = System.currentTimeMillis();
+        lastWrites.put(username, now);
+        if (lastWrites.size() > 10_000) {
+            lastWrites.values().removeIf(wroteAt -> now - wroteAt >= READ_YOUR_WRITES_MS);
+        }
+    }
+
+    // Send this thread's reads to the primary (e.g. for work checked against the primary); returns the
+    // previous setting to restore
+    public static boolean readFromPrimary(boolean value) {
+        boolean previous = primaryReads.get();
+        primaryReads.set(value);
+        return previous;
+    }
+
+    public static int getFetchSize() {
+        return FETCH_SIZE;
     }
 
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public Replica[] getReplicas() {
+        return replicas.clone();
+    }
+
+    public long getReplicaReads() { return replicaReads.get(); }
+    public long getPrimaryReadsPinned() { return primaryReadsPinned.get(); }
+    public long getPrimaryReadsFallback() { return primaryReadsFallback.get(); }
+    public long getReplicaFailures() { return replicaFailures.get(); }
+
     // Test connection
     public static boolean testConnection() {
-        try {
-            DatabaseConnection dbConnection = getInstance();
-            Connection conn = dbConnection.getConnection();
-            if (conn != null && !conn.isClosed()) {
+        try (Connection conn = getInstance().getConnection()) {
+            if (conn != null && conn.isValid(5)) {
                 System.out.println("Database connection successful!");
                 return true;
             }
@@ -50,15 +283,16 @@ public class DatabaseConnection {
         return false;
     }
 
-    // Close connection
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
+    // Close every pooled connection
+    public static synchronized void closeConnection() {
+        if (instance != null) {
+            if (instance.lagChecker != null) instance.lagChecker.shutdownNow();
+            for (Replica replica : instance.replicas) {
+                replica.pool.shutdown();
             }
-        } catch (SQLException e) {
-            System.out.println("Error closing database connection: " + e.getMessage());
+            instance.pool.shutdown();
+            instance = null;
+            System.out.println("Database connection pool closed.");
         }
     }
 
@@ -71,4 +305,25 @@ public class DatabaseConnection {
             throw new SQLException("MySQL JDBC Driver not found", ex);
         }
     }
-}
\ No newline at end of file
+
+    // A read replica's pool and the routing state kept for it
+    public static final class Replica {
+        private final ConnectionPool pool;
+        private volatile boolean available;
+        private volatile long lagMillis = -1;       // -1 until measured, or while unreachable
+        private final AtomicLong reads = new AtomicLong();
+
+        Replica(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        private int load() {
+            return pool.getActiveConnections() + pool.getWaitingThreads();
+        }
+
+        public ConnectionPool getPool() { return pool; }
+        public boolean isAvailable() { return available; }
+        public long getLagMillis() { return lagMillis; }
+        public long getReads() { return reads.get(); }
+    }
+}
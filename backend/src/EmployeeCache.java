@@ -0,0 +1,113 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, expiring in-process cache of employees keyed by id.
+ *
+ * Entries are evicted least-recently-used once the cache is full and ignored
+ * once older than the TTL. Writes go through {@link #invalidate(int)}; a load
+ * that started before an invalidation is not cached, so a slow reader can never
+ * put back a row that a concurrent writer just changed.
+ */
+public class EmployeeCache {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<Integer, Entry> entries;
+
+    // Bumped on every invalidation; loads only cache their result if it has not moved
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public EmployeeCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > EmployeeCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Cached copy of the employee, or null on a miss
+    public Employee get(int id) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(id);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+                entries.remove(id);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copy(entry.employee);
+    }
+
+    // Take before reading from the database and pass to put()
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    // Cache a freshly loaded employee unless something was invalidated since the load started
+    public void put(Employee employee, long loadGeneration) {
+        if (employee == null) return;
+        Entry entry = new Entry(copy(employee), System.currentTimeMillis());
+        synchronized (entries) {
+            if (generation.get() != loadGeneration) return;
+            entries.put(employee.getId(), entry);
+        }
+    }
+
+    public void invalidate(int id) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(id);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() { return maxSize; }
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getEvictionCount() { return evictions.get(); }
+
+    private static Employee copy(Employee e) {
+        return new Employee(e.getId(), e.getName(), e.getDepartment(), e.getBasicSalary(),
+                e.getCreatedAt(), e.getUpdatedAt());
+    }
+
+    private static final class Entry {
+        final Employee employee;
+        final long loadedAt;
+
+        Entry(Employee employee, long loadedAt) {
+            this.employee = employee;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
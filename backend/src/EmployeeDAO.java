@@ -1,24 +1,67 @@
+import java.io.IOException;
 import java.sql.*;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class EmployeeDAO {
-    private Connection connection;
+public class EmployeeDAO implements EmployeeSearchIndex.Loader {
+    // Shared by every EmployeeDAO; -Dcache.employee.maxSize and -Dcache.employee.ttlMs
+    private static final EmployeeCache cache = new EmployeeCache(
+            Integer.getInteger("cache.employee.maxSize", 10_000),
+            Long.getLong("cache.employee.ttlMs", 300_000L));
+    // Name/department trigram index behind /api/employees/search, kept current by the writes below
+    private static final EmployeeSearchIndex searchIndex = new EmployeeSearchIndex();
+
+    // CSV import: rows per JDBC batch (and per transaction), and how many row errors are reported individually
+    private static final int IMPORT_BATCH_SIZE = Integer.getInteger("employee.import.batchSize", 500);
+    private static final int IMPORT_MAX_ERRORS = Integer.getInteger("employee.import.maxErrors", 100);
+    // Column widths from the schema
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final int MAX_DEPARTMENT_LENGTH = 50;
+
+    private final DatabaseConnection database;
 
     public EmployeeDAO() throws SQLException {
-        this.connection = DatabaseConnection.getInstance().getConnection();
+        this.database = DatabaseConnection.getInstance();
     }
 
     // Create employee
     public boolean addEmployee(Employee employee) {
         String sql = "INSERT INTO employee (name, department, basic_salary) VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        long generation = PayrollDAO.getAggregates().currentGeneration();
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, employee.getName());
             pstmt.setString(2, employee.getDepartment());
             pstmt.setBigDecimal(3, employee.getBasicSalary());
+            connection.setAutoCommit(false);
             
             int result = pstmt.executeUpdate();
+            if (result > 0) {
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        employee.setId(keys.getInt(1));
+                    }
+                }
+                if (employee.getId() > 0) {
+                    ChangeLog.append(connection, ChangeLog.EMPLOYEE, ChangeLog.INSERT, employee.getId(), null);
+                } else {
+                    ChangeLog.append(connection, ChangeLog.EMPLOYEE, ChangeLog.BULK, 0, null);
+                }
+            }
+            connection.commit();
+            if (result > 0) {
+                PayrollDAO.getAggregates().employeeAdded(employee.getBasicSalary(), generation);
+                if (employee.getId() > 0) {
+                    searchIndex.put(employee.getId(), employee.getName(), employee.getDepartment(),
+                            Money.toCents(employee.getBasicSalary()));
+                } else {
+                    searchIndex.invalidate();
+                }
+            }
             return result > 0;
         } catch (SQLException e) {
             System.out.println("Error adding employee: " + e.getMessage());
@@ -30,8 +73,10 @@ public class EmployeeDAO {
     public List<Employee> getAllEmployees() {
         List<Employee> employees = new ArrayList<>();
         String sql = "SELECT * FROM employee ORDER BY id";
+        long generation = cache.currentGeneration();
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = database.getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
@@ -43,6 +88,7 @@ public class EmployeeDAO {
                 employee.setCreatedAt(rs.getTimestamp("created_at"));
                 employee.setUpdatedAt(rs.getTimestamp("updated_at"));
                 employees.add(employee);
+                cache.put(employee, generation);
             }
         } catch (SQLException e) {
             System.out.println("Error retrieving employees: " + e.getMessage());
@@ -50,10 +96,73 @@ public class EmployeeDAO {
         return employees;
     }
 
+    // Stream one page of employees (by id, with optional department and created_at filters) through a
+    // forward-only cursor. The same Employee instance is reused for every row, so the callback must not
+    // keep a reference to it. Returns the "after" cursor for the next page, or 0 when this is the last page.
+    public int streamEmployees(PageRequest page, RowCallback<Employee> callback) throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM employee WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (page.getAfter() > 0) {
+            sql.append(page.isDescending() ? " AND id < ?" : " AND id > ?");
+            params.add(page.getAfter());
+        }
+        if (page.getDepartment() != null) {
+            sql.append(" AND department = ?");
+            params.add(page.getDepartment());
+        }
+        if (page.getFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(page.getFrom());
+        }
+        if (page.getTo() != null) {
+            sql.append(" AND created_at < ?");
+            params.add(page.getTo());
+        }
+        sql.append(page.isDescending() ? " ORDER BY id DESC" : " ORDER BY id");
+        if (page.hasLimit()) {
+            // One extra row tells us whether there is a next page
+            sql.append(" LIMIT ?");
+            params.add(page.getLimit() + 1);
+        }
+
+        int rows = 0;
+        try (Connection connection = database.getReadConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            bindParameters(pstmt, params);
+            pstmt.setFetchSize(DatabaseConnection.getFetchSize());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Employee employee = new Employee();
+                while (rs.next()) {
+                    if (page.hasLimit() && rows == page.getLimit()) {
+                        return employee.getId();
+                    }
+                    employee.setId(rs.getInt("id"));
+                    employee.setName(rs.getString("name"));
+                    employee.setDepartment(rs.getString("department"));
+                    employee.setBasicSalary(rs.getBigDecimal("basic_salary"));
+                    employee.setCreatedAt(rs.getTimestamp("created_at"));
+                    employee.setUpdatedAt(rs.getTimestamp("updated_at"));
+                    callback.accept(employee);
+                    rows++;
+                }
+            }
+        }
+        return 0;
+    }
+
     // Get employee by ID
     public Employee getEmployeeById(int id) {
+        Employee cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+
         String sql = "SELECT * FROM employee WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        long generation = cache.currentGeneration();
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -65,6 +174,7 @@ public class EmployeeDAO {
                     employee.setBasicSalary(rs.getBigDecimal("basic_salary"));
                     employee.setCreatedAt(rs.getTimestamp("created_at"));
                     employee.setUpdatedAt(rs.getTimestamp("updated_at"));
+                    cache.put(employee, generation);
                     return employee;
                 }
             }
@@ -77,13 +187,27 @@ public class EmployeeDAO {
     // Update employee
     public boolean updateEmployee(Employee employee) {
         String sql = "UPDATE employee SET name = ?, department = ?, basic_salary = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, employee.getName());
             pstmt.setString(2, employee.getDepartment());
             pstmt.setBigDecimal(3, employee.getBasicSalary());
             pstmt.setInt(4, employee.getId());
+            connection.setAutoCommit(false);
             
             int result = pstmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.append(connection, ChangeLog.EMPLOYEE, ChangeLog.UPDATE, employee.getId(), null);
+            }
+            connection.commit();
+            cache.invalidate(employee.getId());
+            if (result > 0) {
+                searchIndex.put(employee.getId(), employee.getName(), employee.getDepartment(),
+                        Money.toCents(employee.getBasicSalary()));
+            }
+            // Department or salary changes move the summary totals and analytics columns
+            PayrollDAO.getAggregates().invalidate();
+            PayrollDAO.getColumnStore().invalidate();
             return result > 0;
         } catch (SQLException e) {
             System.out.println("Error updating employee: " + e.getMessage());
@@ -93,11 +217,28 @@ public class EmployeeDAO {
 
     // Delete employee
     public boolean deleteEmployee(int id) {
+        // payroll is partitioned by pay period and so has no foreign key to cascade; its rows go in the same transaction
+        String payrollSql = "DELETE FROM payroll WHERE employee_id = ?";
         String sql = "DELETE FROM employee WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement payroll = connection.prepareStatement(payrollSql);
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            payroll.setInt(1, id);
+            payroll.executeUpdate();
             pstmt.setInt(1, id);
             
             int result = pstmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.append(connection, ChangeLog.EMPLOYEE, ChangeLog.DELETE, id, null);
+            }
+            connection.commit();
+            cache.invalidate(id);
+            searchIndex.remove(id);
+            // The employee's payroll rows went with it, which moves the summary totals and analytics columns
+            PayrollDAO.getAggregates().invalidate();
+            PayrollDAO.getColumnStore().invalidate();
+            PayrollDAO.getHistoryCache().invalidate(id);
             return result > 0;
         } catch (SQLException e) {
             System.out.println("Error deleting employee: " + e.getMessage());
@@ -105,31 +246,226 @@ public class EmployeeDAO {
         }
     }
 
-    // Search employees by name or department
-    public List<Employee> searchEmployees(String searchTerm) {
-        List<Employee> employees = new ArrayList<>();
-        String sql = "SELECT * FROM employee WHERE name LIKE ? OR department LIKE ? ORDER BY name";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            String searchPattern = "%" + searchTerm + "%";
-            pstmt.setString(1, searchPattern);
-            pstmt.setString(2, searchPattern);
-            
+    // Import employees from CSV (name, department, basic_salary; an optional header row may reorder them).
+    // Rows are validated as they are read and written in JDBC batches, one transaction per batch, so only the
+    // current batch is ever held in memory. A batch the database refuses is retried row by row so the bad rows
+    // can be reported; a lost connection or a broken upload stops the import, keeping the batches already
+    // committed. Throws IllegalArgumentException (before writing anything) for a header without those columns.
+    public EmployeeImportResult importEmployees(CsvReader csv) {
+        EmployeeImportResult result = new EmployeeImportResult(IMPORT_MAX_ERRORS);
+        long start = System.nanoTime();
+        String sql = "INSERT INTO employee (name, department, basic_salary) VALUES (?, ?, ?)";
+
+        // The batch in flight, kept for the row-by-row retry
+        String[] names = new String[IMPORT_BATCH_SIZE];
+        String[] departments = new String[IMPORT_BATCH_SIZE];
+        long[] salaries = new long[IMPORT_BATCH_SIZE];
+        long[] lines = new long[IMPORT_BATCH_SIZE];
+        int pending = 0;
+
+        try (Connection connection = database.getConnection();
+             PreparedStatement insert = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            int[] columns = null;
+            while (csv.next()) {
+                if (columns == null) {
+                    columns = importColumns(csv);
+                    if (columns != null) continue;
+                    columns = new int[]{0, 1, 2};
+                }
+                result.setRowsRead(result.getRowsRead() + 1);
+
+                String error = csv.getError();
+                String name = csv.get(columns[0]);
+                String department = csv.get(columns[1]);
+                String salaryText = csv.get(columns[2]);
+                long salary = 0;
+                if (error == null) {
+                    if (name == null || department == null || salaryText == null) {
+                        error = "expected name, department and basic_salary";
+                    } else if (name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+                        error = "name must be 1 to " + MAX_NAME_LENGTH + " characters";
+                    } else if (department.isEmpty() || department.length() > MAX_DEPARTMENT_LENGTH) {
+                        error = "department must be 1 to " + MAX_DEPARTMENT_LENGTH + " characters";
+                    } else {
+                        try {
+                            salary = Money.checkColumn(Money.toCents(new BigDecimal(salaryText)));
+                            if (salary < 0) error = "basic_salary must not be negative";
+                        } catch (NumberFormatException e) {
+                            error = "invalid basic_salary '" + salaryText + "'";
+                        } catch (ArithmeticException e) {
+                            error = "basic_salary out of range";
+                        }
+                    }
+                }
+                if (error != null) {
+                    result.reject(csv.getLineNumber(), error);
+                    continue;
+                }
+
+                names[pending] = name;
+                departments[pending] = department;
+                salaries[pending] = salary;
+                lines[pending] = csv.getLineNumber();
+                bindImportRow(insert, name, department, salary);
+                insert.addBatch();
+                if (++pending == IMPORT_BATCH_SIZE) {
+                    flushImportBatch(connection, insert, result, names, departments, salaries, lines, pending);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                flushImportBatch(connection, insert, result, names, departments, salaries, lines, pending);
+            }
+            result.setSuccess(true);
+            result.setMessage("Import completed");
+        } catch (SQLException | IOException e) {
+            System.out.println("Error importing employees: " + e.getMessage());
+            result.setSuccess(false);
+            result.setMessage("Import stopped after " + result.getRowsInserted() + " rows: " + e.getMessage());
+        } finally {
+            if (result.getRowsInserted() > 0) {
+                // One rebuild instead of tracking every row; new ids cannot be in the employee cache
+                PayrollDAO.getAggregates().invalidate();
+                searchIndex.invalidate();
+            }
+            result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        }
+        return result;
+    }
+
+    // Column positions {name, department, basic_salary} from a header row, or null if the row is data
+    private static int[] importColumns(CsvReader csv) {
+        int[] columns = {-1, -1, -1};
+        boolean header = false;
+        for (int i = 0; i < csv.getFieldCount(); i++) {
+            String field = csv.get(i).toLowerCase();
+            if (field.equals("name")) columns[0] = i;
+            else if (field.equals("department")) columns[1] = i;
+            else if (field.equals("basic_salary") || field.equals("salary")) columns[2] = i;
+            else continue;
+            header = true;
+        }
+        if (!header) return null;
+        if (columns[0] < 0 || columns[1] < 0 || columns[2] < 0) {
+            throw new IllegalArgumentException("Header must include name, department and basic_salary columns");
+        }
+        return columns;
+    }
+
+    private static void bindImportRow(PreparedStatement insert, String name, String department, long salary)
+            throws SQLException {
+        insert.setString(1, name);
+        insert.setString(2, department);
+        Money.bind(insert, 3, salary);
+    }
+
+    private void flushImportBatch(Connection connection, PreparedStatement insert, EmployeeImportResult result,
+                                  String[] names, String[] departments, long[] salaries, long[] lines, int rows)
+            throws SQLException {
+        try {
+            insert.executeBatch();
+            // Other nodes rebuild the same way; every commit carries its own marker
+            ChangeLog.append(connection, ChangeLog.EMPLOYEE, ChangeLog.BULK, 0, null);
+            connection.commit();
+            result.setRowsInserted(result.getRowsInserted() + rows);
+        } catch (SQLException e) {
+            connection.rollback();
+            insert.clearBatch();
+            if (isConnectionError(e)) throw e;
+            // Some row broke a constraint: find it by writing the batch one row at a time
+            for (int i = 0; i < rows; i++) {
+                try {
+                    bindImportRow(insert, names[i], departments[i], salaries[i]);
+                    insert.executeUpdate();
+                    ChangeLog.append(connection, ChangeLog.EMPLOYEE, ChangeLog.BULK, 0, null);
+                    connection.commit();
+                    result.setRowsInserted(result.getRowsInserted() + 1);
+                } catch (SQLException rowError) {
+                    connection.rollback();
+                    if (isConnectionError(rowError)) throw rowError;
+                    result.reject(lines[i], "rejected by database: " + rowError.getMessage());
+                }
+            }
+        }
+        result.setBatches(result.getBatches() + 1);
+    }
+
+    // SQLState class 08 is a connection failure; retrying rows on that connection is pointless
+    private static boolean isConnectionError(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    // Search employees by name or department, best matches first (see EmployeeSearchIndex for the ranking)
+    public List<EmployeeSearchIndex.Hit> searchEmployees(String query, int limit) throws SQLException {
+        return searchIndex.search(this, query, limit);
+    }
+
+    // Stream id, name, department and salary into a fresh search index
+    @Override
+    public void loadSearchIndex(EmployeeSearchIndex.Builder target) throws SQLException {
+        String sql = "SELECT id, name, department, basic_salary FROM employee ORDER BY id";
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(DatabaseConnection.getFetchSize());
+
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Employee employee = new Employee();
-                    employee.setId(rs.getInt("id"));
-                    employee.setName(rs.getString("name"));
-                    employee.setDepartment(rs.getString("department"));
-                    employee.setBasicSalary(rs.getBigDecimal("basic_salary"));
-                    employee.setCreatedAt(rs.getTimestamp("created_at"));
-                    employee.setUpdatedAt(rs.getTimestamp("updated_at"));
-                    employees.add(employee);
+                    target.put(rs.getInt("id"), rs.getString("name"), rs.getString("department"),
+                            Money.read(rs, "basic_salary"));
                 }
             }
-        } catch (SQLException e) {
-            System.out.println("Error searching employees: " + e.getMessage());
         }
-        return employees;
     }
-}
\ No newline at end of file
+
+    // Bring this node's copies up to date with employees another node inserted, updated or deleted
+    // (see ChangeLogTailer): changed rows are read again for the search index, deleted ones dropped
+    public void applyRemoteChanges(Set<Integer> changed, Set<Integer> deleted) throws SQLException {
+        for (int id : changed) cache.invalidate(id);
+        for (int id : deleted) {
+            cache.invalidate(id);
+            searchIndex.remove(id);
+            PayrollDAO.getHistoryCache().invalidate(id);
+        }
+        if (!changed.isEmpty() && searchIndex.isLoaded()) {
+            Set<Integer> missing = new HashSet<>(changed);
+            String sql = "SELECT id, name, department, basic_salary FROM employee WHERE id IN ("
+                    + String.join(",", Collections.nCopies(changed.size(), "?")) + ")";
+            try (Connection connection = database.getConnection();
+                 PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                // One-off IN list sizes would only crowd the statement cache
+                pstmt.setPoolable(false);
+                int i = 1;
+                for (int id : changed) pstmt.setInt(i++, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int id = rs.getInt("id");
+                        missing.remove(id);
+                        searchIndex.put(id, rs.getString("name"), rs.getString("department"),
+                                Money.read(rs, "basic_salary"));
+                    }
+                }
+            }
+            // Deleted again since the change was logged
+            for (int id : missing) searchIndex.remove(id);
+        }
+        // Salaries and departments feed the summary totals and analytics columns
+        PayrollDAO.getAggregates().invalidate();
+        PayrollDAO.getColumnStore().invalidate();
+    }
+
+    public static EmployeeCache getCache() {
+        return cache;
+    }
+
+    public static EmployeeSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    private void bindParameters(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+}
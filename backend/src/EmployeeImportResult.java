@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.List;
+
+public class EmployeeImportResult {
+    // One rejected CSV row
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final int maxErrors;
+    private boolean success;
+    private String message;
+    private int rowsRead;
+    private int rowsInserted;
+    private int rowsRejected;
+    private int batches;
+    private long elapsedMillis;
+    private final List<RowError> errors = new ArrayList<>();
+
+    // Only the first maxErrors rejections are kept; the rest are just counted
+    public EmployeeImportResult(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void reject(long line, String message) {
+        rowsRejected++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    // Rows read per second over the whole import
+    public long getRowsPerSecond() {
+        if (elapsedMillis <= 0) return rowsRead;
+        return rowsRead * 1000L / elapsedMillis;
+    }
+
+    public boolean isErrorsTruncated() {
+        return rowsRejected > errors.size();
+    }
+
+    // Getters and Setters
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(int rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public int getRowsInserted() {
+        return rowsInserted;
+    }
+
+    public void setRowsInserted(int rowsInserted) {
+        this.rowsInserted = rowsInserted;
+    }
+
+    public int getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public void setBatches(int batches) {
+        this.batches = batches;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return "EmployeeImportResult{" +
+                "success=" + success +
+                ", message='" + message + '\'' +
+                ", rowsRead=" + rowsRead +
+                ", rowsInserted=" + rowsInserted +
+                ", rowsRejected=" + rowsRejected +
+                ", batches=" + batches +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,464 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over employee name and department for /api/employees/search.
+ *
+ * Every word of both fields is lowercased, padded with two leading spaces and
+ * cut into trigrams ("  jo", " jo", "joh", "ohn" for "john"), each mapping to
+ * an ascending list of document slots. A query term of three or more
+ * characters looks up its own trigrams and matches anywhere in a word, like
+ * the old LIKE '%term%'; one- and two-character terms look up the padded
+ * trigram and match word prefixes, which is what typeahead wants. Candidates
+ * come from intersecting the posting lists (walking the smallest, galloping
+ * forward through the rest) and are checked against the text, so trigram collisions never
+ * show up as results. Every term must match the name or the department.
+ *
+ * Ranking: a term that starts a word in the name scores highest, then a term
+ * inside the name, then a word start in the department, then anything else;
+ * a name starting with the whole query gets a bonus. Ties go to the shorter
+ * name, then the lower id. Only the top `limit` are kept, in a bounded heap.
+ *
+ * Loaded lazily from EmployeeDAO on the first search and then kept in step by
+ * the DAO's add, update and delete. Updates append a new slot and leave a
+ * tombstone; the lists are rebuilt once tombstones outnumber live rows.
+ */
+public class EmployeeSearchIndex {
+    private static final int MIN_COMPACT = 1024;
+
+    // How the DAO fills a fresh index
+    public interface Loader {
+        void loadSearchIndex(Builder target) throws SQLException;
+    }
+
+    // One ranked match
+    public static class Hit {
+        private final int id;
+        private final String name;
+        private final String department;
+        private final long basicSalaryCents;
+        private final int score;
+
+        Hit(int id, String name, String department, long basicSalaryCents, int score) {
+            this.id = id;
+            this.name = name;
+            this.department = department;
+            this.basicSalaryCents = basicSalaryCents;
+            this.score = score;
+        }
+
+        public int getId() { return id; }
+        public String getName() { return name; }
+        public String getDepartment() { return department; }
+        public long getBasicSalaryCents() { return basicSalaryCents; }
+        public int getScore() { return score; }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Builder builder;            // guarded by lock; null while not loaded
+    private boolean loading;
+    private final List<Object[]> pending = new ArrayList<>();   // puts ({id, name, dept, salary}) and removes ({id})
+    private long generation;
+    private final Object loadLock = new Object();
+
+    public void put(int id, String name, String department, long basicSalaryCents) {
+        lock.writeLock().lock();
+        try {
+            if (builder != null) {
+                builder.put(id, name, department, basicSalaryCents);
+            } else if (loading) {
+                pending.add(new Object[]{id, name, department, basicSalaryCents});
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (builder != null) {
+                builder.remove(id);
+            } else if (loading) {
+                pending.add(new Object[]{id});
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drop the index; the next search reloads it
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            generation++;
+            builder = null;
+            pending.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return builder == null ? 0 : builder.live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return builder != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Best `limit` matches for the query, best first
+    public List<Hit> search(Loader loader, String query, int limit) throws SQLException {
+        String normalized = normalize(query);
+        String[] terms = normalized.isEmpty() ? new String[0] : normalized.split(" ");
+        if (terms.length == 0 || limit <= 0) return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            if (builder != null) return builder.search(normalized, terms, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return load(loader).search(normalized, terms, limit);
+    }
+
+    // The database read runs outside the lock so writes are not held up; loadLock only keeps searches from loading twice
+    private Builder load(Loader loader) throws SQLException {
+        synchronized (loadLock) {
+            long startGeneration;
+            lock.writeLock().lock();
+            try {
+                if (builder != null) return builder;
+                startGeneration = generation;
+                loading = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Builder fresh = new Builder();
+            try {
+                loader.loadSearchIndex(fresh);
+            } catch (SQLException | RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    loading = false;
+                    pending.clear();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                loading = false;
+                // Writes that raced the load are replayed in order; put and remove are both idempotent
+                for (Object[] op : pending) {
+                    if (op.length == 1) fresh.remove((Integer) op[0]);
+                    else fresh.put((Integer) op[0], (String) op[1], (String) op[2], (Long) op[3]);
+                }
+                pending.clear();
+                if (startGeneration == generation) {
+                    builder = fresh;
+                }
+                // After an invalidation during the load, answer this search from it but don't keep it
+                return fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Lowercase, with every run of non-alphanumerics collapsed to one space
+    static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ') sb.setLength(end - 1);
+        return sb.toString();
+    }
+
+    private static long trigram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    // True if term starts a word of text (text is normalized: words separated by single spaces)
+    private static boolean startsWord(String text, String term) {
+        int from = 0;
+        while (true) {
+            int at = text.indexOf(term, from);
+            if (at < 0) return false;
+            if (at == 0 || text.charAt(at - 1) == ' ') return true;
+            from = at + 1;
+        }
+    }
+
+    // ---------------------- Storage ----------------------
+
+    // Slots plus trigram posting lists; filled by the loader, then by DAO writes (under the write lock)
+    public static final class Builder {
+        private int slots;
+        private int live;
+        private int[] ids = new int[1024];          // 0 marks a deleted slot (ids start at 1)
+        private String[] names = new String[1024];
+        private String[] departments = new String[1024];
+        private String[] nameText = new String[1024];
+        private String[] departmentText = new String[1024];
+        private long[] salaries = new long[1024];
+        private final HashMap<Integer, Integer> slotOf = new HashMap<>();
+        private final HashMap<Long, Postings> postings = new HashMap<>();
+
+        public void put(int id, String name, String department, long basicSalaryCents) {
+            Integer old = slotOf.get(id);
+            if (old != null) kill(old);
+
+            if (slots == ids.length) grow();
+            int slot = slots++;
+            ids[slot] = id;
+            names[slot] = name;
+            departments[slot] = department;
+            nameText[slot] = normalize(name);
+            departmentText[slot] = normalize(department);
+            salaries[slot] = basicSalaryCents;
+            slotOf.put(id, slot);
+            live++;
+            indexText(nameText[slot], slot);
+            indexText(departmentText[slot], slot);
+            compactIfSparse();
+        }
+
+        public void remove(int id) {
+            Integer slot = slotOf.remove(id);
+            if (slot != null) {
+                kill(slot);
+                compactIfSparse();
+            }
+        }
+
+        private void kill(int slot) {
+            ids[slot] = 0;
+            live--;
+        }
+
+        private void indexText(String text, int slot) {
+            int wordStart = 0;
+            for (int i = 0; i <= text.length(); i++) {
+                if (i < text.length() && text.charAt(i) != ' ') continue;
+                // Word is text[wordStart, i); the two padding spaces give the word-start trigrams
+                char a = ' ';
+                char b = ' ';
+                for (int j = wordStart; j < i; j++) {
+                    char c = text.charAt(j);
+                    postings.computeIfAbsent(trigram(a, b, c), k -> new Postings()).add(slot);
+                    a = b;
+                    b = c;
+                }
+                wordStart = i + 1;
+            }
+        }
+
+        private void grow() {
+            int n = ids.length * 2;
+            ids = Arrays.copyOf(ids, n);
+            names = Arrays.copyOf(names, n);
+            departments = Arrays.copyOf(departments, n);
+            nameText = Arrays.copyOf(nameText, n);
+            departmentText = Arrays.copyOf(departmentText, n);
+            salaries = Arrays.copyOf(salaries, n);
+        }
+
+        // Rebuild without tombstones once they outnumber the live rows
+        private void compactIfSparse() {
+            int dead = slots - live;
+            if (dead < MIN_COMPACT || dead < live) return;
+            Builder fresh = new Builder();
+            for (int slot = 0; slot < slots; slot++) {
+                if (ids[slot] != 0) fresh.put(ids[slot], names[slot], departments[slot], salaries[slot]);
+            }
+            slots = fresh.slots;
+            live = fresh.live;
+            ids = fresh.ids;
+            names = fresh.names;
+            departments = fresh.departments;
+            nameText = fresh.nameText;
+            departmentText = fresh.departmentText;
+            salaries = fresh.salaries;
+            slotOf.clear();
+            slotOf.putAll(fresh.slotOf);
+            postings.clear();
+            postings.putAll(fresh.postings);
+        }
+
+        List<Hit> search(String query, String[] terms, int limit) {
+            // Trigrams every match must contain
+            List<Postings> lists = new ArrayList<>();
+            for (String term : terms) {
+                if (term.length() < 3) {
+                    // "  a" or " ab": the word-start trigram
+                    char b = term.length() == 1 ? ' ' : term.charAt(0);
+                    Postings p = postings.get(trigram(' ', b, term.charAt(term.length() - 1)));
+                    if (p == null) return new ArrayList<>();
+                    lists.add(p);
+                } else {
+                    for (int i = 2; i < term.length(); i++) {
+                        Postings p = postings.get(trigram(term.charAt(i - 2), term.charAt(i - 1), term.charAt(i)));
+                        if (p == null) return new ArrayList<>();
+                        lists.add(p);
+                    }
+                }
+            }
+            lists.sort((x, y) -> Integer.compare(x.size, y.size));
+
+            Postings smallest = lists.get(0);
+            int[] cursors = new int[lists.size()];
+            int[] heapSlots = new int[limit];
+            int[] heapScores = new int[limit];
+            int heapSize = 0;
+            for (int i = 0; i < smallest.size; i++) {
+                int slot = smallest.slots[i];
+                if (ids[slot] == 0 || (i > 0 && smallest.slots[i - 1] == slot)) continue;
+                boolean inAll = true;
+                for (int l = 1; l < lists.size() && inAll; l++) {
+                    Postings p = lists.get(l);
+                    cursors[l] = p.seek(slot, cursors[l]);
+                    inAll = cursors[l] < p.size && p.slots[cursors[l]] == slot;
+                }
+                if (!inAll) continue;
+
+                int score = score(slot, query, terms);
+                if (score <= 0) continue;
+                if (heapSize < limit) {
+                    heapSlots[heapSize] = slot;
+                    heapScores[heapSize] = score;
+                    siftUp(heapSlots, heapScores, heapSize++);
+                } else if (better(slot, score, heapSlots[0], heapScores[0])) {
+                    heapSlots[0] = slot;
+                    heapScores[0] = score;
+                    siftDown(heapSlots, heapScores, heapSize);
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(heapSize);
+            for (int i = 0; i < heapSize; i++) {
+                int slot = heapSlots[i];
+                hits.add(new Hit(ids[slot], names[slot], departments[slot], salaries[slot], heapScores[i]));
+            }
+            hits.sort((x, y) -> x.score != y.score ? Integer.compare(y.score, x.score)
+                    : x.name.length() != y.name.length() ? Integer.compare(x.name.length(), y.name.length())
+                    : Integer.compare(x.id, y.id));
+            return hits;
+        }
+
+        // 0 if some term does not really occur (a trigram false positive)
+        private int score(int slot, String query, String[] terms) {
+            String name = nameText[slot];
+            String department = departmentText[slot];
+            int score = 0;
+            for (String term : terms) {
+                boolean prefixOnly = term.length() < 3;
+                if (startsWord(name, term)) score += 8;
+                else if (!prefixOnly && name.contains(term)) score += 4;
+                else if (startsWord(department, term)) score += 2;
+                else if (!prefixOnly && department.contains(term)) score += 1;
+                else return 0;
+            }
+            if (name.startsWith(query)) score += 16;
+            return score;
+        }
+
+        // Ranking order: higher score, then shorter name, then lower id
+        private boolean better(int slot, int score, int otherSlot, int otherScore) {
+            if (score != otherScore) return score > otherScore;
+            int length = names[slot].length();
+            int otherLength = names[otherSlot].length();
+            if (length != otherLength) return length < otherLength;
+            return ids[slot] < ids[otherSlot];
+        }
+
+        // Min-heap on ranking order: the root is the worst hit kept so far
+        private void siftUp(int[] slotsHeap, int[] scores, int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!better(slotsHeap[parent], scores[parent], slotsHeap[i], scores[i])) break;
+                swap(slotsHeap, scores, i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int[] slotsHeap, int[] scores, int size) {
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) return;
+                int worst = left;
+                int right = left + 1;
+                if (right < size && better(slotsHeap[left], scores[left], slotsHeap[right], scores[right])) worst = right;
+                if (!better(slotsHeap[i], scores[i], slotsHeap[worst], scores[worst])) return;
+                swap(slotsHeap, scores, i, worst);
+                i = worst;
+            }
+        }
+
+        private static void swap(int[] slotsHeap, int[] scores, int i, int j) {
+            int s = slotsHeap[i];
+            slotsHeap[i] = slotsHeap[j];
+            slotsHeap[j] = s;
+            int t = scores[i];
+            scores[i] = scores[j];
+            scores[j] = t;
+        }
+    }
+
+    // Ascending slot list; slots only ever grow, so appends keep it sorted
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size > 0 && slots[size - 1] == slot) return;
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+
+        // First index at or after `from` holding a slot >= target: gallop, then binary search the last step
+        int seek(int target, int from) {
+            if (from >= size || slots[from] >= target) return from;
+            int step = 1;
+            int low = from;
+            int high = from + 1;
+            while (high < size && slots[high] < target) {
+                low = high;
+                step <<= 1;
+                high = low + step;
+            }
+            if (high > size) high = size;
+            int at = Arrays.binarySearch(slots, low + 1, high, target);
+            return at >= 0 ? at : -at - 1;
+        }
+    }
+}
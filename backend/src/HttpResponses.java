@@ -0,0 +1,304 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Shared response writing for the API handlers.
+ *
+ * Bodies smaller than the gzip threshold go out as-is with a fixed length.
+ * Larger bodies are gzipped on the fly when the client accepts it, streaming
+ * through the compressor with chunked transfer encoding rather than compressing
+ * into a second buffer first. Byte counts before and after compression are kept
+ * for the status/metrics endpoints. A HEAD request (which the router serves
+ * with the GET handler) gets the same status and headers with the body
+ * dropped, since the server refuses any body bytes on a HEAD response.
+ *
+ * Files (export downloads) are sent uncompressed with FileChannel.transferTo
+ * and honour a single "Range: bytes=" request, so a broken download of a
+ * large file can resume where it stopped.
+ */
+public final class HttpResponses {
+    // Bodies below this size are never compressed (-Dhttp.gzip.minBytes)
+    private static final int GZIP_MIN_BYTES = Integer.getInteger("http.gzip.minBytes", 1024);
+
+    private static final LongAdder responses = new LongAdder();
+    private static final LongAdder gzippedResponses = new LongAdder();
+    private static final LongAdder uncompressedBytes = new LongAdder();
+    private static final LongAdder sentBytes = new LongAdder();
+
+    private HttpResponses() {}
+
+    public static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        send(exchange, status, contentType, body, body.length);
+    }
+
+    // Send the first length bytes of body (e.g. a reused JsonWriter buffer)
+    public static void send(HttpExchange exchange, int status, String contentType, byte[] body, int length)
+            throws IOException {
+        try (OutputStream out = openStream(exchange, status, contentType, length)) {
+            out.write(body, 0, length);
+        }
+    }
+
+    // Open a response body of unknown length; nothing is sent until the threshold is crossed or the stream is closed
+    public static OutputStream openStream(HttpExchange exchange, int status, String contentType) {
+        return openStream(exchange, status, contentType, -1);
+    }
+
+    private static OutputStream openStream(HttpExchange exchange, int status, String contentType, int knownLength) {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        boolean gzip = acceptsGzip(exchange);
+        if (gzip) {
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        }
+        // A body of known length that will not be compressed is buffered whole so it keeps a fixed Content-Length
+        int bufferSize = knownLength < 0 ? GZIP_MIN_BYTES
+                : gzip ? Math.min(knownLength, GZIP_MIN_BYTES) : knownLength;
+        return new NegotiatingOutputStream(exchange, status, gzip, bufferSize);
+    }
+
+    // Send a file as-is, or the one byte range the request asks for (206); ranges that miss the file get 416.
+    // The ETag (size and modification time) lets If-Range resume only if the file has not changed.
+    public static void sendFile(HttpExchange exchange, Path file, String contentType) throws IOException {
+        long size = Files.size(file);
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(Files.getLastModifiedTime(file).toMillis()) + "\"";
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType);
+        headers.set("Accept-Ranges", "bytes");
+        headers.set("ETag", etag);
+
+        long start = 0;
+        long end = size - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                headers.set("Content-Range", "bytes */" + size);
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                status = 206;
+                headers.set("Content-Range", "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            headers.set("Content-Length", Long.toString(length));
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             OutputStream body = exchange.getResponseBody()) {
+            WritableByteChannel target = Channels.newChannel(body);
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(position, end - position + 1, target);
+                if (sent <= 0) break;
+                position += sent;
+            }
+        }
+        record(length, length, false);
+    }
+
+    // {start, end} (inclusive) for a satisfiable single range, {} to ignore the header
+    // (malformed or multiple ranges: send the whole file), or null when no byte of it is in the file
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) return new long[0];
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return new long[0];
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) return null;
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), size - 1);
+                if (end < start) return start < size ? new long[0] : null;
+            }
+            return start < size ? new long[]{start, end} : null;
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    // Account for a response written outside this class (e.g. precompressed static files)
+    public static void record(long uncompressed, long sent, boolean gzipped) {
+        responses.increment();
+        uncompressedBytes.add(uncompressed);
+        sentBytes.add(sent);
+        if (gzipped) gzippedResponses.increment();
+    }
+
+    // True if the client listed gzip in Accept-Encoding without disabling it with q=0
+    public static boolean acceptsGzip(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (accept == null) return false;
+        for (String part : accept.split(",")) {
+            String[] coding = part.trim().split(";");
+            String name = coding[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                for (int i = 1; i < coding.length; i++) {
+                    String param = coding[i].trim().replace(" ", "");
+                    if (param.matches("q=0(\\.0*)?")) return false;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static long getResponseCount() { return responses.sum(); }
+    public static long getGzippedResponseCount() { return gzippedResponses.sum(); }
+    public static long getUncompressedBytes() { return uncompressedBytes.sum(); }
+    public static long getSentBytes() { return sentBytes.sum(); }
+
+    // ---------------------- NEGOTIATING OUTPUT STREAM ----------------------
+    // Holds the first bytes back until it knows whether the body is big enough to compress
+    private static final class NegotiatingOutputStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final int status;
+        private final boolean head;
+        private final boolean gzipAllowed;
+        private final byte[] pending;
+        private int pendingCount;
+        private OutputStream out;
+        private CountingOutputStream wire;
+        private boolean gzipped;
+        private long rawBytes;
+        private boolean closed;
+
+        NegotiatingOutputStream(HttpExchange exchange, int status, boolean gzipAllowed, int bufferSize) {
+            this.exchange = exchange;
+            this.status = status;
+            this.head = "HEAD".equals(exchange.getRequestMethod());
+            this.gzipAllowed = gzipAllowed;
+            this.pending = new byte[bufferSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            rawBytes += len;
+            if (head) return;
+            if (out == null) {
+                if (pendingCount + len <= pending.length) {
+                    System.arraycopy(b, off, pending, pendingCount, len);
+                    pendingCount += len;
+                    return;
+                }
+                commit();
+            }
+            out.write(b, off, len);
+        }
+
+        // Body is past the threshold: send headers for a chunked (and possibly gzipped) response
+        private void commit() throws IOException {
+            gzipped = gzipAllowed;
+            if (gzipped) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(status, 0);
+            wire = new CountingOutputStream(exchange.getResponseBody());
+            out = gzipped
+                    ? new GZIPOutputStream(wire, 8192)
+                    : new BufferedOutputStream(wire, 8192);
+            out.write(pending, 0, pendingCount);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null) out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            if (head) {
+                // Headers only; a body that GET would send with a fixed length reports that length
+                if (rawBytes <= pending.length) {
+                    exchange.getResponseHeaders().set("Content-Length", Long.toString(rawBytes));
+                }
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+                return;
+            }
+            if (out == null) {
+                // Small body: fixed length, no compression
+                exchange.sendResponseHeaders(status, pendingCount == 0 ? -1 : pendingCount);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(pending, 0, pendingCount);
+                }
+                record(pendingCount, pendingCount, false);
+                return;
+            }
+            out.close();
+            record(rawBytes, wire.count, gzipped);
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private long count;
+
+        CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Minimal JSON encoder for the API models.
+ *
+ * Writes UTF-8 straight into one reusable byte buffer: no format strings, no
+ * intermediate Strings per row and no boxing. With an OutputStream the buffer is
+ * flushed to it whenever it fills; without one it grows and the result is read
+ * with {@link #getBuffer()} / {@link #size()}. Strings are escaped per RFC 8259
+ * and money is written with exactly two decimals, rounded half-up like %.2f.
+ */
+public final class JsonWriter {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private final OutputStream out;
+    private byte[] buf;
+    private int pos;
+
+    // Growable in-memory writer
+    public JsonWriter(int initialCapacity) {
+        this.out = null;
+        this.buf = new byte[Math.max(initialCapacity, 64)];
+    }
+
+    // Writer that flushes to the stream whenever the buffer is full
+    public JsonWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buf = new byte[Math.max(bufferSize, 64)];
+    }
+
+    public JsonWriter writeEmployee(Employee e) throws IOException {
+        raw("{\"id\":");
+        writeLong(e.getId());
+        raw(",\"name\":");
+        writeString(e.getName());
+        raw(",\"department\":");
+        writeString(e.getDepartment());
+        raw(",\"basic_salary\":");
+        writeMoney(e.getBasicSalary());
+        return writeByte('}');
+    }
+
+    public JsonWriter writePayroll(Payroll p) throws IOException {
+        raw("{\"id\":");
+        writeLong(p.getId());
+        raw(",\"employee_id\":");
+        writeLong(p.getEmployeeId());
+        raw(",\"pay_period\":");
+        writeLong(p.getPayPeriod());
+        raw(",\"bonuses\":");
+        writeCents(p.getBonusesCents());
+        raw(",\"deductions\":");
+        writeCents(p.getDeductionsCents());
+        raw(",\"net_salary\":");
+        writeCents(p.getNetSalaryCents());
+        if (p.hasCreatedAt()) {
+            raw(",\"created_at\":");
+            writeTimestamp(p.getCreatedAtMillis());
+        }
+        return writeByte('}');
+    }
+
+    public JsonWriter writeSummary(PayrollSummary s) throws IOException {
+        raw("{\"total_records\":");
+        writeLong(s.getTotalRecords());
+        raw(",\"total_payout\":");
+        writeMoney(s.getTotalPayout());
+        raw(",\"average_salary\":");
+        writeMoney(s.getAverageSalary());
+        raw(",\"employee_count\":");
+        writeLong(s.getEmployeeCount());
+        raw(",\"average_basic_salary\":");
+        writeMoney(s.getAverageBasicSalary());
+        raw(",\"departments\":[");
+        boolean first = true;
+        for (PayrollSummary.Department d : s.getDepartments()) {
+            if (!first) writeByte(',');
+            first = false;
+            raw("{\"department\":");
+            writeString(d.getName());
+            raw(",\"count\":");
+            writeLong(d.getCount());
+            raw(",\"total\":");
+            writeMoney(d.getTotal());
+            raw(",\"min\":");
+            writeMoney(d.getMin());
+            raw(",\"max\":");
+            writeMoney(d.getMax());
+            writeByte('}');
+        }
+        return raw("]}");
+    }
+
+    public JsonWriter writeByte(char c) throws IOException {
+        ensure(1);
+        buf[pos++] = (byte) c;
+        return this;
+    }
+
+    // Append ASCII text that needs no escaping (keys, punctuation, literals)
+    public JsonWriter raw(String ascii) throws IOException {
+        int len = ascii.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            buf[pos++] = (byte) ascii.charAt(i);
+        }
+        return this;
+    }
+
+    public JsonWriter writeLong(long value) throws IOException {
+        ensure(20);
+        if (value == Long.MIN_VALUE) {
+            return raw("-9223372036854775808");
+        }
+        if (value < 0) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+        int start = pos;
+        do {
+            buf[pos++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        reverse(start, pos - 1);
+        return this;
+    }
+
+    // Amount in cents written as a decimal with exactly two fraction digits
+    public JsonWriter writeCents(long cents) throws IOException {
+        ensure(24);
+        if (cents < 0) {
+            buf[pos++] = '-';
+            if (cents == Long.MIN_VALUE) {
+                return raw("92233720368547758.08");
+            }
+            cents = -cents;
+        }
+        writeLong(cents / 100);
+        int fraction = (int) (cents % 100);
+        buf[pos++] = '.';
+        buf[pos++] = (byte) ('0' + fraction / 10);
+        buf[pos++] = (byte) ('0' + fraction % 10);
+        return this;
+    }
+
+    // Same digits as String.format("%.2f", value) in an English locale
+    public JsonWriter writeMoney(BigDecimal value) throws IOException {
+        if (value == null) {
+            return writeNull();
+        }
+        BigDecimal rounded = value.setScale(2, RoundingMode.HALF_UP);
+        BigInteger unscaled = rounded.unscaledValue();
+        if (unscaled.bitLength() < 63) {
+            return writeCents(unscaled.longValue());
+        }
+        return raw(rounded.toPlainString());
+    }
+
+    public JsonWriter writeString(String s) throws IOException {
+        if (s == null) {
+            return writeNull();
+        }
+        int len = s.length();
+        // Worst case is 6 bytes per char (a unicode escape), plus quotes
+        ensure(Math.min(len, 4096) * 6 + 2);
+        buf[pos++] = '"';
+        for (int i = 0; i < len; i++) {
+            if (buf.length - pos < 8) ensure(8);
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buf[pos++] = (byte) c;
+                } else {
+                    writeEscaped(c);
+                }
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: not representable in UTF-8
+                writeEscaped(c);
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        ensure(1);
+        buf[pos++] = '"';
+        return this;
+    }
+
+    // "yyyy-MM-ddTHH:mm:ss" in server local time (what JavaScript's Date parses as local)
+    public JsonWriter writeTimestamp(long epochMillis) throws IOException {
+        LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+        ensure(21);
+        buf[pos++] = '"';
+        digits(t.getYear(), 4);
+        buf[pos++] = '-';
+        digits(t.getMonthValue(), 2);
+        buf[pos++] = '-';
+        digits(t.getDayOfMonth(), 2);
+        buf[pos++] = 'T';
+        digits(t.getHour(), 2);
+        buf[pos++] = ':';
+        digits(t.getMinute(), 2);
+        buf[pos++] = ':';
+        digits(t.getSecond(), 2);
+        buf[pos++] = '"';
+        return this;
+    }
+
+    private void digits(int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos += width;
+    }
+
+    public JsonWriter writeNull() throws IOException {
+        ensure(4);
+        System.arraycopy(NULL, 0, buf, pos, 4);
+        pos += 4;
+        return this;
+    }
+
+    private void writeEscaped(char c) {
+        buf[pos++] = '\\';
+        switch (c) {
+            case '"': buf[pos++] = '"'; return;
+            case '\\': buf[pos++] = '\\'; return;
+            case '\n': buf[pos++] = 'n'; return;
+            case '\r': buf[pos++] = 'r'; return;
+            case '\t': buf[pos++] = 't'; return;
+            case '\b': buf[pos++] = 'b'; return;
+            case '\f': buf[pos++] = 'f'; return;
+            default:
+                buf[pos++] = 'u';
+                buf[pos++] = HEX[(c >> 12) & 0xF];
+                buf[pos++] = HEX[(c >> 8) & 0xF];
+                buf[pos++] = HEX[(c >> 4) & 0xF];
+                buf[pos++] = HEX[c & 0xF];
+        }
+    }
+
+    private void reverse(int from, int to) {
+        while (from < to) {
+            byte tmp = buf[from];
+            buf[from++] = buf[to];
+            buf[to--] = tmp;
+        }
+    }
+
+    // Make room for n more bytes, flushing to the stream or growing the buffer
+    private void ensure(int n) throws IOException {
+        if (buf.length - pos >= n) return;
+        if (out != null) {
+            flushBuffer();
+            if (buf.length >= n) return;
+        }
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+
+    // Push buffered bytes to the stream (no-op for in-memory writers)
+    public void flush() throws IOException {
+        if (out != null) {
+            flushBuffer();
+            out.flush();
+        }
+    }
+
+    public void close() throws IOException {
+        if (out != null) {
+            flushBuffer();
+            out.close();
+        }
+    }
+
+    public byte[] getBuffer() { return buf; }
+    public int size() { return pos; }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, pos);
+    }
+
+    public void reset() {
+        pos = 0;
+    }
+}
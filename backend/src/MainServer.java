@@ -1,16 +1,25 @@
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import java.io.*;
 import java.math.BigDecimal;
 import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
 
 public class MainServer {
-    private static final int PORT = 8080;
+    // -Dserver.port, e.g. for a second node against the same database
+    private static final int PORT = Integer.getInteger("server.port", 8080);
     private static HttpServer server;
+    private static RequestExecutor executor;
 
     public static void main(String[] args) {
         try {
@@ -22,295 +31,1081 @@ public class MainServer {
                 return;
             }
 
+            // DAOs are stateless apart from their shared caches, so one of each serves every request
+            EmployeeDAO employeeDAO = new EmployeeDAO();
+            PayrollDAO payrollDAO = new PayrollDAO();
+            PayPeriodDAO payPeriodDAO = new PayPeriodDAO();
+            AdminDAO adminDAO = new AdminDAO();
+
+            // Follow other nodes' writes from here on, and log ours for them
+            ChangeLogTailer.start();
+            if (ChangeLog.isEnabled() && !Sessions.getInstance().hasSharedKey()) {
+                System.out.println("Warning: -Dsession.secret is not set, so other servers will not accept this one's tokens");
+            }
+
+            // Build the summary totals now so the first dashboard load is served from memory
+            payrollDAO.getPayrollSummary();
+
             server = HttpServer.create(new InetSocketAddress(PORT), 0);
+            server.createContext("/", buildRouter(employeeDAO, payrollDAO, payPeriodDAO, adminDAO));
 
-            // Register routes
-            server.createContext("/", new CORSHandler());
-            server.createContext("/cors", new CORSHandler());
-            server.createContext("/api/login", new LoginHandler());
-            server.createContext("/api/employees", new EmployeeHandler());
-            server.createContext("/api/employee/", new SingleEmployeeHandler());
-            server.createContext("/api/payroll", new PayrollHandler());
-            server.createContext("/api/payroll/calculate", new PayrollCalculateHandler());
-            server.createContext("/frontend", new StaticFileHandler());
-
-            server.setExecutor(null);
+            executor = RequestExecutor.fromSystemProperties();
+            server.setExecutor(executor);
             server.start();
+            // Opens the current pay period, then closes and archives finished ones in the background
+            PayrollArchiver.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(1);
+                executor.shutdown();
+                PayrollArchiver.shutdown();
+                PayrollDAO.shutdownGroupCommit();
+                ChangeLogTailer.shutdown();
+                DatabaseConnection.closeConnection();
+            }));
 
             System.out.println("🚀 Employment Payroll Server started on port " + PORT);
             System.out.println("Frontend: http://localhost:" + PORT + "/frontend/index.html");
             System.out.println("API Base: http://localhost:" + PORT + "/api/");
-        } catch (IOException e) {
+            System.out.println("Executor: " + executor.getMode() + " (max " + executor.getMaxConcurrent()
+                    + " concurrent, " + executor.getMaxQueued() + " queued)");
+        } catch (IOException | SQLException e) {
             System.out.println("Failed to start server: " + e.getMessage());
         }
     }
 
-    // ---------------------- CORS HANDLER ----------------------
-    static class CORSHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            addCORSHeaders(exchange);
-            if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
-                exchange.sendResponseHeaders(204, -1);
+    // Every endpoint in one table; get/post/put/delete routes need a session token, open ones do not
+    static Router buildRouter(EmployeeDAO employeeDAO, PayrollDAO payrollDAO, PayPeriodDAO payPeriodDAO,
+                              AdminDAO adminDAO) {
+        LoginHandler login = new LoginHandler(adminDAO);
+        EmployeeHandler employees = new EmployeeHandler(employeeDAO);
+        PayrollHandler payroll = new PayrollHandler(payrollDAO);
+        PayPeriodHandler periods = new PayPeriodHandler(payPeriodDAO, payrollDAO);
+        AnalyticsHandler analytics = new AnalyticsHandler(payrollDAO);
+        StaticFileHandler files = new StaticFileHandler();
+        Router.Handler cors = (exchange, params) ->
+                HttpResponses.send(exchange, 200, "text/plain", "CORS OK".getBytes(StandardCharsets.UTF_8));
+
+        return new Router()
+                .open("GET", "/", cors)
+                .open("GET", "/cors", cors)
+                .open("POST", "/api/login", login::login)
+                .open("DELETE", "/api/login", login::logout)
+                .get("/api/employees", employees::list)
+                .post("/api/employees", employees::create)
+                .get("/api/employees/search", employees::search)
+                .post("/api/employees/import", employees::importCsv)
+                .get("/api/employee/{id}", employees::get)
+                .put("/api/employee/{id}", employees::update)
+                .delete("/api/employee/{id}", employees::delete)
+                .get("/api/employee/{id}/payroll", payroll::history)
+                .get("/api/payroll", payroll::list)
+                .post("/api/payroll/calculate", payroll::calculate)
+                .post("/api/payroll/run", payroll::run)
+                .get("/api/payroll/summary", payroll::summary)
+                .get("/api/payroll/export", payroll::export)
+                .get("/api/payroll/export/{file}", payroll::download)
+                .get("/api/payroll/periods", periods::list)
+                .post("/api/payroll/periods/{period}/close", periods::close)
+                .post("/api/payroll/periods/{period}/archive", periods::archive)
+                .get("/api/payroll/periods/{period}/records", periods::records)
+                .get("/api/analytics/payout", analytics::payout)
+                .get("/api/analytics/top", analytics::top)
+                // Health check and Prometheus scrape stay open so monitoring does not need a login
+                .open("GET", "/api/status", new StatusHandler())
+                .open("GET", "/api/metrics", new MetricsHandler())
+                .open("GET", "/frontend", files)
+                .open("GET", "/frontend/{file}", files);
+    }
+
+    // ---------------------- LOGIN HANDLER ----------------------
+    static class LoginHandler {
+        private final AdminDAO adminDAO;
+
+        LoginHandler(AdminDAO adminDAO) {
+            this.adminDAO = adminDAO;
+        }
+
+        void login(HttpExchange exchange, Router.Params params) throws IOException {
+            Map<String, String> form = parseFormData(readRequestBody(exchange));
+            String username = form.get("username");
+            String password = form.get("password");
+
+            boolean isAuthenticated = adminDAO.authenticateAdmin(username, password);
+
+            String response = isAuthenticated
+                    ? "{\"success\": true, \"message\": \"Login successful\", \"token\": \""
+                        + Sessions.getInstance().create(username) + "\"}"
+                    : "{\"success\": false, \"message\": \"Invalid credentials\"}";
+
+            HttpResponses.sendJson(exchange, isAuthenticated ? 200 : 401, response);
+        }
+
+        // Logout: the token stops working immediately, on every server
+        void logout(HttpExchange exchange, Router.Params params) throws IOException {
+            boolean revoked;
+            try {
+                revoked = Sessions.getInstance().revoke(Sessions.bearerToken(exchange));
+            } catch (SQLException e) {
+                sendErrorResponse(exchange, "Database error: " + e.getMessage());
                 return;
             }
-            String response = "CORS OK";
-            exchange.sendResponseHeaders(200, response.length());
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(response.getBytes());
+            HttpResponses.sendJson(exchange, 200, "{\"success\": " + revoked + "}");
+        }
+    }
+
+    // ---------------------- EMPLOYEE HANDLER ----------------------
+    // /api/employees (list, create), /api/employees/search?q=&limit=, /api/employees/import (CSV body)
+    // and /api/employee/{id} (get, update, delete)
+    static class EmployeeHandler {
+        private static final int DEFAULT_SEARCH = 10;
+        private static final int MAX_SEARCH = 100;
+        // Bounds on one CSV record, so a malformed upload cannot grow a single row without limit
+        private static final int IMPORT_MAX_FIELDS = 16;
+        private static final int IMPORT_MAX_FIELD_LENGTH = 1000;
+
+        private final EmployeeDAO dao;
+
+        EmployeeHandler(EmployeeDAO dao) {
+            this.dao = dao;
+        }
+
+        void list(HttpExchange exchange, Router.Params params) throws IOException {
+            PageRequest page;
+            try {
+                page = PageRequest.fromParams(parseFormData(exchange.getRequestURI().getRawQuery()), false);
+            } catch (IllegalArgumentException ex) {
+                sendErrorResponse(exchange, "Invalid query: " + ex.getMessage());
+                return;
+            }
+            JsonArrayStream stream = new JsonArrayStream(exchange, page.hasLimit());
+            int nextCursor;
+            try {
+                nextCursor = dao.streamEmployees(page, emp -> stream.next().writeEmployee(emp));
+            } catch (SQLException ex) {
+                stream.fail("Database error: " + ex.getMessage());
+                return;
+            }
+            stream.finish(nextCursor);
+        }
+
+        void create(HttpExchange exchange, Router.Params params) throws IOException {
+            Employee emp = readEmployee(exchange);
+            if (emp == null) return;
+            boolean added = dao.addEmployee(emp);
+            String resp = added ? "{\"success\":true}" : "{\"success\":false}";
+            HttpResponses.sendJson(exchange, added ? 200 : 500, resp);
+        }
+
+        // Bulk create from a CSV body, read as a stream (never buffered whole) and written in batches
+        void importCsv(HttpExchange exchange, Router.Params params) throws IOException {
+            EmployeeImportResult result;
+            try (CsvReader csv = new CsvReader(exchange.getRequestBody(), IMPORT_MAX_FIELDS, IMPORT_MAX_FIELD_LENGTH)) {
+                result = dao.importEmployees(csv);
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(exchange, e.getMessage());
+                return;
+            }
+
+            JsonWriter json = new JsonWriter(512 + result.getErrors().size() * 96);
+            json.raw("{\"success\":").raw(String.valueOf(result.isSuccess()))
+                    .raw(",\"message\":").writeString(result.getMessage())
+                    .raw(",\"rows_read\":").writeLong(result.getRowsRead())
+                    .raw(",\"inserted\":").writeLong(result.getRowsInserted())
+                    .raw(",\"rejected\":").writeLong(result.getRowsRejected())
+                    .raw(",\"batches\":").writeLong(result.getBatches())
+                    .raw(",\"elapsed_ms\":").writeLong(result.getElapsedMillis())
+                    .raw(",\"rows_per_second\":").writeLong(result.getRowsPerSecond())
+                    .raw(",\"errors\":[");
+            List<EmployeeImportResult.RowError> errors = result.getErrors();
+            for (int i = 0; i < errors.size(); i++) {
+                if (i > 0) json.writeByte(',');
+                json.raw("{\"line\":").writeLong(errors.get(i).getLine())
+                        .raw(",\"message\":").writeString(errors.get(i).getMessage())
+                        .writeByte('}');
+            }
+            json.raw("],\"errors_truncated\":").raw(String.valueOf(result.isErrorsTruncated())).writeByte('}');
+            HttpResponses.send(exchange, result.isSuccess() ? 200 : 500, "application/json", json.getBuffer(), json.size());
+        }
+
+        // Ranked name/department matches from the in-memory index; short terms match word prefixes (typeahead)
+        void search(HttpExchange exchange, Router.Params params) throws IOException {
+            Map<String, String> query = parseFormData(exchange.getRequestURI().getRawQuery());
+            String q = query.get("q");
+            int limit = DEFAULT_SEARCH;
+            try {
+                if (query.get("limit") != null) limit = Integer.parseInt(query.get("limit"));
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 1 || limit > MAX_SEARCH) {
+                sendErrorResponse(exchange, "limit must be between 1 and " + MAX_SEARCH);
+                return;
+            }
+
+            long start = System.nanoTime();
+            List<EmployeeSearchIndex.Hit> hits;
+            try {
+                hits = dao.searchEmployees(q, limit);
+            } catch (SQLException e) {
+                sendErrorResponse(exchange, "Database error: " + e.getMessage());
+                return;
+            }
+
+            JsonWriter json = new JsonWriter(256 + hits.size() * 96);
+            json.raw("{\"items\":[");
+            for (int i = 0; i < hits.size(); i++) {
+                EmployeeSearchIndex.Hit h = hits.get(i);
+                if (i > 0) json.writeByte(',');
+                json.raw("{\"id\":").writeLong(h.getId())
+                        .raw(",\"name\":").writeString(h.getName())
+                        .raw(",\"department\":").writeString(h.getDepartment())
+                        .raw(",\"basic_salary\":").writeCents(h.getBasicSalaryCents())
+                        .raw(",\"score\":").writeLong(h.getScore())
+                        .writeByte('}');
+            }
+            json.raw("],\"indexed\":").writeLong(EmployeeDAO.getSearchIndex().size())
+                    .raw(",\"elapsed_us\":").writeLong((System.nanoTime() - start) / 1000)
+                    .writeByte('}');
+            HttpResponses.send(exchange, 200, "application/json", json.getBuffer(), json.size());
+        }
+
+        void get(HttpExchange exchange, Router.Params params) throws IOException {
+            int id = employeeId(exchange, params);
+            if (id < 0) return;
+            Employee e = dao.getEmployeeById(id);
+            if (e != null) {
+                JsonWriter json = new JsonWriter(256).writeEmployee(e);
+                HttpResponses.send(exchange, 200, "application/json", json.getBuffer(), json.size());
+            } else sendErrorResponse(exchange, "Not found");
+        }
+
+        void update(HttpExchange exchange, Router.Params params) throws IOException {
+            int id = employeeId(exchange, params);
+            if (id < 0) return;
+            Employee emp = readEmployee(exchange);
+            if (emp == null) return;
+            emp.setId(id);
+            boolean updated = dao.updateEmployee(emp);
+            String resp = updated
+                    ? "{\"success\":true,\"message\":\"Employee updated\"}"
+                    : "{\"success\":false,\"message\":\"Employee not updated\"}";
+            HttpResponses.sendJson(exchange, updated ? 200 : 500, resp);
+        }
+
+        void delete(HttpExchange exchange, Router.Params params) throws IOException {
+            int id = employeeId(exchange, params);
+            if (id < 0) return;
+            boolean deleted = dao.deleteEmployee(id);
+            String delResp = deleted ? "{\"success\":true}" : "{\"success\":false}";
+            HttpResponses.sendJson(exchange, deleted ? 200 : 500, delResp);
+        }
+
+        // Id from the path, or -1 after answering with an error
+        private static int employeeId(HttpExchange exchange, Router.Params params) throws IOException {
+            try {
+                int id = params.getInt("id");
+                if (id > 0) return id;
+            } catch (NumberFormatException ignored) {
+                // answered below
+            }
+            sendErrorResponse(exchange, "Invalid employee ID");
+            return -1;
+        }
+
+        // Employee from the form body, or null after answering with an error
+        private static Employee readEmployee(HttpExchange exchange) throws IOException {
+            Map<String, String> form = parseFormData(readRequestBody(exchange));
+            String name = form.get("name");
+            String dept = form.get("department");
+            String salaryStr = form.get("basic_salary");
+
+            if (name == null || dept == null || salaryStr == null) {
+                sendErrorResponse(exchange, "Missing fields");
+                return null;
+            }
+            try {
+                return new Employee(name, dept, new BigDecimal(salaryStr));
+            } catch (NumberFormatException e) {
+                sendErrorResponse(exchange, "Invalid basic_salary");
+                return null;
             }
         }
     }
 
-    // ---------------------- LOGIN HANDLER ----------------------
-    static class LoginHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            addCORSHeaders(exchange);
-            if ("OPTIONS".equals(exchange.getRequestMethod())) {
-                exchange.sendResponseHeaders(200, 0);
-                exchange.close();
+    // ---------------------- PAYROLL HANDLER ----------------------
+    // /api/payroll (list), calculate, run, summary, export (streamed, or to a file downloaded with ranges),
+    // and one employee's payroll history
+    static class PayrollHandler {
+        private static final int DEFAULT_HISTORY = 12;
+        private static final int MAX_HISTORY = 1000;
+
+        private final PayrollDAO dao;
+
+        PayrollHandler(PayrollDAO dao) {
+            this.dao = dao;
+        }
+
+        void list(HttpExchange exchange, Router.Params params) throws IOException {
+            PageRequest page;
+            try {
+                page = PageRequest.fromParams(parseFormData(exchange.getRequestURI().getRawQuery()), true);
+            } catch (IllegalArgumentException ex) {
+                sendErrorResponse(exchange, "Invalid query: " + ex.getMessage());
+                return;
+            }
+            JsonArrayStream stream = new JsonArrayStream(exchange, page.hasLimit());
+            int nextCursor;
+            try {
+                nextCursor = dao.streamPayrollRecords(page, p -> stream.next().writePayroll(p));
+            } catch (SQLException ex) {
+                stream.fail("Database error: " + ex.getMessage());
+                return;
+            }
+            stream.finish(nextCursor);
+        }
+
+        // /api/employee/{id}/payroll?limit= : latest records first, usually straight from the history cache
+        void history(HttpExchange exchange, Router.Params params) throws IOException {
+            int id;
+            try {
+                id = params.getInt("id");
+            } catch (NumberFormatException e) {
+                id = -1;
+            }
+            if (id <= 0) {
+                sendErrorResponse(exchange, "Invalid employee ID");
+                return;
+            }
+            Map<String, String> query = parseFormData(exchange.getRequestURI().getRawQuery());
+            int limit = DEFAULT_HISTORY;
+            try {
+                if (query.get("limit") != null) limit = Integer.parseInt(query.get("limit"));
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 1 || limit > MAX_HISTORY) {
+                sendErrorResponse(exchange, "limit must be between 1 and " + MAX_HISTORY);
+                return;
+            }
+
+            List<Payroll> rows;
+            try {
+                rows = dao.getPayrollHistory(id, limit);
+            } catch (SQLException e) {
+                sendErrorResponse(exchange, "Database error: " + e.getMessage());
                 return;
             }
+            JsonWriter json = new JsonWriter(64 + rows.size() * 160);
+            json.raw("{\"employee_id\":").writeLong(id).raw(",\"items\":[");
+            for (int i = 0; i < rows.size(); i++) {
+                if (i > 0) json.writeByte(',');
+                json.writePayroll(rows.get(i));
+            }
+            json.raw("]}");
+            HttpResponses.send(exchange, 200, "application/json", json.getBuffer(), json.size());
+        }
 
-            if ("POST".equals(exchange.getRequestMethod())) {
-                try {
-                    String requestBody = readRequestBody(exchange);
-                    Map<String, String> params = parseFormData(requestBody);
+        void calculate(HttpExchange exchange, Router.Params params) throws IOException {
+            try {
+                Map<String, String> form = parseFormData(readRequestBody(exchange));
 
-                    String username = params.get("username");
-                    String password = params.get("password");
+                int empId = Integer.parseInt(form.get("employee_id"));
+                BigDecimal bonus = new BigDecimal(form.get("bonuses"));
+                BigDecimal ded = new BigDecimal(form.get("deductions"));
 
-                    AdminDAO adminDAO = new AdminDAO();
-                    boolean isAuthenticated = adminDAO.authenticateAdmin(username, password);
+                Payroll payroll = dao.createPayroll(empId, bonus, ded);
 
-                    String response = isAuthenticated
-                            ? "{\"success\": true, \"message\": \"Login successful\"}"
-                            : "{\"success\": false, \"message\": \"Invalid credentials\"}";
+                String response = payroll != null
+                        ? "{\"success\":true,\"id\":" + payroll.getId() + "}" : "{\"success\":false}";
+                HttpResponses.sendJson(exchange, payroll != null ? 200 : 500, response);
+            } catch (Exception e) {
+                sendErrorResponse(exchange, "Error: " + e.getMessage());
+            }
+        }
+
+        void run(HttpExchange exchange, Router.Params params) throws IOException {
+            try {
+                Map<String, String> form = parseFormData(readRequestBody(exchange));
 
-                    exchange.getResponseHeaders().set("Content-Type", "application/json");
-                    exchange.sendResponseHeaders(isAuthenticated ? 200 : 401, response.length());
-                    try (OutputStream os = exchange.getResponseBody()) {
-                        os.write(response.getBytes());
+                List<String> departments = new ArrayList<>();
+                String deptParam = form.get("departments");
+                if (deptParam != null) {
+                    for (String dept : deptParam.split(",")) {
+                        if (!dept.isBlank()) departments.add(dept.trim());
                     }
-                } catch (SQLException e) {
+                }
+                BigDecimal bonus = new BigDecimal(form.getOrDefault("bonuses", "0"));
+                BigDecimal ded = new BigDecimal(form.getOrDefault("deductions", "0"));
+
+                PayrollRunResult result = dao.runPayroll(departments, bonus, ded);
+
+                String response = "{\"success\":" + result.isSuccess()
+                        + ",\"rows\":" + result.getRowsInserted()
+                        + ",\"batches\":" + result.getBatches()
+                        + ",\"elapsed_ms\":" + result.getElapsedMillis()
+                        + ",\"rows_per_second\":" + result.getRowsPerSecond() + "}";
+                HttpResponses.sendJson(exchange, result.isSuccess() ? 200 : 500, response);
+            } catch (Exception e) {
+                sendErrorResponse(exchange, "Error: " + e.getMessage());
+            }
+        }
+
+        // /api/payroll/export?format=csv|ndjson&department=&employee_id=&from=&to=[&mode=file]
+        void export(HttpExchange exchange, Router.Params params) throws IOException {
+            Map<String, String> query = parseFormData(exchange.getRequestURI().getRawQuery());
+            PayrollExporter.Format format;
+            PageRequest filter;
+            try {
+                format = PayrollExporter.Format.fromParam(query.get("format"));
+                filter = PageRequest.fromParams(query, false);
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(exchange, "Invalid query: " + e.getMessage());
+                return;
+            }
+
+            try (PayrollExporter exporter = PayrollExporter.acquire(format)) {
+                if (exporter == null) {
+                    exchange.getResponseHeaders().set("Retry-After", "5");
+                    HttpResponses.sendJson(exchange, 503, "{\"success\":false,\"message\":\"Too many exports running\"}");
+                    return;
+                }
+                if ("file".equals(query.get("mode"))) {
+                    exportToFile(exchange, filter, format, exporter);
+                } else {
+                    exportToResponse(exchange, filter, format, exporter);
+                }
+            }
+        }
+
+        // Rows go straight into the response (chunked, gzipped if accepted); throughput is logged
+        private void exportToResponse(HttpExchange exchange, PageRequest filter, PayrollExporter.Format format,
+                                      PayrollExporter exporter) throws IOException {
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Content-Disposition", "attachment; filename=\"payroll." + format.getExtension() + "\"");
+            OutputStream out = HttpResponses.openStream(exchange, 200, format.getContentType());
+            try {
+                exporter.writeTo(Channels.newChannel(out));
+                dao.exportPayroll(filter, exporter);
+                exporter.finish();
+                out.close();
+            } catch (SQLException e) {
+                if (exporter.getBytesWritten() == 0) {
+                    headers.remove("Content-Disposition");
                     sendErrorResponse(exchange, "Database error: " + e.getMessage());
+                } else {
+                    // Rows are already on the wire: cut the response short so the client sees it incomplete
+                    System.out.println("Payroll export failed after " + exporter.getRows() + " rows: " + e.getMessage());
+                    exchange.close();
                 }
-            } else {
-                sendErrorResponse(exchange, "Method not allowed");
+                return;
             }
+            System.out.println("Payroll export (" + format.getExtension() + "): " + exporter.getRows() + " rows, "
+                    + exporter.getBytesWritten() + " bytes in " + exporter.getElapsedMillis() + " ms ("
+                    + exporter.getRowsPerSecond() + " rows/s)");
+        }
+
+        // Rows go to a file through a FileChannel; the answer says where to download it and how fast it was written
+        private void exportToFile(HttpExchange exchange, PageRequest filter, PayrollExporter.Format format,
+                                  PayrollExporter exporter) throws IOException {
+            Path directory = PayrollExporter.prepareDirectory();
+            String name = PayrollExporter.newFileName(format);
+            // Written under a temporary name, so a download never sees half a file
+            Path part = directory.resolve(name + ".part");
+            try {
+                try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    exporter.writeTo(channel);
+                    dao.exportPayroll(filter, exporter);
+                    exporter.finish();
+                    channel.force(false);
+                }
+                Files.move(part, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            } catch (SQLException | IOException e) {
+                Files.deleteIfExists(part);
+                HttpResponses.sendJson(exchange, 500, "{\"success\":false,\"message\":\"Export failed\"}");
+                System.out.println("Payroll export to file failed: " + e.getMessage());
+                return;
+            }
+
+            JsonWriter json = new JsonWriter(256);
+            json.raw("{\"success\":true,\"file\":").writeString(name)
+                    .raw(",\"download\":").writeString("/api/payroll/export/" + name)
+                    .raw(",\"rows\":").writeLong(exporter.getRows())
+                    .raw(",\"bytes\":").writeLong(exporter.getBytesWritten())
+                    .raw(",\"elapsed_ms\":").writeLong(exporter.getElapsedMillis())
+                    .raw(",\"rows_per_second\":").writeLong(exporter.getRowsPerSecond())
+                    .raw(",\"bytes_per_second\":").writeLong(exporter.getBytesPerSecond())
+                    .writeByte('}');
+            HttpResponses.send(exchange, 200, "application/json", json.getBuffer(), json.size());
+        }
+
+        // A finished export file; supports Range (and If-Range) so large downloads can resume
+        void download(HttpExchange exchange, Router.Params params) throws IOException {
+            Path file = PayrollExporter.resolveFile(params.get("file"));
+            if (file == null) {
+                HttpResponses.sendJson(exchange, 404, "{\"success\":false,\"message\":\"Export not found\"}");
+                return;
+            }
+            String name = file.getFileName().toString();
+            PayrollExporter.Format format = name.endsWith(".csv") ? PayrollExporter.Format.CSV : PayrollExporter.Format.NDJSON;
+            exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + name + "\"");
+            HttpResponses.sendFile(exchange, file, format.getContentType());
+        }
+
+        void summary(HttpExchange exchange, Router.Params params) throws IOException {
+            PayrollSummary summary = dao.getPayrollSummary();
+            if (summary == null) {
+                HttpResponses.sendJson(exchange, 500, "{\"success\":false,\"message\":\"Failed to load payroll summary\"}");
+                return;
+            }
+            JsonWriter json = new JsonWriter(512).writeSummary(summary);
+            HttpResponses.send(exchange, 200, "application/json", json.getBuffer(), json.size());
         }
     }
 
-    // ---------------------- EMPLOYEE HANDLER ----------------------
-    static class EmployeeHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            addCORSHeaders(exchange);
-            if ("OPTIONS".equals(exchange.getRequestMethod())) {
-                exchange.sendResponseHeaders(200, 0);
-                exchange.close();
+    // ---------------------- PAY PERIOD HANDLER ----------------------
+    // Pay periods and their lifecycle: OPEN -> CLOSED (no new payroll) -> ARCHIVING (claimed by one server's archiver)
+    // -> ARCHIVED (rows moved to a gzip file)
+    static class PayPeriodHandler {
+        private final PayPeriodDAO dao;
+        private final PayrollDAO payrollDAO;
+
+        PayPeriodHandler(PayPeriodDAO dao, PayrollDAO payrollDAO) {
+            this.dao = dao;
+            this.payrollDAO = payrollDAO;
+        }
+
+        void list(HttpExchange exchange, Router.Params params) throws IOException {
+            List<PayPeriod> periods;
+            try {
+                periods = dao.getPeriods();
+            } catch (SQLException e) {
+                sendErrorResponse(exchange, "Database error: " + e.getMessage());
                 return;
             }
+            JsonWriter json = new JsonWriter(256 + periods.size() * 192);
+            json.writeByte('[');
+            for (int i = 0; i < periods.size(); i++) {
+                PayPeriod p = periods.get(i);
+                if (i > 0) json.writeByte(',');
+                json.raw("{\"period\":").writeString(PayPeriod.format(p.getId()))
+                        .raw(",\"start_date\":").writeString(p.getStartDate().toString())
+                        .raw(",\"end_date\":").writeString(p.getEndDate().toString())
+                        .raw(",\"status\":").writeString(p.getStatus())
+                        .raw(",\"row_count\":").writeLong(p.getRowCount())
+                        .raw(",\"total_net\":");
+                if (p.getTotalNet() != null) json.writeMoney(p.getTotalNet()); else json.writeNull();
+                json.raw(",\"archive_file\":");
+                if (p.getArchiveFile() != null) json.writeString(p.getArchiveFile()); else json.writeNull();
+                json.writeByte('}');
+            }
+            json.writeByte(']');
+            HttpResponses.send(exchange, 200, "application/json", json.getBuffer(), json.size());
+        }
 
+        void close(HttpExchange exchange, Router.Params params) throws IOException {
             try {
-                EmployeeDAO dao = new EmployeeDAO();
-                String method = exchange.getRequestMethod();
-
-                switch (method) {
-                    case "GET":
-                        List<Employee> employees = dao.getAllEmployees();
-                        String json = convertEmployeesToJSON(employees);
-                        exchange.getResponseHeaders().set("Content-Type", "application/json");
-                        exchange.sendResponseHeaders(200, json.length());
-                        try (OutputStream os = exchange.getResponseBody()) {
-                            os.write(json.getBytes());
-                        }
-                        break;
-
-                    case "POST":
-                        String body = readRequestBody(exchange);
-                        Map<String, String> params = parseFormData(body);
-                        String name = params.get("name");
-                        String dept = params.get("department");
-                        String salaryStr = params.get("basic_salary");
-
-                        if (name == null || dept == null || salaryStr == null) {
-                            sendErrorResponse(exchange, "Missing fields");
-                            return;
-                        }
-
-                        BigDecimal salary = new BigDecimal(salaryStr);
-                        Employee emp = new Employee(name, dept, salary);
-                        boolean added = dao.addEmployee(emp);
-                        String resp = added ? "{\"success\":true}" : "{\"success\":false}";
-                        exchange.getResponseHeaders().set("Content-Type", "application/json");
-                        exchange.sendResponseHeaders(added ? 200 : 500, resp.length());
-                        try (OutputStream os = exchange.getResponseBody()) {
-                            os.write(resp.getBytes());
-                        }
-                        break;
-
-                    default:
-                        sendErrorResponse(exchange, "Method not allowed");
-                }
+                int period = PayPeriod.parse(params.get("period"));
+                boolean closed = PayrollArchiver.close(period);
+                HttpResponses.sendJson(exchange, closed ? 200 : 409, closed
+                        ? "{\"success\":true}"
+                        : "{\"success\":false,\"message\":\"Pay period is not open\"}");
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(exchange, "Invalid pay period: " + e.getMessage());
             } catch (SQLException e) {
                 sendErrorResponse(exchange, "Database error: " + e.getMessage());
             }
         }
-    }
 
-    // ---------------------- SINGLE EMPLOYEE HANDLER ----------------------
-    static class SingleEmployeeHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            addCORSHeaders(exchange);
-            if ("OPTIONS".equals(exchange.getRequestMethod())) {
-                exchange.sendResponseHeaders(200, 0);
-                exchange.close();
+        void archive(HttpExchange exchange, Router.Params params) throws IOException {
+            int period;
+            try {
+                period = PayPeriod.parse(params.get("period"));
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(exchange, "Invalid pay period: " + e.getMessage());
                 return;
             }
+            try {
+                long start = System.nanoTime();
+                long rows = PayrollArchiver.archive(period);
+                HttpResponses.sendJson(exchange, 200, "{\"success\":true,\"rows\":" + rows
+                        + ",\"elapsed_ms\":" + (System.nanoTime() - start) / 1_000_000 + "}");
+            } catch (IllegalStateException e) {
+                JsonWriter json = new JsonWriter(128);
+                json.raw("{\"success\":false,\"message\":").writeString(e.getMessage()).writeByte('}');
+                HttpResponses.send(exchange, 409, "application/json", json.getBuffer(), json.size());
+            } catch (SQLException | IOException e) {
+                System.out.println("Archiving pay period " + PayPeriod.format(period) + " failed: " + e.getMessage());
+                HttpResponses.sendJson(exchange, 500, "{\"success\":false,\"message\":\"Archive failed\"}");
+            }
+        }
 
+        // /api/payroll/periods/{period}/records[?employee_id=] as NDJSON: live periods from the payroll table,
+        // archived ones from their archive file (sent still gzipped when the client takes gzip and wants it all)
+        void records(HttpExchange exchange, Router.Params params) throws IOException {
+            Map<String, String> query = parseFormData(exchange.getRequestURI().getRawQuery());
+            PayPeriod period;
+            int employeeId;
             try {
-                String[] parts = exchange.getRequestURI().getPath().split("/");
-                if (parts.length < 4) {
-                    sendErrorResponse(exchange, "Invalid employee ID");
-                    return;
+                employeeId = query.get("employee_id") != null ? Integer.parseInt(query.get("employee_id")) : 0;
+                period = dao.getPeriod(PayPeriod.parse(params.get("period")));
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(exchange, "Invalid query: " + e.getMessage());
+                return;
+            } catch (SQLException e) {
+                sendErrorResponse(exchange, "Database error: " + e.getMessage());
+                return;
+            }
+            if (period == null) {
+                HttpResponses.sendJson(exchange, 404, "{\"success\":false,\"message\":\"Pay period not found\"}");
+                return;
+            }
+            String contentType = PayrollExporter.Format.NDJSON.getContentType();
+
+            if (!PayPeriod.ARCHIVED.equals(period.getStatus())) {
+                PageRequest filter = new PageRequest();
+                filter.setPayPeriod(period.getId());
+                filter.setEmployeeId(employeeId);
+                try (PayrollExporter exporter = PayrollExporter.acquire(PayrollExporter.Format.NDJSON)) {
+                    if (exporter == null) {
+                        exchange.getResponseHeaders().set("Retry-After", "5");
+                        HttpResponses.sendJson(exchange, 503, "{\"success\":false,\"message\":\"Too many exports running\"}");
+                        return;
+                    }
+                    OutputStream out = HttpResponses.openStream(exchange, 200, contentType);
+                    try {
+                        exporter.writeTo(Channels.newChannel(out));
+                        payrollDAO.exportPayroll(filter, exporter);
+                        exporter.finish();
+                        out.close();
+                    } catch (SQLException e) {
+                        System.out.println("Pay period records failed after " + exporter.getRows() + " rows: " + e.getMessage());
+                        exchange.close();
+                    }
                 }
+                return;
+            }
 
-                int id = Integer.parseInt(parts[3]);
-                EmployeeDAO dao = new EmployeeDAO();
-
-                switch (exchange.getRequestMethod()) {
-                    case "GET":
-                        Employee e = dao.getEmployeeById(id);
-                        if (e != null) {
-                            String json = convertEmployeeToJSON(e);
-                            exchange.getResponseHeaders().set("Content-Type", "application/json");
-                            exchange.sendResponseHeaders(200, json.length());
-                            try (OutputStream os = exchange.getResponseBody()) {
-                                os.write(json.getBytes());
-                            }
-                        } else sendErrorResponse(exchange, "Not found");
-                        break;
-
-                    case "DELETE":
-                        boolean deleted = dao.deleteEmployee(id);
-                        String delResp = deleted ? "{\"success\":true}" : "{\"success\":false}";
-                        exchange.getResponseHeaders().set("Content-Type", "application/json");
-                        exchange.sendResponseHeaders(deleted ? 200 : 500, delResp.length());
-                        try (OutputStream os = exchange.getResponseBody()) {
-                            os.write(delResp.getBytes());
-                        }
-                        break;
-
-                    default:
-                        sendErrorResponse(exchange, "Method not allowed");
+            Path file = PayrollArchiver.archiveFile(period);
+            if (file == null) {
+                HttpResponses.sendJson(exchange, 410, "{\"success\":false,\"message\":\"Archive file is missing\"}");
+                return;
+            }
+            if (employeeId == 0 && HttpResponses.acceptsGzip(exchange)) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+                HttpResponses.sendFile(exchange, file, contentType);
+                return;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                         new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8));
+                 Writer out = new BufferedWriter(new OutputStreamWriter(
+                         HttpResponses.openStream(exchange, 200, contentType), StandardCharsets.UTF_8), 64 * 1024)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (employeeId == 0 || PayrollExporter.employeeIdOf(line) == employeeId) {
+                        out.write(line);
+                        out.write('\n');
+                    }
                 }
-            } catch (Exception ex) {
-                sendErrorResponse(exchange, "Error: " + ex.getMessage());
             }
         }
     }
 
-    // ---------------------- PAYROLL HANDLER ----------------------
-    static class PayrollHandler implements HttpHandler {
+    // ---------------------- STATUS HANDLER ----------------------
+    static class StatusHandler implements Router.Handler {
         @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            addCORSHeaders(exchange);
-            if ("OPTIONS".equals(exchange.getRequestMethod())) {
-                exchange.sendResponseHeaders(200, 0);
-                exchange.close();
-                return;
+        public void handle(HttpExchange exchange, Router.Params params) throws IOException {
+            try {
+                DatabaseConnection database = DatabaseConnection.getInstance();
+                ConnectionPool pool = database.getPool();
+                StringBuilder replicas = new StringBuilder();
+                for (DatabaseConnection.Replica replica : database.getReplicas()) {
+                    ConnectionPool replicaPool = replica.getPool();
+                    replicas.append(replicas.length() == 0 ? "{" : ",{")
+                            .append("\"name\":\"").append(replicaPool.getName()).append("\",")
+                            .append("\"available\":").append(replica.isAvailable()).append(',')
+                            .append("\"lag_ms\":").append(replica.getLagMillis()).append(',')
+                            .append("\"reads\":").append(replica.getReads()).append(',')
+                            .append("\"total\":").append(replicaPool.getTotalConnections()).append(',')
+                            .append("\"active\":").append(replicaPool.getActiveConnections()).append(',')
+                            .append("\"timeouts\":").append(replicaPool.getTimeoutCount()).append('}');
+                }
+                EmployeeCache cache = EmployeeDAO.getCache();
+                PayrollHistoryCache history = PayrollDAO.getHistoryCache();
+                String json = "{\"executor\":{"
+                        + "\"mode\":\"" + executor.getMode() + "\","
+                        + "\"active\":" + executor.getActiveCount() + ","
+                        + "\"queued\":" + executor.getQueuedCount() + ","
+                        + "\"completed\":" + executor.getCompletedCount() + ","
+                        + "\"rejected\":" + executor.getRejectedCount() + ","
+                        + "\"max_concurrent\":" + executor.getMaxConcurrent() + ","
+                        + "\"max_queued\":" + executor.getMaxQueued() + "},"
+                        + "\"pool\":{"
+                        + "\"total\":" + pool.getTotalConnections() + ","
+                        + "\"idle\":" + pool.getIdleConnections() + ","
+                        + "\"active\":" + pool.getActiveConnections() + ","
+                        + "\"waiting\":" + pool.getWaitingThreads() + ","
+                        + "\"timeouts\":" + pool.getTimeoutCount() + ","
+                        + "\"leaks\":" + pool.getLeakCount() + ","
+                        + "\"statement_cache\":{"
+                        + "\"max_per_connection\":" + pool.getStatementCacheSize() + ","
+                        + "\"hits\":" + pool.getStatementCacheHits() + ","
+                        + "\"misses\":" + pool.getStatementCacheMisses() + ","
+                        + "\"evictions\":" + pool.getStatementCacheEvictions() + ","
+                        + "\"hit_rate\":" + pool.getStatementCacheHitRate() + "}},"
+                        + "\"read_routing\":{"
+                        + "\"replica_reads\":" + database.getReplicaReads() + ","
+                        + "\"primary_reads_pinned\":" + database.getPrimaryReadsPinned() + ","
+                        + "\"primary_reads_fallback\":" + database.getPrimaryReadsFallback() + ","
+                        + "\"replica_failures\":" + database.getReplicaFailures() + ","
+                        + "\"replicas\":[" + replicas + "]},"
+                        + "\"employee_cache\":{"
+                        + "\"size\":" + cache.size() + ","
+                        + "\"max_size\":" + cache.getMaxSize() + ","
+                        + "\"hits\":" + cache.getHitCount() + ","
+                        + "\"misses\":" + cache.getMissCount() + ","
+                        + "\"evictions\":" + cache.getEvictionCount() + "},"
+                        + "\"analytics\":{"
+                        + "\"loaded\":" + PayrollDAO.getColumnStore().isLoaded() + ","
+                        + "\"rows\":" + PayrollDAO.getColumnStore().size() + "},"
+                        + "\"search_index\":{"
+                        + "\"loaded\":" + EmployeeDAO.getSearchIndex().isLoaded() + ","
+                        + "\"employees\":" + EmployeeDAO.getSearchIndex().size() + "},"
+                        + "\"payroll_history_cache\":{"
+                        + "\"employees\":" + history.size() + ","
+                        + "\"max_employees\":" + history.getMaxEmployees() + ","
+                        + "\"depth\":" + history.getDepth() + ","
+                        + "\"hits\":" + history.getHitCount() + ","
+                        + "\"misses\":" + history.getMissCount() + ","
+                        + "\"evictions\":" + history.getEvictionCount() + "},"
+                        + "\"archiver\":{"
+                        + "\"runs\":" + PayrollArchiver.getRuns() + ","
+                        + "\"failures\":" + PayrollArchiver.getFailures() + ","
+                        + "\"periods_closed\":" + PayrollArchiver.getPeriodsClosed() + ","
+                        + "\"periods_archived\":" + PayrollArchiver.getPeriodsArchived() + ","
+                        + "\"rows_archived\":" + PayrollArchiver.getRowsArchived() + ","
+                        + "\"pmax_rows\":" + PayrollArchiver.getUnpartitionedRows() + ","
+                        + "\"orphan_rows\":" + PayrollArchiver.getOrphanRows() + "},"
+                        + "\"change_log\":{"
+                        + "\"enabled\":" + ChangeLog.isEnabled() + ","
+                        + "\"node_id\":\"" + ChangeLog.getNodeId() + "\","
+                        + "\"appended\":" + ChangeLog.getAppendedCount() + ","
+                        + "\"last_id\":" + ChangeLogTailer.getLastId() + ","
+                        + "\"polls\":" + ChangeLogTailer.getPolls() + ","
+                        + "\"applied\":" + ChangeLogTailer.getApplied() + ","
+                        + "\"skipped_own\":" + ChangeLogTailer.getSkipped() + ","
+                        + "\"resyncs\":" + ChangeLogTailer.getResyncs() + ","
+                        + "\"failures\":" + ChangeLogTailer.getFailures() + ","
+                        + "\"lag_ms\":" + ChangeLogTailer.getLagMillis() + "},"
+                        + "\"responses\":{"
+                        + "\"count\":" + HttpResponses.getResponseCount() + ","
+                        + "\"gzipped\":" + HttpResponses.getGzippedResponseCount() + ","
+                        + "\"uncompressed_bytes\":" + HttpResponses.getUncompressedBytes() + ","
+                        + "\"sent_bytes\":" + HttpResponses.getSentBytes() + "}}";
+                HttpResponses.sendJson(exchange, 200, json);
+            } catch (SQLException e) {
+                sendErrorResponse(exchange, "Database error: " + e.getMessage());
             }
+        }
+    }
+
+    // ---------------------- METRICS HANDLER ----------------------
+    // Prometheus text exposition of the per-route metrics plus executor, pool, cache and response gauges
+    static class MetricsHandler implements Router.Handler {
+        @Override
+        public void handle(HttpExchange exchange, Router.Params params) throws IOException {
+            StringBuilder out = new StringBuilder(8192);
+            Metrics.writePrometheus(out);
+
+            Metrics.gauge(out, "swiftpay_executor_active", "Requests running on the executor.", executor.getActiveCount());
+            Metrics.gauge(out, "swiftpay_executor_queued", "Requests waiting for an executor slot.", executor.getQueuedCount());
+            Metrics.counter(out, "swiftpay_executor_completed_total", "Requests completed by the executor.", executor.getCompletedCount());
+            Metrics.counter(out, "swiftpay_executor_rejected_total", "Requests rejected because the queue was full.", executor.getRejectedCount());
 
             try {
-                PayrollDAO dao = new PayrollDAO();
-                if ("GET".equals(exchange.getRequestMethod())) {
-                    List<Payroll> list = dao.getAllPayrollRecords();
-                    String json = convertPayrollsToJSON(list);
-                    exchange.getResponseHeaders().set("Content-Type", "application/json");
-                    exchange.sendResponseHeaders(200, json.length());
-                    try (OutputStream os = exchange.getResponseBody()) {
-                        os.write(json.getBytes());
-                    }
-                } else {
-                    sendErrorResponse(exchange, "Method not allowed");
+                ConnectionPool pool = DatabaseConnection.getInstance().getPool();
+                Metrics.gauge(out, "swiftpay_db_pool_connections", "Open pooled connections.", pool.getTotalConnections());
+                Metrics.gauge(out, "swiftpay_db_pool_idle", "Idle pooled connections.", pool.getIdleConnections());
+                Metrics.gauge(out, "swiftpay_db_pool_active", "Borrowed pooled connections.", pool.getActiveConnections());
+                Metrics.gauge(out, "swiftpay_db_pool_waiting", "Threads waiting for a connection.", pool.getWaitingThreads());
+                Metrics.counter(out, "swiftpay_db_pool_borrows_total", "Connections borrowed.", pool.getBorrowCount());
+                Metrics.counter(out, "swiftpay_db_pool_timeouts_total", "Borrows that timed out.", pool.getTimeoutCount());
+                Metrics.counter(out, "swiftpay_db_pool_leaks_total", "Connections held past the leak threshold.", pool.getLeakCount());
+                Metrics.counter(out, "swiftpay_db_statement_cache_hits_total", "prepareStatement calls served from the statement cache.", pool.getStatementCacheHits());
+                Metrics.counter(out, "swiftpay_db_statement_cache_misses_total", "prepareStatement calls that prepared a new statement.", pool.getStatementCacheMisses());
+                Metrics.counter(out, "swiftpay_db_statement_cache_evictions_total", "Cached statements closed to stay within the LRU bound.", pool.getStatementCacheEvictions());
+                Metrics.gauge(out, "swiftpay_db_statement_cache_hit_ratio", "Statement cache hits over all prepareStatement calls.", pool.getStatementCacheHitRate());
+
+                DatabaseConnection database = DatabaseConnection.getInstance();
+                Metrics.counter(out, "swiftpay_db_replica_reads_total", "Read-only queries sent to a replica.", database.getReplicaReads());
+                Metrics.counter(out, "swiftpay_db_primary_reads_pinned_total", "Read-only queries kept on the primary for read-your-writes or by request.", database.getPrimaryReadsPinned());
+                Metrics.counter(out, "swiftpay_db_primary_reads_fallback_total", "Read-only queries sent to the primary because no replica was available.", database.getPrimaryReadsFallback());
+                Metrics.counter(out, "swiftpay_db_replica_failures_total", "Failed replica borrows or lag checks.", database.getReplicaFailures());
+                Map<String, Long> replicaLag = new LinkedHashMap<>();
+                Map<String, Long> replicaReads = new LinkedHashMap<>();
+                Map<String, Integer> replicaAvailable = new LinkedHashMap<>();
+                for (DatabaseConnection.Replica replica : database.getReplicas()) {
+                    String name = replica.getPool().getName();
+                    replicaLag.put(name, replica.getLagMillis());
+                    replicaReads.put(name, replica.getReads());
+                    replicaAvailable.put(name, replica.isAvailable() ? 1 : 0);
                 }
+                Metrics.gauge(out, "swiftpay_db_replica_lag_ms", "Replica lag at the last check (-1 unknown or unreachable).", "replica", replicaLag);
+                Metrics.gauge(out, "swiftpay_db_replica_available", "1 while the replica is taking reads.", "replica", replicaAvailable);
+                Metrics.counter(out, "swiftpay_db_replica_reads_by_replica_total", "Read-only queries sent to each replica.", "replica", replicaReads);
+            } catch (SQLException e) {
+                System.out.println("Metrics: connection pool unavailable: " + e.getMessage());
+            }
+
+            EmployeeCache cache = EmployeeDAO.getCache();
+            Metrics.gauge(out, "swiftpay_employee_cache_size", "Employees in the cache.", cache.size());
+            Metrics.counter(out, "swiftpay_employee_cache_hits_total", "Employee cache hits.", cache.getHitCount());
+            Metrics.counter(out, "swiftpay_employee_cache_misses_total", "Employee cache misses.", cache.getMissCount());
+            Metrics.counter(out, "swiftpay_employee_cache_evictions_total", "Employee cache evictions.", cache.getEvictionCount());
+
+            PayrollHistoryCache history = PayrollDAO.getHistoryCache();
+            Metrics.gauge(out, "swiftpay_payroll_history_cache_employees", "Employees with cached payroll history.", history.size());
+            Metrics.counter(out, "swiftpay_payroll_history_cache_hits_total", "Payroll history requests served from the cache.", history.getHitCount());
+            Metrics.counter(out, "swiftpay_payroll_history_cache_misses_total", "Payroll history requests that read the database.", history.getMissCount());
+            Metrics.counter(out, "swiftpay_payroll_history_cache_evictions_total", "Payroll histories evicted or expired.", history.getEvictionCount());
+
+            Metrics.counter(out, "swiftpay_responses_total", "Responses written through HttpResponses.", HttpResponses.getResponseCount());
+            Metrics.counter(out, "swiftpay_responses_gzipped_total", "Responses sent gzip-encoded.", HttpResponses.getGzippedResponseCount());
+            Metrics.counter(out, "swiftpay_response_uncompressed_bytes_total", "Response body bytes before compression.", HttpResponses.getUncompressedBytes());
+            Metrics.counter(out, "swiftpay_response_sent_bytes_total", "Response body bytes sent.", HttpResponses.getSentBytes());
+
+            PayrollGroupCommitter committer = PayrollDAO.getGroupCommitter();
+            if (committer != null) {
+                Metrics.counter(out, "swiftpay_group_commit_batches_total", "Payroll insert batches committed.", committer.getBatchCount());
+                Metrics.counter(out, "swiftpay_group_commit_rows_total", "Payroll rows written by group commit.", committer.getRowCount());
+                Metrics.counter(out, "swiftpay_group_commit_fallbacks_total", "Batches retried row by row after a failure.", committer.getFallbackCount());
+                Metrics.gauge(out, "swiftpay_group_commit_queued", "Payroll rows waiting for the next batch.", committer.getQueued());
+            }
+
+            Sessions sessions = Sessions.getInstance();
+            Metrics.gauge(out, "swiftpay_sessions_revoked", "Logged-out sessions whose tokens have not expired yet.", sessions.getRevokedCount());
+            Metrics.counter(out, "swiftpay_sessions_issued_total", "Session tokens issued at login.", sessions.getIssuedCount());
+            Metrics.counter(out, "swiftpay_sessions_rejected_total", "Requests rejected for a missing or invalid token.", sessions.getRejectedCount());
+            Metrics.gauge(out, "swiftpay_password_verify_cached", "Password verifications remembered.", PasswordHasher.getCachedCount());
+
+            Metrics.gauge(out, "swiftpay_analytics_rows", "Payroll rows in the analytics column store.", PayrollDAO.getColumnStore().size());
+            Metrics.counter(out, "swiftpay_export_total", "Payroll exports finished or aborted.", PayrollExporter.getExportCount());
+            Metrics.counter(out, "swiftpay_export_rejected_total", "Payroll exports refused because export.maxConcurrent were running.", PayrollExporter.getRejectedCount());
+            Metrics.counter(out, "swiftpay_export_rows_total", "Payroll rows written by exports.", PayrollExporter.getExportedRows());
+            Metrics.counter(out, "swiftpay_export_bytes_total", "Bytes written by exports (before response compression).", PayrollExporter.getExportedBytes());
+            Metrics.gauge(out, "swiftpay_search_index_employees", "Employees in the search index.", EmployeeDAO.getSearchIndex().size());
+            Metrics.counter(out, "swiftpay_archiver_runs_total", "Pay period archiver passes.", PayrollArchiver.getRuns());
+            Metrics.counter(out, "swiftpay_archiver_failures_total", "Archiver passes or period archives that failed.", PayrollArchiver.getFailures());
+            Metrics.counter(out, "swiftpay_pay_periods_closed_total", "Pay periods closed.", PayrollArchiver.getPeriodsClosed());
+            Metrics.counter(out, "swiftpay_pay_periods_archived_total", "Pay periods archived.", PayrollArchiver.getPeriodsArchived());
+            Metrics.counter(out, "swiftpay_archived_rows_total", "Payroll rows moved to archive files.", PayrollArchiver.getRowsArchived());
+            Metrics.gauge(out, "swiftpay_payroll_pmax_rows", "Payroll rows in partition pmax at the last archiver run (should be 0).", PayrollArchiver.getUnpartitionedRows());
+            Metrics.gauge(out, "swiftpay_payroll_orphan_rows", "Payroll rows without an employee at the last archiver run (should be 0).", PayrollArchiver.getOrphanRows());
+            Metrics.counter(out, "swiftpay_changelog_appended_total", "Changes this node logged for other nodes.", ChangeLog.getAppendedCount());
+            Metrics.counter(out, "swiftpay_changelog_polls_total", "Change log polls.", ChangeLogTailer.getPolls());
+            Metrics.counter(out, "swiftpay_changelog_applied_total", "Other nodes' changes applied to this node's caches.", ChangeLogTailer.getApplied());
+            Metrics.counter(out, "swiftpay_changelog_resyncs_total", "Times every cache was dropped after losing track of the log.", ChangeLogTailer.getResyncs());
+            Metrics.counter(out, "swiftpay_changelog_failures_total", "Change log polls or purges that failed.", ChangeLogTailer.getFailures());
+            Metrics.gauge(out, "swiftpay_changelog_last_id", "Last change log id read.", ChangeLogTailer.getLastId());
+            Metrics.gauge(out, "swiftpay_changelog_lag_ms", "Age of the most recent change applied when it was applied.", ChangeLogTailer.getLagMillis());
+
+            HttpResponses.send(exchange, 200, "text/plain; version=0.0.4; charset=utf-8",
+                    out.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // ---------------------- ANALYTICS HANDLER ----------------------
+    // Answered from the in-memory payroll columns, not MySQL:
+    //   /api/analytics/payout?group=department|month|department,month&department=&employee_id=&from=&to=
+    //   /api/analytics/top?limit=10&department=&employee_id=&from=&to=
+    static class AnalyticsHandler {
+        private static final int DEFAULT_TOP = 10;
+
+        private final PayrollDAO dao;
+
+        AnalyticsHandler(PayrollDAO dao) {
+            this.dao = dao;
+        }
+
+        void payout(HttpExchange exchange, Router.Params params) throws IOException {
+            Map<String, String> query = parseFormData(exchange.getRequestURI().getRawQuery());
+            try {
+                PayrollColumnStore.Filter filter = PayrollColumnStore.Filter.fromPage(PageRequest.fromParams(query, false));
+                PayrollColumnStore.GroupBy groupBy = PayrollColumnStore.GroupBy.fromParam(query.get("group"));
+                long start = System.nanoTime();
+                List<PayrollColumnStore.Group> groups = dao.getPayout(groupBy, filter);
+
+                JsonWriter json = new JsonWriter(1024);
+                json.raw("{\"groups\":[");
+                for (int i = 0; i < groups.size(); i++) {
+                    PayrollColumnStore.Group g = groups.get(i);
+                    if (i > 0) json.writeByte(',');
+                    json.raw("{\"department\":").writeString(g.getDepartment())
+                            .raw(",\"month\":").writeString(g.getMonth())
+                            .raw(",\"count\":").writeLong(g.getCount())
+                            .raw(",\"bonuses\":").writeCents(g.getBonuses())
+                            .raw(",\"deductions\":").writeCents(g.getDeductions())
+                            .raw(",\"net_salary\":").writeCents(g.getNetSalary())
+                            .writeByte('}');
+                }
+                json.writeByte(']');
+                finish(exchange, json, start);
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(exchange, e.getMessage());
+            } catch (SQLException e) {
+                sendErrorResponse(exchange, "Database error: " + e.getMessage());
+            }
+        }
+
+        void top(HttpExchange exchange, Router.Params params) throws IOException {
+            Map<String, String> query = parseFormData(exchange.getRequestURI().getRawQuery());
+            try {
+                PageRequest page = PageRequest.fromParams(query, false);
+                PayrollColumnStore.Filter filter = PayrollColumnStore.Filter.fromPage(page);
+                int limit = page.hasLimit() ? page.getLimit() : DEFAULT_TOP;
+                long start = System.nanoTime();
+                List<PayrollColumnStore.Row> rows = dao.getTopEarners(limit, filter);
+
+                JsonWriter json = new JsonWriter(1024);
+                json.raw("{\"items\":[");
+                for (int i = 0; i < rows.size(); i++) {
+                    PayrollColumnStore.Row r = rows.get(i);
+                    if (i > 0) json.writeByte(',');
+                    json.raw("{\"id\":").writeLong(r.getId())
+                            .raw(",\"employee_id\":").writeLong(r.getEmployeeId())
+                            .raw(",\"department\":").writeString(r.getDepartment())
+                            .raw(",\"bonuses\":").writeCents(r.getBonuses())
+                            .raw(",\"deductions\":").writeCents(r.getDeductions())
+                            .raw(",\"net_salary\":").writeCents(r.getNetSalary())
+                            .writeByte('}');
+                }
+                json.writeByte(']');
+                finish(exchange, json, start);
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(exchange, e.getMessage());
             } catch (SQLException e) {
                 sendErrorResponse(exchange, "Database error: " + e.getMessage());
             }
         }
+
+        private static void finish(HttpExchange exchange, JsonWriter json, long start) throws IOException {
+            json.raw(",\"rows_scanned\":").writeLong(PayrollDAO.getColumnStore().size())
+                    .raw(",\"elapsed_us\":").writeLong((System.nanoTime() - start) / 1000)
+                    .writeByte('}');
+            HttpResponses.send(exchange, 200, "application/json", json.getBuffer(), json.size());
+        }
     }
 
-    // ---------------------- PAYROLL CALCULATE HANDLER ----------------------
-    static class PayrollCalculateHandler implements HttpHandler {
+    // ---------------------- STATIC FILE HANDLER ----------------------
+    static class StaticFileHandler implements Router.Handler {
+        private static final StaticAssetCache assets = new StaticAssetCache(
+                java.nio.file.Paths.get("frontend"), Long.getLong("static.checkIntervalMs", 1000L));
+        private static final long MAX_AGE_SECONDS = Long.getLong("static.maxAgeSeconds", 300L);
+
         @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            addCORSHeaders(exchange);
-            if ("OPTIONS".equals(exchange.getRequestMethod())) {
-                exchange.sendResponseHeaders(200, 0);
+        public void handle(HttpExchange exchange, Router.Params params) throws IOException {
+            String fileName = params.size() == 0 ? "index.html" : params.get("file");
+
+            StaticAssetCache.Asset asset = assets.get(fileName);
+            if (asset == null) {
+                sendErrorResponse(exchange, "File not found");
+                return;
+            }
+
+            // HTML is always revalidated so new pages pick up changed scripts; other assets may be reused briefly
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", asset.getEtag());
+            headers.set("Cache-Control", asset.getContentType().equals("text/html")
+                    ? "no-cache" : "public, max-age=" + MAX_AGE_SECONDS);
+            headers.set("Vary", "Accept-Encoding");
+            if (asset.matches(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            byte[] data = asset.getData();
+            if (asset.getGzipped() != null && HttpResponses.acceptsGzip(exchange)) {
+                data = asset.getGzipped();
+                headers.set("Content-Encoding", "gzip");
+            }
+            headers.set("Content-Type", asset.getContentType());
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
                 exchange.close();
                 return;
             }
+            exchange.sendResponseHeaders(200, data.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(data);
+            }
+            HttpResponses.record(asset.getData().length, data.length, data != asset.getData());
+        }
+    }
 
-            if ("POST".equals(exchange.getRequestMethod())) {
-                try {
-                    String body = readRequestBody(exchange);
-                    Map<String, String> params = parseFormData(body);
+    // ---------------------- JSON ARRAY STREAM ----------------------
+    // Writes a JSON array to the response element by element through a JsonWriter on HttpResponses.openStream.
+    // Nothing is sent before the first element, so a query that fails before any row can still get a proper error.
+    // Paged responses wrap the array as {"items":[...],"next_cursor":N}; unpaged ones are a bare array.
+    static class JsonArrayStream {
+        private final HttpExchange exchange;
+        private final boolean paged;
+        private JsonWriter writer;
+        private boolean first = true;
 
-                    int empId = Integer.parseInt(params.get("employee_id"));
-                    BigDecimal bonus = new BigDecimal(params.get("bonuses"));
-                    BigDecimal ded = new BigDecimal(params.get("deductions"));
+        JsonArrayStream(HttpExchange exchange, boolean paged) {
+            this.exchange = exchange;
+            this.paged = paged;
+        }
 
-                    PayrollDAO dao = new PayrollDAO();
-                    boolean ok = dao.calculatePayroll(empId, bonus, ded);
+        // Writer positioned for the next element
+        JsonWriter next() throws IOException {
+            if (writer == null) start();
+            if (!first) writer.writeByte(',');
+            first = false;
+            return writer;
+        }
 
-                    String response = ok ? "{\"success\":true}" : "{\"success\":false}";
-                    exchange.getResponseHeaders().set("Content-Type", "application/json");
-                    exchange.sendResponseHeaders(ok ? 200 : 500, response.length());
-                    try (OutputStream os = exchange.getResponseBody()) {
-                        os.write(response.getBytes());
-                    }
-                } catch (Exception e) {
-                    sendErrorResponse(exchange, "Error: " + e.getMessage());
-                }
+        // Close the array; nextCursor is 0 on the last page
+        void finish(int nextCursor) throws IOException {
+            if (writer == null) start();
+            writer.writeByte(']');
+            if (paged) {
+                writer.raw(",\"next_cursor\":");
+                if (nextCursor > 0) writer.writeLong(nextCursor);
+                else writer.writeNull();
+                writer.writeByte('}');
+            }
+            writer.close();
+        }
+
+        // Report an error, or cut the response short if rows have already been sent
+        void fail(String msg) throws IOException {
+            System.out.println("Streaming response failed: " + msg);
+            if (writer == null) {
+                sendErrorResponse(exchange, msg);
             } else {
-                sendErrorResponse(exchange, "Method not allowed");
+                exchange.close();
             }
         }
-    }
 
-    // ---------------------- STATIC FILE HANDLER ----------------------
-    static class StaticFileHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            String fileName = path.substring(path.lastIndexOf("/") + 1);
-            if (fileName.isEmpty() || fileName.equals("frontend")) fileName = "index.html";
-
-            File file = new File("frontend/" + fileName);
-            if (file.exists()) {
-                String contentType = getContentType(fileName);
-                exchange.getResponseHeaders().set("Content-Type", contentType);
-                byte[] data = java.nio.file.Files.readAllBytes(file.toPath());
-                exchange.sendResponseHeaders(200, data.length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(data);
-                }
-            } else sendErrorResponse(exchange, "File not found");
+        private void start() throws IOException {
+            writer = new JsonWriter(HttpResponses.openStream(exchange, 200, "application/json"), 8192);
+            writer.raw(paged ? "{\"items\":[" : "[");
         }
     }
 
     // ---------------------- UTILITIES ----------------------
-    private static void addCORSHeaders(HttpExchange exchange) {
+    // Package-private for the Router, which adds these to every response
+    static void addCORSHeaders(HttpExchange exchange) {
         exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "http://127.0.0.1:5500");
         exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization, X-Read-Consistency");
         exchange.getResponseHeaders().add("Access-Control-Allow-Credentials", "true");
     }
 
-    private static String readRequestBody(HttpExchange exchange) throws IOException {
+    // readRequestBody and parseFormData are package-private so the benchmarks module can measure them
+    static String readRequestBody(HttpExchange exchange) throws IOException {
         try (InputStream is = exchange.getRequestBody();
             InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
             BufferedReader br = new BufferedReader(isr)) {
@@ -321,7 +1116,7 @@ public class MainServer {
         }
     }
 
-    private static Map<String, String> parseFormData(String data) {
+    static Map<String, String> parseFormData(String data) {
         Map<String, String> map = new HashMap<>();
         if (data != null && !data.isEmpty()) {
             for (String pair : data.split("&")) {
@@ -335,47 +1130,10 @@ public class MainServer {
         return map;
     }
 
+    // msg is escaped, so driver messages with quotes or backslashes stay valid JSON
     private static void sendErrorResponse(HttpExchange exchange, String msg) throws IOException {
-        String res = "{\"success\":false,\"message\":\"" + msg + "\"}";
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(400, res.length());
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(res.getBytes());
-        }
-    }
-
-    private static String getContentType(String name) {
-        if (name.endsWith(".html")) return "text/html";
-        if (name.endsWith(".css")) return "text/css";
-        if (name.endsWith(".js")) return "application/javascript";
-        return "application/octet-stream";
-    }
-
-    private static String convertEmployeesToJSON(List<Employee> employees) {
-        StringBuilder json = new StringBuilder("[");
-        for (int i = 0; i < employees.size(); i++) {
-            if (i > 0) json.append(",");
-            json.append(convertEmployeeToJSON(employees.get(i)));
-        }
-        json.append("]");
-        return json.toString();
-    }
-
-    private static String convertEmployeeToJSON(Employee e) {
-        return String.format("{\"id\":%d,\"name\":\"%s\",\"department\":\"%s\",\"basic_salary\":%.2f}",
-                e.getId(), e.getName(), e.getDepartment(), e.getBasicSalary());
-    }
-
-    private static String convertPayrollsToJSON(List<Payroll> payrolls) {
-        StringBuilder json = new StringBuilder("[");
-        for (int i = 0; i < payrolls.size(); i++) {
-            if (i > 0) json.append(",");
-            Payroll p = payrolls.get(i);
-            json.append(String.format(
-                    "{\"id\":%d,\"employee_id\":%d,\"bonuses\":%.2f,\"deductions\":%.2f,\"net_salary\":%.2f}",
-                    p.getId(), p.getEmployeeId(), p.getBonuses(), p.getDeductions(), p.getNetSalary()));
-        }
-        json.append("]");
-        return json.toString();
+        JsonWriter json = new JsonWriter(64 + (msg != null ? msg.length() : 0))
+                .raw("{\"success\":false,\"message\":").writeString(msg).writeByte('}');
+        HttpResponses.send(exchange, 400, "application/json", json.getBuffer(), json.size());
     }
 }
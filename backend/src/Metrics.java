@@ -0,0 +1,210 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-route request metrics rendered in the Prometheus text format.
+ *
+ * Every route gets a {@link Recorder} (the Router holds one per template)
+ * that counts requests by status code, tracks in-flight requests and records
+ * latency into a log-linear histogram (16 linear sub-buckets per power of two
+ * of microseconds, so any quantile is within about 6% of the true value).
+ * Recording is two nanoTime reads and a few lock-free increments; the route's
+ * counters are resolved once when the route is added, not per request.
+ *
+ * Quantiles cover everything since startup; use rate() on the _sum and _count
+ * series for recent averages.
+ */
+public final class Metrics {
+    private static final Map<String, Recorder> routes = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    // Counters for one route label; look it up once and keep it
+    public static Recorder recorder(String route) {
+        return routes.computeIfAbsent(route, Recorder::new);
+    }
+
+    // ---------------------- Prometheus text format ----------------------
+
+    public static void writePrometheus(StringBuilder out) {
+        out.append("# HELP swiftpay_http_requests_total HTTP requests by route and status code.\n");
+        out.append("# TYPE swiftpay_http_requests_total counter\n");
+        for (Recorder route : routes.values()) {
+            for (int code = 0; code < route.byStatus.length(); code++) {
+                LongAdder count = route.byStatus.get(code);
+                if (count == null) continue;
+                out.append("swiftpay_http_requests_total{route=\"").append(escape(route.name))
+                        .append("\",code=\"").append(code == 0 ? "none" : String.valueOf(code)).append("\"} ")
+                        .append(count.sum()).append('\n');
+            }
+        }
+
+        out.append("# HELP swiftpay_http_requests_in_flight Requests currently being handled.\n");
+        out.append("# TYPE swiftpay_http_requests_in_flight gauge\n");
+        for (Recorder route : routes.values()) {
+            out.append("swiftpay_http_requests_in_flight{route=\"").append(escape(route.name)).append("\"} ")
+                    .append(route.inFlight.sum()).append('\n');
+        }
+
+        out.append("# HELP swiftpay_http_request_duration_seconds Request latency by route.\n");
+        out.append("# TYPE swiftpay_http_request_duration_seconds summary\n");
+        for (Recorder route : routes.values()) {
+            String label = escape(route.name);
+            LatencyHistogram h = route.latency;
+            long[] counts = h.snapshot();
+            long total = 0;
+            for (long c : counts) total += c;
+            for (double q : new double[]{0.5, 0.99, 0.999}) {
+                out.append("swiftpay_http_request_duration_seconds{route=\"").append(label)
+                        .append("\",quantile=\"").append(q).append("\"} ")
+                        .append(LatencyHistogram.quantileMicros(counts, total, q) / 1e6).append('\n');
+            }
+            out.append("swiftpay_http_request_duration_seconds_sum{route=\"").append(label).append("\"} ")
+                    .append(h.sumNanos.sum() / 1e9).append('\n');
+            out.append("swiftpay_http_request_duration_seconds_count{route=\"").append(label).append("\"} ")
+                    .append(total).append('\n');
+        }
+    }
+
+    public static void gauge(StringBuilder out, String name, String help, double value) {
+        sample(out, name, help, "gauge", value);
+    }
+
+    public static void counter(StringBuilder out, String name, String help, double value) {
+        sample(out, name, help, "counter", value);
+    }
+
+    private static void sample(StringBuilder out, String name, String help, String type, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append(name).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    // One sample per label value (e.g. per replica), in the map's order
+    public static void gauge(StringBuilder out, String name, String help, String label, Map<String, ? extends Number> values) {
+        labeledSamples(out, name, help, "gauge", label, values);
+    }
+
+    public static void counter(StringBuilder out, String name, String help, String label, Map<String, ? extends Number> values) {
+        labeledSamples(out, name, help, "counter", label, values);
+    }
+
+    private static void labeledSamples(StringBuilder out, String name, String help, String type, String label,
+                                       Map<String, ? extends Number> values) {
+        if (values.isEmpty()) return;
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (Map.Entry<String, ? extends Number> entry : values.entrySet()) {
+            out.append(name).append('{').append(label).append("=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue()).append('\n');
+        }
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // ---------------------- Per-route state ----------------------
+
+    public static final class Recorder {
+        final String name;
+        final LongAdder inFlight = new LongAdder();
+        // Index 0 collects exchanges that never sent a status
+        final AtomicReferenceArray<LongAdder> byStatus = new AtomicReferenceArray<>(600);
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        Recorder(String name) {
+            this.name = name;
+        }
+
+        public void begin() {
+            inFlight.increment();
+        }
+
+        // status is the response code, or -1/500 if the handler never sent headers or threw
+        public void end(int status, long nanos) {
+            inFlight.decrement();
+            record(status, nanos);
+        }
+
+        void record(int status, long nanos) {
+            int slot = status >= 100 && status < 600 ? status : 0;
+            LongAdder count = byStatus.get(slot);
+            if (count == null) {
+                byStatus.compareAndSet(slot, null, new LongAdder());
+                count = byStatus.get(slot);
+            }
+            count.increment();
+            latency.record(nanos);
+        }
+    }
+
+    // Log-linear histogram of microseconds: values below 16 get their own bucket, above that 16 buckets per power of two
+    public static final class LatencyHistogram {
+        private static final int SUB_BUCKETS = 16;
+        private static final int SUB_BITS = 4;
+        private static final int MAX_MAGNITUDE = 40;   // about 12 days in microseconds
+        private static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sumNanos = new LongAdder();
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            sumNanos.add(nanos);
+            counts.incrementAndGet(bucketOf(nanos / 1000));
+        }
+
+        static int bucketOf(long micros) {
+            if (micros < SUB_BUCKETS) return (int) micros;
+            int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+            if (magnitude > MAX_MAGNITUDE) return BUCKETS - 1;
+            int shift = magnitude - SUB_BITS;
+            int sub = (int) (micros >>> shift) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+        }
+
+        // Largest value that falls in the bucket
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+            int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+        }
+
+        long[] snapshot() {
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = counts.get(i);
+            }
+            return copy;
+        }
+
+        static long quantileMicros(long[] counts, long total, double q) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return upperBound(i);
+            }
+            return upperBound(counts.length - 1);
+        }
+
+        public long quantileMicros(double q) {
+            long[] copy = snapshot();
+            long total = 0;
+            for (long c : copy) total += c;
+            return quantileMicros(copy, total, q);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Fixed-point money arithmetic on a primitive long counting cents.
+ *
+ * Every amount column in the schema is DECIMAL(10,2), so a long of cents holds
+ * them exactly and payroll math becomes plain integer adds with no objects
+ * created. Arithmetic is overflow-checked (ArithmeticException instead of a
+ * silently wrapped salary) and BigDecimal only appears at the JDBC and request
+ * boundaries, via {@link #toCents(BigDecimal)} and {@link #toDecimal(long)}.
+ */
+public final class Money {
+    public static final long ZERO = 0L;
+
+    // Largest value a DECIMAL(10,2) column accepts, in cents
+    public static final long MAX_COLUMN_CENTS = 99_999_999_99L;
+
+    private Money() {}
+
+    // BigDecimal to cents; more than two decimals are rounded half-up like the database does on insert
+    public static long toCents(BigDecimal value) {
+        if (value == null) return ZERO;
+        return value.setScale(2, RoundingMode.HALF_UP).scaleByPowerOfTen(2).longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    // basic + bonuses - deductions
+    public static long netSalary(long basic, long bonuses, long deductions) {
+        return Math.subtractExact(Math.addExact(basic, bonuses), deductions);
+    }
+
+    // Percentage of an amount given in basis points (1250 = 12.50%), rounded half-up to the cent
+    public static long percentOf(long cents, long basisPoints) {
+        return percentOf(cents, basisPoints, RoundingMode.HALF_UP);
+    }
+
+    public static long percentOf(long cents, long basisPoints, RoundingMode mode) {
+        return divide(Math.multiplyExact(cents, basisPoints), 10_000L, mode);
+    }
+
+    // Integer division with an explicit rounding mode (no BigDecimal involved)
+    public static long divide(long dividend, long divisor, RoundingMode mode) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) return quotient;
+
+        int sign = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        // Compare twice the remainder with the divisor to find which way the half goes
+        long twice = Math.abs(remainder) * 2;
+        long absDivisor = Math.abs(divisor);
+        boolean awayFromZero;
+        switch (mode) {
+            case UP: awayFromZero = true; break;
+            case DOWN: awayFromZero = false; break;
+            case CEILING: awayFromZero = sign > 0; break;
+            case FLOOR: awayFromZero = sign < 0; break;
+            case HALF_UP: awayFromZero = twice >= absDivisor; break;
+            case HALF_DOWN: awayFromZero = twice > absDivisor; break;
+            case HALF_EVEN:
+                awayFromZero = twice > absDivisor || (twice == absDivisor && (quotient & 1) != 0);
+                break;
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+        return awayFromZero ? quotient + sign : quotient;
+    }
+
+    // Range check before writing to a DECIMAL(10,2) column
+    public static long checkColumn(long cents) {
+        if (cents > MAX_COLUMN_CENTS || cents < -MAX_COLUMN_CENTS) {
+            throw new ArithmeticException("Amount out of range for DECIMAL(10,2): " + toDecimal(cents));
+        }
+        return cents;
+    }
+
+    public static long read(ResultSet rs, String column) throws SQLException {
+        return toCents(rs.getBigDecimal(column));
+    }
+
+    public static void bind(PreparedStatement pstmt, int index, long cents) throws SQLException {
+        pstmt.setBigDecimal(index, toDecimal(checkColumn(cents)));
+    }
+}
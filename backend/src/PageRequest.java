@@ -0,0 +1,151 @@
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Keyset pagination and filter parameters for the list endpoints.
+ *
+ * Pages are addressed by the id of the last row seen ("after") rather than an
+ * OFFSET, so the database seeks straight to the next row through the index and
+ * page 1000 costs the same as page 1.
+ */
+public class PageRequest {
+    public static final int MAX_LIMIT = 10_000;
+
+    private int limit;          // 0 means no limit
+    private int after;          // 0 means start from the beginning
+    private boolean descending;
+    private String department;
+    private int employeeId;     // 0 means any employee
+    private int payPeriod;      // yyyymm; 0 means any period
+    private Timestamp from;     // inclusive
+    private Timestamp to;       // exclusive
+
+    // Default constructor
+    public PageRequest() {}
+
+    // Build from query parameters: limit, after, sort, department, employee_id, pay_period, from, to.
+    // Dates are either yyyy-MM-dd or a full timestamp; "to" is exclusive. pay_period is yyyy-MM.
+    public static PageRequest fromParams(Map<String, String> params, boolean descendingByDefault) {
+        PageRequest page = new PageRequest();
+        page.setDescending(descendingByDefault);
+
+        String limit = params.get("limit");
+        if (limit != null) {
+            int value = Integer.parseInt(limit);
+            if (value < 1 || value > MAX_LIMIT) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+            }
+            page.setLimit(value);
+        }
+        String after = params.get("after");
+        if (after != null) page.setAfter(Integer.parseInt(after));
+
+        String sort = params.get("sort");
+        if (sort != null) {
+            if (sort.equalsIgnoreCase("asc")) page.setDescending(false);
+            else if (sort.equalsIgnoreCase("desc")) page.setDescending(true);
+            else throw new IllegalArgumentException("sort must be asc or desc");
+        }
+
+        String department = params.get("department");
+        if (department != null && !department.isEmpty()) page.setDepartment(department);
+        String employeeId = params.get("employee_id");
+        if (employeeId != null) page.setEmployeeId(Integer.parseInt(employeeId));
+        String payPeriod = params.get("pay_period");
+        if (payPeriod != null) page.setPayPeriod(PayPeriod.parse(payPeriod));
+        if (params.get("from") != null) page.setFrom(parseTimestamp(params.get("from")));
+        if (params.get("to") != null) page.setTo(parseTimestamp(params.get("to")));
+        return page;
+    }
+
+    private static Timestamp parseTimestamp(String value) {
+        if (value.length() == 10) {
+            return Timestamp.valueOf(LocalDate.parse(value).atStartOfDay());
+        }
+        return Timestamp.valueOf(value.replace('T', ' '));
+    }
+
+    public boolean hasLimit() {
+        return limit > 0;
+    }
+
+    // Getters and Setters
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getAfter() {
+        return after;
+    }
+
+    public void setAfter(int after) {
+        this.after = after;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(int employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public int getPayPeriod() {
+        return payPeriod;
+    }
+
+    public void setPayPeriod(int payPeriod) {
+        this.payPeriod = payPeriod;
+    }
+
+    public Timestamp getFrom() {
+        return from;
+    }
+
+    public void setFrom(Timestamp from) {
+        this.from = from;
+    }
+
+    public Timestamp getTo() {
+        return to;
+    }
+
+    public void setTo(Timestamp to) {
+        this.to = to;
+    }
+
+    @Override
+    public String toString() {
+        return "PageRequest{" +
+                "limit=" + limit +
+                ", after=" + after +
+                ", descending=" + descending +
+                ", department='" + department + '\'' +
+                ", employeeId=" + employeeId +
+                ", payPeriod=" + payPeriod +
+                ", from=" + from +
+                ", to=" + to +
+                '}';
+    }
+}
@@ -0,0 +1,144 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Salted PBKDF2 password hashes for the admin table.
+ *
+ * Stored form is "pbkdf2$iterations$salt$hash" (salt and hash base64), so the
+ * iteration count can be raised later without breaking existing rows. Anything
+ * without the prefix is a legacy plaintext password; AdminDAO upgrades those
+ * on the next successful login.
+ *
+ * PBKDF2 is deliberately slow (tens of milliseconds at the default count), so
+ * successful verifications are remembered for auth.verifyCacheSeconds keyed
+ * by an HMAC of the stored hash and the password under a key generated at
+ * startup, so the cache holds nothing a password could be tested against
+ * offline. A storm of logins with the same credentials pays the cost once; a
+ * password change produces a new stored hash, so old entries simply stop
+ * matching. Failed attempts are never cached.
+ */
+public final class PasswordHasher {
+    private static final String PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int ITERATIONS = Integer.getInteger("auth.pbkdf2Iterations", 120_000);
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int CACHE_SIZE = Integer.getInteger("auth.verifyCacheSize", 1024);
+    private static final long CACHE_TTL_MILLIS = Long.getLong("auth.verifyCacheSeconds", 300L) * 1000;
+    private static final String HMAC = "HmacSHA256";
+
+    private static final SecureRandom random = new SecureRandom();
+    // Never leaves the process, so a cache key cannot be recomputed from a guessed password elsewhere
+    private static final SecretKeySpec cacheKeySecret = newCacheKeySecret();
+    // Mac instances are not thread-safe, so keep one per thread (as Sessions does)
+    private static final ThreadLocal<Mac> macs = ThreadLocal.withInitial(PasswordHasher::newMac);
+    // HMAC of (stored hash, password) -> expiry millis
+    private static final Map<String, Long> verified = new ConcurrentHashMap<>();
+
+    private PasswordHasher() {}
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, ITERATIONS);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + ITERATIONS + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    // Check a password against a stored hash; legacy plaintext values compare in constant time
+    public static boolean verify(String password, String stored) {
+        if (password == null || stored == null) return false;
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String key = cacheKey(password, stored);
+        long now = System.currentTimeMillis();
+        Long expires = verified.get(key);
+        if (expires != null) {
+            if (expires > now) return true;
+            verified.remove(key, expires);
+        }
+
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) return false;
+        boolean ok;
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            ok = MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        if (ok) remember(key, now + CACHE_TTL_MILLIS, now);
+        return ok;
+    }
+
+    public static int getCachedCount() {
+        return verified.size();
+    }
+
+    private static void remember(String key, long expires, long now) {
+        if (verified.size() >= CACHE_SIZE) {
+            verified.values().removeIf(e -> e <= now);
+            // Still full of live entries: drop an arbitrary one, the cost is one more PBKDF2 run later
+            Iterator<String> it = verified.keySet().iterator();
+            while (verified.size() >= CACHE_SIZE && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        verified.put(key, expires);
+    }
+
+    private static String cacheKey(String password, String stored) {
+        Mac mac = macs.get();
+        mac.update(stored.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        mac.update(password.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(mac.doFinal());
+    }
+
+    private static SecretKeySpec newCacheKeySecret() {
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        return new SecretKeySpec(secret, HMAC);
+    }
+
+    private static Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(cacheKeySecret);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " not available", e);
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+public class PayPeriod {
+    public static final String OPEN = "OPEN";
+    public static final String CLOSED = "CLOSED";
+    // Claimed by one server's archiver while it exports the rows; back to CLOSED if that fails
+    public static final String ARCHIVING = "ARCHIVING";
+    public static final String ARCHIVED = "ARCHIVED";
+
+    private int id;                 // yyyymm, e.g. 202610; also the payroll partition key
+    private Date startDate;         // first day of the month
+    private Date endDate;           // first day of the next month (exclusive)
+    private String status;
+    private long rowCount;          // set when the period is closed, corrected when it is archived
+    private BigDecimal totalNet;
+    private String archiveFile;
+    private Timestamp closedAt;
+    private Timestamp archivedAt;
+
+    // Default constructor
+    public PayPeriod() {}
+
+    // Period containing the date
+    public static int of(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
+    // Period payroll is written to today
+    public static int current() {
+        return of(LocalDate.now());
+    }
+
+    public static int next(int period) {
+        return period % 100 == 12 ? (period / 100 + 1) * 100 + 1 : period + 1;
+    }
+
+    public static LocalDate startOf(int period) {
+        return LocalDate.of(period / 100, period % 100, 1);
+    }
+
+    // "2026-10" or "202610"
+    public static int parse(String value) {
+        String digits = value.length() == 7 && value.charAt(4) == '-'
+                ? value.substring(0, 4) + value.substring(5) : value;
+        if (digits.length() != 6) throw new IllegalArgumentException("pay_period must be yyyy-MM");
+        int period = Integer.parseInt(digits);
+        int month = period % 100;
+        if (month < 1 || month > 12 || period / 100 < 1970) {
+            throw new IllegalArgumentException("pay_period must be yyyy-MM");
+        }
+        return period;
+    }
+
+    public static String format(int period) {
+        return String.format("%04d-%02d", period / 100, period % 100);
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(Date endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public BigDecimal getTotalNet() {
+        return totalNet;
+    }
+
+    public void setTotalNet(BigDecimal totalNet) {
+        this.totalNet = totalNet;
+    }
+
+    public String getArchiveFile() {
+        return archiveFile;
+    }
+
+    public void setArchiveFile(String archiveFile) {
+        this.archiveFile = archiveFile;
+    }
+
+    public Timestamp getClosedAt() {
+        return closedAt;
+    }
+
+    public void setClosedAt(Timestamp closedAt) {
+        this.closedAt = closedAt;
+    }
+
+    public Timestamp getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(Timestamp archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PayPeriod{" +
+                "id=" + id +
+                ", status='" + status + '\'' +
+                ", rowCount=" + rowCount +
+                ", totalNet=" + totalNet +
+                ", archiveFile='" + archiveFile + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,361 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PayPeriodDAO {
+    // Status of each period seen so far; every payroll write checks it, and the table only changes here
+    private static final Map<Integer, String> statuses = new ConcurrentHashMap<>();
+
+    // Rows per DELETE when an archived period has no partition of its own to drop
+    private static final int DELETE_CHUNK = Integer.getInteger("payroll.archive.deleteChunk", 10_000);
+
+    private final DatabaseConnection database;
+
+    public PayPeriodDAO() throws SQLException {
+        this.database = DatabaseConnection.getInstance();
+    }
+
+    // Make sure the period has a row (new ones start OPEN) and return its status
+    public String ensurePeriod(int period) throws SQLException {
+        String status = statuses.get(period);
+        if (status != null) {
+            return status;
+        }
+        PayPeriod existing = getPeriod(period);
+        if (existing == null) {
+            String sql = "INSERT INTO pay_period (id, start_date, end_date, status) VALUES (?, ?, ?, ?)";
+            try (Connection connection = database.getConnection();
+                 PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setInt(1, period);
+                pstmt.setDate(2, Date.valueOf(PayPeriod.startOf(period)));
+                pstmt.setDate(3, Date.valueOf(PayPeriod.startOf(PayPeriod.next(period))));
+                pstmt.setString(4, PayPeriod.OPEN);
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                // Another writer created it first
+                if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) throw e;
+            }
+            existing = getPeriod(period);
+        }
+        if (existing == null) {
+            throw new SQLException("Pay period " + PayPeriod.format(period) + " could not be created");
+        }
+        statuses.put(period, existing.getStatus());
+        return existing.getStatus();
+    }
+
+    // All periods, newest first
+    public List<PayPeriod> getPeriods() throws SQLException {
+        List<PayPeriod> periods = new ArrayList<>();
+        String sql = "SELECT * FROM pay_period ORDER BY id DESC";
+        try (Connection connection = database.getReadConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                periods.add(readPeriod(rs));
+            }
+        }
+        return periods;
+    }
+
+    public PayPeriod getPeriod(int period) throws SQLException {
+        String sql = "SELECT * FROM pay_period WHERE id = ?";
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, period);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? readPeriod(rs) : null;
+            }
+        }
+    }
+
+    // OPEN -> CLOSED, recording the period's row count and total; false if it was not open
+    public boolean closePeriod(int period) throws SQLException {
+        String sql = """
+            UPDATE pay_period
+            SET status = ?, closed_at = CURRENT_TIMESTAMP,
+                row_count = (SELECT COUNT(*) FROM payroll WHERE pay_period = ?),
+                total_net = (SELECT COALESCE(SUM(net_salary), 0) FROM payroll WHERE pay_period = ?)
+            WHERE id = ? AND status = ?
+            """;
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, PayPeriod.CLOSED);
+            pstmt.setInt(2, period);
+            pstmt.setInt(3, period);
+            pstmt.setInt(4, period);
+            pstmt.setString(5, PayPeriod.OPEN);
+            connection.setAutoCommit(false);
+            boolean closed = pstmt.executeUpdate() > 0;
+            if (closed) {
+                ChangeLog.append(connection, ChangeLog.PAY_PERIOD, ChangeLog.UPDATE, period, PayPeriod.CLOSED);
+            }
+            connection.commit();
+            if (closed) {
+                statuses.put(period, PayPeriod.CLOSED);
+            }
+            return closed;
+        }
+    }
+
+    // Lock the period row for the rest of the caller's transaction and check it still takes payroll. closePeriod
+    // waits for that transaction, so nothing written in it can land in a period that has just closed.
+    static void lockOpen(Connection connection, int period) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT status FROM pay_period WHERE id = ? FOR UPDATE")) {
+            pstmt.setInt(1, period);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                String status = rs.next() ? rs.getString("status") : null;
+                if (!PayPeriod.OPEN.equals(status)) {
+                    throw new SQLException("Pay period " + PayPeriod.format(period) + " is "
+                            + (status != null ? status.toLowerCase() : "missing"));
+                }
+            }
+        }
+    }
+
+    // Periods in a status, oldest first; with a cutoff, only those that ended on or before it
+    public List<Integer> getPeriodIds(String status, Date endedBy) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        String sql = endedBy == null
+                ? "SELECT id FROM pay_period WHERE status = ? ORDER BY id"
+                : "SELECT id FROM pay_period WHERE status = ? AND end_date <= ? ORDER BY id";
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, status);
+            if (endedBy != null) pstmt.setDate(2, endedBy);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                }
+            }
+        }
+        return ids;
+    }
+
+    public long countRows(int period) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM payroll WHERE pay_period = ?";
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, period);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    // CLOSED -> ARCHIVING, so only one server archives a period however many run the job. A claim older than
+    // staleAfterMillis (its server died mid-archive) is taken over. Returns the claim token the other archive steps
+    // need, or null if the period is not CLOSED or another server's claim is still live.
+    public String claimForArchive(int period, long staleAfterMillis) throws SQLException {
+        String lockSql = "SELECT status, claimed_at FROM pay_period WHERE id = ? FOR UPDATE";
+        String sql = "UPDATE pay_period SET status = ?, archive_claim = ?, claimed_at = CURRENT_TIMESTAMP WHERE id = ?";
+        try (Connection connection = database.getConnection();
+             PreparedStatement lock = connection.prepareStatement(lockSql);
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            lock.setInt(1, period);
+            try (ResultSet rs = lock.executeQuery()) {
+                if (!rs.next()) return null;
+                String status = rs.getString("status");
+                Timestamp claimedAt = rs.getTimestamp("claimed_at");
+                boolean stale = PayPeriod.ARCHIVING.equals(status)
+                        && (claimedAt == null || claimedAt.getTime() < System.currentTimeMillis() - staleAfterMillis);
+                if (!PayPeriod.CLOSED.equals(status) && !stale) return null;
+            }
+            String claim = ChangeLog.getNodeId() + ":" + UUID.randomUUID().toString().replace("-", "");
+            pstmt.setString(1, PayPeriod.ARCHIVING);
+            pstmt.setString(2, claim);
+            pstmt.setInt(3, period);
+            pstmt.executeUpdate();
+            ChangeLog.append(connection, ChangeLog.PAY_PERIOD, ChangeLog.UPDATE, period, PayPeriod.ARCHIVING);
+            connection.commit();
+            statuses.put(period, PayPeriod.ARCHIVING);
+            return claim;
+        }
+    }
+
+    // ARCHIVING -> CLOSED after a failed attempt, so the next run tries again; no-op if the claim was taken over
+    public void releaseArchiveClaim(int period, String claim) throws SQLException {
+        String sql = "UPDATE pay_period SET status = ?, archive_claim = NULL, claimed_at = NULL "
+                + "WHERE id = ? AND status = ? AND archive_claim = ?";
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            pstmt.setString(1, PayPeriod.CLOSED);
+            pstmt.setInt(2, period);
+            pstmt.setString(3, PayPeriod.ARCHIVING);
+            pstmt.setString(4, claim);
+            boolean released = pstmt.executeUpdate() > 0;
+            if (released) {
+                ChangeLog.append(connection, ChangeLog.PAY_PERIOD, ChangeLog.UPDATE, period, PayPeriod.CLOSED);
+            }
+            connection.commit();
+            if (released) {
+                statuses.put(period, PayPeriod.CLOSED);
+            }
+        }
+    }
+
+    // ARCHIVING -> ARCHIVED once its rows are safely in the archive file. The period row is locked and its rows
+    // counted again in the same transaction, so nothing written since the export can be lost when the rows are
+    // removed. Throws IllegalStateException if this claim no longer holds the period or its row count has changed.
+    public void markArchived(int period, String claim, String archiveFile, long rows) throws SQLException {
+        String lockSql = "SELECT status, archive_claim FROM pay_period WHERE id = ? FOR UPDATE";
+        String sql = "UPDATE pay_period SET status = ?, archive_file = ?, row_count = ?, archived_at = CURRENT_TIMESTAMP, "
+                + "archive_claim = NULL WHERE id = ?";
+        try (Connection connection = database.getConnection();
+             PreparedStatement lock = connection.prepareStatement(lockSql);
+             PreparedStatement count = connection.prepareStatement("SELECT COUNT(*) FROM payroll WHERE pay_period = ?");
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            lock.setInt(1, period);
+            try (ResultSet rs = lock.executeQuery()) {
+                if (!rs.next() || !PayPeriod.ARCHIVING.equals(rs.getString("status"))
+                        || !claim.equals(rs.getString("archive_claim"))) {
+                    throw new IllegalStateException("Pay period " + PayPeriod.format(period)
+                            + " is no longer claimed by this archive");
+                }
+            }
+            count.setInt(1, period);
+            try (ResultSet rs = count.executeQuery()) {
+                rs.next();
+                long live = rs.getLong(1);
+                if (live != rows) {
+                    // e.g. a row without an employee, which the export skips
+                    throw new IllegalStateException("Pay period " + PayPeriod.format(period) + " has " + live
+                            + " rows but " + rows + " were archived");
+                }
+            }
+            pstmt.setString(1, PayPeriod.ARCHIVED);
+            pstmt.setString(2, archiveFile);
+            pstmt.setLong(3, rows);
+            pstmt.setInt(4, period);
+            pstmt.executeUpdate();
+            ChangeLog.append(connection, ChangeLog.PAY_PERIOD, ChangeLog.UPDATE, period, PayPeriod.ARCHIVED);
+            connection.commit();
+            statuses.put(period, PayPeriod.ARCHIVED);
+        }
+    }
+
+    // Drop a cached status another node changed; the next ensurePeriod reads it again
+    public static void forget(int period) {
+        statuses.remove(period);
+    }
+
+    public static void forgetAll() {
+        statuses.clear();
+    }
+
+    // ---------------------- Partitions (MySQL) ----------------------
+
+    // payroll partition name -> upper bound (exclusive period; Integer.MAX_VALUE for MAXVALUE). Empty when the
+    // table is not partitioned or the database has no partitioning (e.g. H2 in tests).
+    public Map<String, Integer> getPartitions() throws SQLException {
+        Map<String, Integer> partitions = new HashMap<>();
+        try (Connection connection = database.getConnection()) {
+            if (!connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql")) {
+                return partitions;
+            }
+            String sql = "SELECT partition_name, partition_description FROM information_schema.partitions "
+                    + "WHERE table_schema = DATABASE() AND table_name = 'payroll' AND partition_name IS NOT NULL";
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    String bound = rs.getString("partition_description");
+                    partitions.put(rs.getString("partition_name"),
+                            "MAXVALUE".equalsIgnoreCase(bound) ? Integer.MAX_VALUE : Integer.parseInt(bound));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    // Split one-month partitions off pmax until `through` has its own; no-op when payroll is not partitioned
+    public int ensurePartitions(int through) throws SQLException {
+        Map<String, Integer> partitions = getPartitions();
+        if (!partitions.containsKey("pmax")) return 0;
+        int highest = 0;
+        for (int bound : partitions.values()) {
+            if (bound != Integer.MAX_VALUE) highest = Math.max(highest, bound);
+        }
+        int added = 0;
+        try (Connection connection = database.getConnection();
+             Statement stmt = connection.createStatement()) {
+            // Each new partition covers exactly one month, so dropping it later drops exactly that period
+            for (int period = highest; period > 0 && period <= through; period = PayPeriod.next(period)) {
+                stmt.executeUpdate("ALTER TABLE payroll REORGANIZE PARTITION pmax INTO ("
+                        + "PARTITION p" + period + " VALUES LESS THAN (" + PayPeriod.next(period) + "), "
+                        + "PARTITION pmax VALUES LESS THAN MAXVALUE)");
+                added++;
+            }
+        }
+        return added;
+    }
+
+    // Rows in pmax. The archiver keeps monthly partitions ahead of the current period, so this should be 0; rows here
+    // are not dropped with any period. 0 when payroll is not partitioned.
+    public long countUnpartitionedRows() throws SQLException {
+        if (!getPartitions().containsKey("pmax")) return 0;
+        return count("SELECT COUNT(*) FROM payroll PARTITION (pmax)");
+    }
+
+    // Payroll rows whose employee no longer exists. Partitioned payroll cannot have a foreign key, so the schema
+    // does not stop them; EmployeeDAO.deleteEmployee removes an employee's rows in the same transaction as the
+    // employee, and this catches anything written around it. The export skips such rows, so they block archiving.
+    public long countOrphanRows() throws SQLException {
+        return count("SELECT COUNT(*) FROM payroll p WHERE NOT EXISTS (SELECT 1 FROM employee e WHERE e.id = p.employee_id)");
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection connection = database.getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Remove a period's rows from payroll: drop its partition if it has one to itself, otherwise delete in chunks
+    public long removePeriodRows(int period) throws SQLException {
+        Integer bound = getPartitions().get("p" + period);
+        try (Connection connection = database.getConnection()) {
+            if (bound != null && bound == PayPeriod.next(period)) {
+                long rows = countRows(period);
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate("ALTER TABLE payroll DROP PARTITION p" + period);
+                }
+                return rows;
+            }
+            long rows = 0;
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "DELETE FROM payroll WHERE pay_period = ? LIMIT " + DELETE_CHUNK)) {
+                pstmt.setInt(1, period);
+                int deleted;
+                do {
+                    deleted = pstmt.executeUpdate();
+                    rows += deleted;
+                } while (deleted == DELETE_CHUNK);
+            }
+            return rows;
+        }
+    }
+
+    private static PayPeriod readPeriod(ResultSet rs) throws SQLException {
+        PayPeriod period = new PayPeriod();
+        period.setId(rs.getInt("id"));
+        period.setStartDate(rs.getDate("start_date"));
+        period.setEndDate(rs.getDate("end_date"));
+        period.setStatus(rs.getString("status"));
+        period.setRowCount(rs.getLong("row_count"));
+        period.setTotalNet(rs.getBigDecimal("total_net"));
+        period.setArchiveFile(rs.getString("archive_file"));
+        period.setClosedAt(rs.getTimestamp("closed_at"));
+        period.setArchivedAt(rs.getTimestamp("archived_at"));
+        return period;
+    }
+}
@@ -2,12 +2,18 @@ import java.math.BigDecimal;
 import java.sql.Timestamp;
 
 public class Payroll {
+    // Marks createdAt as not set
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    // Amounts are held as cents (see Money) and the timestamp as epoch millis, so a
+    // Payroll is a handful of primitives and can be refilled for every row without allocating
     private int id;
     private int employeeId;
-    private BigDecimal bonuses;
-    private BigDecimal deductions;
-    private BigDecimal netSalary;
-    private Timestamp createdAt;
+    private int payPeriod;          // yyyymm, see PayPeriod
+    private long bonusesCents;
+    private long deductionsCents;
+    private long netSalaryCents;
+    private long createdAtMillis = NO_TIMESTAMP;
 
     // Default constructor
     public Payroll() {}
@@ -15,25 +21,34 @@ public class Payroll {
     // Constructor with parameters
     public Payroll(int employeeId, BigDecimal bonuses, BigDecimal deductions, BigDecimal netSalary) {
         this.employeeId = employeeId;
-        this.bonuses = bonuses;
-        this.deductions = deductions;
-        this.netSalary = netSalary;
+        setBonuses(bonuses);
+        setDeductions(deductions);
+        setNetSalary(netSalary);
+    }
+
+    // Constructor with amounts in cents
+    public Payroll(int employeeId, long bonusesCents, long deductionsCents, long netSalaryCents) {
+        this.employeeId = employeeId;
+        this.bonusesCents = bonusesCents;
+        this.deductionsCents = deductionsCents;
+        this.netSalaryCents = netSalaryCents;
     }
 
     // Constructor with all fields
     public Payroll(int id, int employeeId, BigDecimal bonuses, BigDecimal deductions, 
                   BigDecimal netSalary, Timestamp createdAt) {
+        this(employeeId, bonuses, deductions, netSalary);
         this.id = id;
-        this.employeeId = employeeId;
-        this.bonuses = bonuses;
-        this.deductions = deductions;
-        this.netSalary = netSalary;
-        this.createdAt = createdAt;
+        setCreatedAt(createdAt);
     }
 
     // Method to calculate net salary
     public void calculateNetSalary(BigDecimal basicSalary) {
-        this.netSalary = basicSalary.add(bonuses).subtract(deductions);
+        calculateNetSalary(Money.toCents(basicSalary));
+    }
+
+    public void calculateNetSalary(long basicSalaryCents) {
+        this.netSalaryCents = Money.netSalary(basicSalaryCents, bonusesCents, deductionsCents);
     }
 
     // Getters and Setters
@@ -54,35 +69,79 @@ public class Payroll {
     }
 
     public BigDecimal getBonuses() {
-        return bonuses;
+        return Money.toDecimal(bonusesCents);
     }
 
     public void setBonuses(BigDecimal bonuses) {
-        this.bonuses = bonuses;
+        this.bonusesCents = Money.toCents(bonuses);
     }
 
     public BigDecimal getDeductions() {
-        return deductions;
+        return Money.toDecimal(deductionsCents);
     }
 
     public void setDeductions(BigDecimal deductions) {
-        this.deductions = deductions;
+        this.deductionsCents = Money.toCents(deductions);
     }
 
     public BigDecimal getNetSalary() {
-        return netSalary;
+        return Money.toDecimal(netSalaryCents);
     }
 
     public void setNetSalary(BigDecimal netSalary) {
-        this.netSalary = netSalary;
+        this.netSalaryCents = Money.toCents(netSalary);
     }
 
     public Timestamp getCreatedAt() {
-        return createdAt;
+        return createdAtMillis == NO_TIMESTAMP ? null : new Timestamp(createdAtMillis);
     }
 
     public void setCreatedAt(Timestamp createdAt) {
-        this.createdAt = createdAt;
+        this.createdAtMillis = createdAt == null ? NO_TIMESTAMP : createdAt.getTime();
+    }
+
+    public int getPayPeriod() {
+        return payPeriod;
+    }
+
+    public void setPayPeriod(int payPeriod) {
+        this.payPeriod = payPeriod;
+    }
+
+    public long getBonusesCents() {
+        return bonusesCents;
+    }
+
+    public void setBonusesCents(long bonusesCents) {
+        this.bonusesCents = bonusesCents;
+    }
+
+    public long getDeductionsCents() {
+        return deductionsCents;
+    }
+
+    public void setDeductionsCents(long deductionsCents) {
+        this.deductionsCents = deductionsCents;
+    }
+
+    public long getNetSalaryCents() {
+        return netSalaryCents;
+    }
+
+    public void setNetSalaryCents(long netSalaryCents) {
+        this.netSalaryCents = netSalaryCents;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public void setCreatedAtMillis(long createdAtMillis) {
+        this.createdAtMillis = createdAtMillis;
+    }
+
+    public boolean hasCreatedAt() {
+        return createdAtMillis != NO_TIMESTAMP;
     }
 
     @Override
@@ -90,10 +149,11 @@ public class Payroll {
         return "Payroll{" +
                 "id=" + id +
                 ", employeeId=" + employeeId +
-                ", bonuses=" + bonuses +
-                ", deductions=" + deductions +
-                ", netSalary=" + netSalary +
-                ", createdAt=" + createdAt +
+                ", payPeriod=" + payPeriod +
+                ", bonuses=" + getBonuses() +
+                ", deductions=" + getDeductions() +
+                ", netSalary=" + getNetSalary() +
+                ", createdAt=" + getCreatedAt() +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory payroll and employee totals behind GET /api/payroll/summary.
+ *
+ * Built with one GROUP BY query the first time it is read (or after an
+ * invalidation) and then kept current by the DAOs on every insert, update and
+ * delete, so reading it never touches the database. Deleting a department's
+ * current minimum or maximum only marks that department for a one-department
+ * reload, since the next extreme cannot be derived from the totals.
+ *
+ * A write that commits while a load is running may or may not be in what the
+ * load read, so writers take {@link #currentGeneration} before they start and
+ * pass it back with their delta. If a load has run since, the delta drops the
+ * totals (the next read rebuilds them) instead of being counted twice.
+ */
+public class PayrollAggregates {
+    // How the DAO fills the aggregates
+    public interface Loader {
+        PayrollSummary loadSummary() throws SQLException;
+
+        PayrollSummary.Department loadDepartment(String department) throws SQLException;
+    }
+
+    private static final class Totals {
+        long count;
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal min;
+        BigDecimal max;
+        boolean extremesStale;
+    }
+
+    private final Map<String, Totals> departments = new TreeMap<>();
+    private long employeeCount;
+    private BigDecimal totalBasicSalary = BigDecimal.ZERO;
+    private boolean loaded;
+    // Bumped as a load starts and again as it ends (both under the lock), so it is odd while one runs
+    private final AtomicLong generation = new AtomicLong();
+
+    // Take before a write starts and pass back with the write's delta
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    public synchronized void payrollAdded(String department, BigDecimal netSalary, long writeGeneration) {
+        if (!loaded || department == null || netSalary == null || raced(writeGeneration)) return;
+        Totals t = departments.computeIfAbsent(department, d -> new Totals());
+        t.count++;
+        t.total = t.total.add(netSalary);
+        if (t.min == null || netSalary.compareTo(t.min) < 0) t.min = netSalary;
+        if (t.max == null || netSalary.compareTo(t.max) > 0) t.max = netSalary;
+    }
+
+    public synchronized void payrollRemoved(String department, BigDecimal netSalary, long writeGeneration) {
+        if (!loaded || department == null || netSalary == null || raced(writeGeneration)) return;
+        Totals t = departments.get(department);
+        if (t == null) return;
+        if (--t.count <= 0) {
+            departments.remove(department);
+            return;
+        }
+        t.total = t.total.subtract(netSalary);
+        if (netSalary.compareTo(t.min) == 0 || netSalary.compareTo(t.max) == 0) {
+            t.extremesStale = true;
+        }
+    }
+
+    public synchronized void employeeAdded(BigDecimal basicSalary, long writeGeneration) {
+        if (!loaded || basicSalary == null || raced(writeGeneration)) return;
+        employeeCount++;
+        totalBasicSalary = totalBasicSalary.add(basicSalary);
+    }
+
+    // Drop everything; the next read rebuilds from the database
+    public synchronized void invalidate() {
+        loaded = false;
+        departments.clear();
+    }
+
+    // A load ran (or was running) since the write started: it may already count the write, so drop
+    // the totals rather than apply the delta on top
+    private boolean raced(long writeGeneration) {
+        if (writeGeneration == generation.get() && (writeGeneration & 1) == 0) return false;
+        invalidate();
+        return true;
+    }
+
+    // Current totals, loading or repairing them first if needed
+    public synchronized PayrollSummary snapshot(Loader loader) throws SQLException {
+        if (!loaded || departments.values().stream().anyMatch(t -> t.extremesStale)) {
+            generation.incrementAndGet();
+            try {
+                if (!loaded) {
+                    load(loader.loadSummary());
+                }
+                for (Map.Entry<String, Totals> entry : departments.entrySet()) {
+                    if (entry.getValue().extremesStale) {
+                        PayrollSummary.Department fresh = loader.loadDepartment(entry.getKey());
+                        Totals t = entry.getValue();
+                        t.count = fresh.getCount();
+                        t.total = fresh.getTotal();
+                        t.min = fresh.getMin();
+                        t.max = fresh.getMax();
+                        t.extremesStale = false;
+                    }
+                }
+            } finally {
+                generation.incrementAndGet();
+            }
+        }
+        departments.values().removeIf(t -> t.count <= 0);
+
+        PayrollSummary summary = new PayrollSummary();
+        long records = 0;
+        BigDecimal payout = BigDecimal.ZERO;
+        for (Map.Entry<String, Totals> entry : departments.entrySet()) {
+            Totals t = entry.getValue();
+            records += t.count;
+            payout = payout.add(t.total);
+            summary.getDepartments().add(new PayrollSummary.Department(entry.getKey(), t.count, t.total, t.min, t.max));
+        }
+        summary.setTotalRecords(records);
+        summary.setTotalPayout(payout);
+        summary.setEmployeeCount(employeeCount);
+        summary.setTotalBasicSalary(totalBasicSalary);
+        return summary;
+    }
+
+    private void load(PayrollSummary summary) {
+        departments.clear();
+        for (PayrollSummary.Department d : summary.getDepartments()) {
+            Totals t = new Totals();
+            t.count = d.getCount();
+            t.total = d.getTotal();
+            t.min = d.getMin();
+            t.max = d.getMax();
+            departments.put(d.getName(), t);
+        }
+        employeeCount = summary.getEmployeeCount();
+        totalBasicSalary = summary.getTotalBasicSalary();
+        loaded = true;
+    }
+}
@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps pay periods moving: OPEN while payroll is written to them, CLOSED once
+ * finished, ARCHIVED once their rows have moved out of the payroll table.
+ *
+ * Every payroll.archive.intervalMinutes (default 60) the job makes sure the
+ * current and next periods exist (with their own partitions on MySQL), closes
+ * OPEN periods that ended more than payroll.period.closeAfterDays (default 45;
+ * negative disables) ago, and archives every CLOSED period.
+ *
+ * Archiving first claims the period in the database (CLOSED -> ARCHIVING, under
+ * the period's row lock), so servers sharing the archive directory never
+ * archive the same period at once; a claim left by a server that died is taken
+ * over after payroll.archive.claimTimeoutMinutes (default 60). The claimant
+ * writes the period as gzipped NDJSON (the export format) to a temp file of its
+ * own in payroll.archive.dir (default "archive"), moves it into place, checks
+ * the row count against the table with the period locked, marks it ARCHIVED,
+ * and only then drops the period's partition (or deletes its rows), so the hot
+ * table only holds periods still in use. A failed attempt hands the period
+ * back as CLOSED and never deletes a final archive file. Payroll edits are refused once a period is CLOSED, so
+ * nothing changes between the export and the drop. Archived periods stay
+ * readable through {@link #archiveFile}.
+ *
+ * Each run also checks what the schema cannot enforce on a partitioned table:
+ * that pmax is empty and that every payroll row still has its employee. Both
+ * counts are logged when non-zero and published as gauges.
+ */
+public final class PayrollArchiver {
+    private static final long INTERVAL_MINUTES = Long.getLong("payroll.archive.intervalMinutes", 60L);
+    private static final int CLOSE_AFTER_DAYS = Integer.getInteger("payroll.period.closeAfterDays", 45);
+    private static final Path DIRECTORY = Paths.get(System.getProperty("payroll.archive.dir", "archive"));
+    private static final long CLAIM_TIMEOUT_MILLIS = Long.getLong("payroll.archive.claimTimeoutMinutes", 60L) * 60_000;
+
+    private static ScheduledExecutorService scheduler;
+
+    // ARCHIVED periods whose rows could not be removed yet; each run tries again
+    private static final Set<Integer> pendingRemoval = ConcurrentHashMap.newKeySet();
+
+    private static final AtomicLong runs = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+    private static final AtomicLong periodsClosed = new AtomicLong();
+    private static final AtomicLong periodsArchived = new AtomicLong();
+    private static final AtomicLong rowsArchived = new AtomicLong();
+    private static volatile long unpartitionedRows;
+    private static volatile long orphanRows;
+
+    private PayrollArchiver() {}
+
+    // Run the job now and then every interval on a daemon thread
+    public static synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "payroll-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(PayrollArchiver::runSafely, 0, INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private static void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            System.out.println("Payroll archiver error: " + e.getMessage());
+        }
+    }
+
+    // One pass of the job
+    public static void runOnce() throws SQLException, IOException {
+        runs.incrementAndGet();
+        PayPeriodDAO dao = new PayPeriodDAO();
+        int current = PayPeriod.current();
+        dao.ensurePeriod(current);
+        dao.ensurePeriod(PayPeriod.next(current));
+        dao.ensurePartitions(PayPeriod.next(current));
+
+        unpartitionedRows = dao.countUnpartitionedRows();
+        if (unpartitionedRows > 0) {
+            System.out.println("Warning: " + unpartitionedRows + " payroll rows are in partition pmax, "
+                    + "past every monthly partition; they will not be archived with their period");
+        }
+        orphanRows = dao.countOrphanRows();
+        if (orphanRows > 0) {
+            System.out.println("Warning: " + orphanRows + " payroll rows belong to employees that no longer exist; "
+                    + "their periods cannot be archived until they are removed");
+        }
+
+        if (CLOSE_AFTER_DAYS >= 0) {
+            Date cutoff = Date.valueOf(LocalDate.now().minusDays(CLOSE_AFTER_DAYS));
+            for (int period : dao.getPeriodIds(PayPeriod.OPEN, cutoff)) {
+                if (dao.closePeriod(period)) {
+                    periodsClosed.incrementAndGet();
+                    System.out.println("Closed pay period " + PayPeriod.format(period));
+                }
+            }
+        }
+        for (int period : pendingRemoval) {
+            removeRows(period);
+        }
+        List<Integer> archivable = dao.getPeriodIds(PayPeriod.CLOSED, null);
+        // Claims whose server may have died; archive() only takes them over once they are stale
+        archivable.addAll(dao.getPeriodIds(PayPeriod.ARCHIVING, null));
+        for (int period : archivable) {
+            try {
+                archive(period);
+            } catch (IllegalStateException e) {
+                // Left CLOSED (or with whoever holds it) to try again next run
+                failures.incrementAndGet();
+                System.out.println("Payroll archiver error: " + e.getMessage());
+            }
+        }
+    }
+
+    // Close a period by hand; false if it was not OPEN
+    public static boolean close(int period) throws SQLException {
+        boolean closed = new PayPeriodDAO().closePeriod(period);
+        if (closed) periodsClosed.incrementAndGet();
+        return closed;
+    }
+
+    // Move a CLOSED period's rows into its archive file; returns the number of rows archived.
+    // Throws IllegalStateException if the period is not CLOSED (or is being archived by another server) or the
+    // file does not match the table.
+    public static synchronized long archive(int period) throws SQLException, IOException {
+        PayPeriodDAO dao = new PayPeriodDAO();
+        String claim = dao.claimForArchive(period, CLAIM_TIMEOUT_MILLIS);
+        if (claim == null) {
+            throw new IllegalStateException("Pay period " + PayPeriod.format(period)
+                    + " is not closed or is being archived by another server");
+        }
+
+        long rows;
+        Path file;
+        boolean archived = false;
+        try {
+            Files.createDirectories(DIRECTORY);
+            String name = fileName(period);
+            file = DIRECTORY.resolve(name);
+            // One temp file per attempt, so a server taking over a stale claim never writes into another's
+            Path partial = DIRECTORY.resolve(name + "." + UUID.randomUUID() + ".part");
+            rows = export(period, partial);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Checks the claim still holds and the file holds every row, with the period locked. On failure the
+            // file stays: the export is complete, and the next claimant replaces it.
+            dao.markArchived(period, claim, name, rows);
+            archived = true;
+        } finally {
+            if (!archived) {
+                try {
+                    dao.releaseArchiveClaim(period, claim);
+                } catch (SQLException e) {
+                    // The claim goes stale and is taken over
+                    System.out.println("Payroll archiver error releasing " + PayPeriod.format(period) + ": " + e.getMessage());
+                }
+            }
+        }
+
+        // ARCHIVED before the rows go, so a failure here never leaves a CLOSED period with nothing left to export
+        removeRows(period);
+        PayrollDAO.getAggregates().invalidate();
+        PayrollDAO.getColumnStore().invalidate();
+        PayrollDAO.getHistoryCache().invalidateAll();
+
+        periodsArchived.incrementAndGet();
+        rowsArchived.addAndGet(rows);
+        System.out.println("Archived pay period " + PayPeriod.format(period) + ": " + rows + " rows to " + file);
+        return rows;
+    }
+
+    // Write the period's rows to partial as gzipped NDJSON; returns the row count. partial is gone on failure.
+    private static long export(int period, Path partial) throws SQLException, IOException {
+        PageRequest filter = new PageRequest();
+        filter.setPayPeriod(period);
+        // The file is checked against the primary's count, so it must not be read from a lagging replica
+        boolean primaryReads = DatabaseConnection.readFromPrimary(true);
+        try (PayrollExporter exporter = PayrollExporter.acquire(PayrollExporter.Format.NDJSON)) {
+            if (exporter == null) {
+                throw new IllegalStateException("Too many exports running");
+            }
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                // GZIPOutputStream.finish writes the trailer without closing the channel, so it can be forced
+                GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                exporter.writeTo(Channels.newChannel(gzip));
+                new PayrollDAO().exportPayroll(filter, exporter);
+                exporter.finish();
+                gzip.finish();
+                channel.force(true);
+            }
+            return exporter.getRows();
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        } finally {
+            DatabaseConnection.readFromPrimary(primaryReads);
+        }
+    }
+
+    private static void removeRows(int period) throws SQLException {
+        pendingRemoval.add(period);
+        new PayPeriodDAO().removePeriodRows(period);
+        pendingRemoval.remove(period);
+    }
+
+    // Archive file of an ARCHIVED period, or null if it is missing
+    public static Path archiveFile(PayPeriod period) {
+        if (period.getArchiveFile() == null) return null;
+        Path file = DIRECTORY.resolve(fileName(period.getId()));
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private static String fileName(int period) {
+        return "payroll-" + period + ".ndjson.gz";
+    }
+
+    public static long getRuns() { return runs.get(); }
+    public static long getFailures() { return failures.get(); }
+    public static long getPeriodsClosed() { return periodsClosed.get(); }
+    public static long getPeriodsArchived() { return periodsArchived.get(); }
+    public static long getRowsArchived() { return rowsArchived.get(); }
+    public static long getUnpartitionedRows() { return unpartitionedRows; }
+    public static long getOrphanRows() { return orphanRows; }
+}
@@ -0,0 +1,545 @@
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Column-oriented in-memory copy of the payroll table for the analytics endpoints.
+ *
+ * Each payroll row is spread over primitive arrays (ids, amounts in cents,
+ * created_at millis, a precomputed month and a dictionary code for the
+ * employee's department), so a group-by is a tight loop over a few arrays.
+ * Scans are split into ranges and run on the common fork-join pool.
+ *
+ * Loaded lazily from PayrollDAO on the first query and then appended to as
+ * payroll rows are inserted. Readers work on an immutable view (arrays plus a
+ * row count), so appends never disturb a scan in progress. Updates, deletes,
+ * employee changes and bulk runs invalidate the snapshot and the next query
+ * reloads it.
+ */
+public class PayrollColumnStore {
+    // Rows per fork-join leaf
+    private static final int SCAN_CHUNK = Integer.getInteger("analytics.scanChunk", 1 << 16);
+
+    // How the DAO fills a fresh snapshot, in ascending id order
+    public interface Loader {
+        void loadColumns(Builder target) throws SQLException;
+    }
+
+    public enum GroupBy {
+        NONE(false, false), DEPARTMENT(true, false), MONTH(false, true), DEPARTMENT_MONTH(true, true);
+
+        final boolean department;
+        final boolean month;
+
+        GroupBy(boolean department, boolean month) {
+            this.department = department;
+            this.month = month;
+        }
+
+        public static GroupBy fromParam(String value) {
+            if (value == null || value.isEmpty()) return DEPARTMENT;
+            switch (value) {
+                case "none": return NONE;
+                case "department": return DEPARTMENT;
+                case "month": return MONTH;
+                case "department,month":
+                case "department_month": return DEPARTMENT_MONTH;
+                default: throw new IllegalArgumentException("group must be none, department, month or department,month");
+            }
+        }
+    }
+
+    // Row filter; an unset bound matches everything
+    public static class Filter {
+        private String department;
+        private int employeeId;
+        private long fromMillis = Long.MIN_VALUE;   // inclusive
+        private long toMillis = Long.MAX_VALUE;     // exclusive
+
+        public static Filter fromPage(PageRequest page) {
+            Filter filter = new Filter();
+            filter.department = page.getDepartment();
+            filter.employeeId = page.getEmployeeId();
+            if (page.getFrom() != null) filter.fromMillis = page.getFrom().getTime();
+            if (page.getTo() != null) filter.toMillis = page.getTo().getTime();
+            return filter;
+        }
+    }
+
+    // One group of a payout aggregation; amounts in cents
+    public static class Group {
+        private final String department;
+        private final String month;
+        private final long count;
+        private final long bonuses;
+        private final long deductions;
+        private final long netSalary;
+
+        Group(String department, String month, long count, long bonuses, long deductions, long netSalary) {
+            this.department = department;
+            this.month = month;
+            this.count = count;
+            this.bonuses = bonuses;
+            this.deductions = deductions;
+            this.netSalary = netSalary;
+        }
+
+        public String getDepartment() { return department; }
+        public String getMonth() { return month; }
+        public long getCount() { return count; }
+        public long getBonuses() { return bonuses; }
+        public long getDeductions() { return deductions; }
+        public long getNetSalary() { return netSalary; }
+    }
+
+    // A single payroll row copied out of the columns
+    public static class Row {
+        private final int id;
+        private final int employeeId;
+        private final String department;
+        private final long bonuses;
+        private final long deductions;
+        private final long netSalary;
+
+        Row(int id, int employeeId, String department, long bonuses, long deductions, long netSalary) {
+            this.id = id;
+            this.employeeId = employeeId;
+            this.department = department;
+            this.bonuses = bonuses;
+            this.deductions = deductions;
+            this.netSalary = netSalary;
+        }
+
+        public int getId() { return id; }
+        public int getEmployeeId() { return employeeId; }
+        public String getDepartment() { return department; }
+        public long getBonuses() { return bonuses; }
+        public long getDeductions() { return deductions; }
+        public long getNetSalary() { return netSalary; }
+    }
+
+    private Builder builder;            // guarded by this; null while not loaded
+    private volatile Columns columns;   // what readers scan
+    private boolean loading;
+    private final List<Object[]> pending = new ArrayList<>();
+    private long generation;
+    private final Object loadLock = new Object();
+
+    public synchronized void append(int id, int employeeId, long bonuses, long deductions, long netSalary,
+                                    long createdAtMillis, String department) {
+        if (department == null) return;
+        if (builder != null) {
+            builder.append(id, employeeId, bonuses, deductions, netSalary, createdAtMillis, department);
+            columns = builder.view();
+        } else if (loading) {
+            // Replayed after the load unless the load already saw the row
+            pending.add(new Object[]{id, employeeId, bonuses, deductions, netSalary, createdAtMillis, department});
+        }
+    }
+
+    // Drop the snapshot; the next query reloads it
+    public synchronized void invalidate() {
+        generation++;
+        builder = null;
+        columns = null;
+        pending.clear();
+    }
+
+    public int size() {
+        Columns c = columns;
+        return c == null ? 0 : c.size;
+    }
+
+    public boolean isLoaded() {
+        return columns != null;
+    }
+
+    // Current view, loading it first if needed. The database read runs outside the store's lock so inserts are not
+    // held up; loadLock only keeps concurrent queries from loading twice.
+    private Columns snapshot(Loader loader) throws SQLException {
+        Columns c = columns;
+        if (c != null) return c;
+
+        synchronized (loadLock) {
+            long startGeneration;
+            synchronized (this) {
+                if (columns != null) return columns;
+                startGeneration = generation;
+                loading = true;
+            }
+            Builder fresh = new Builder();
+            try {
+                loader.loadColumns(fresh);
+            } catch (SQLException | RuntimeException e) {
+                synchronized (this) {
+                    loading = false;
+                    pending.clear();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                loading = false;
+                for (Object[] row : pending) {
+                    if ((Integer) row[0] > fresh.lastId) {
+                        fresh.append((Integer) row[0], (Integer) row[1], (Long) row[2], (Long) row[3],
+                                (Long) row[4], (Long) row[5], (String) row[6]);
+                    }
+                }
+                pending.clear();
+                Columns view = fresh.view();
+                // After an invalidation during the load the rows read may be stale: answer with them once but don't keep them
+                if (startGeneration == generation) {
+                    builder = fresh;
+                    columns = view;
+                }
+                return view;
+            }
+        }
+    }
+
+    // Payout totals per group over the rows matching the filter
+    public List<Group> payout(Loader loader, GroupBy groupBy, Filter filter) throws SQLException {
+        Columns c = snapshot(loader);
+        int departmentCode = c.code(filter.department);
+        if (departmentCode == Columns.UNKNOWN) return new ArrayList<>();
+
+        int departments = groupBy.department ? c.dictionary.length : 1;
+        int months = groupBy.month && c.size > 0 ? c.maxMonth - c.minMonth + 1 : 1;
+        ScanSpec spec = new ScanSpec(c, departmentCode, filter, groupBy, months);
+        long[] acc = ForkJoinPool.commonPool().invoke(new PayoutTask(spec, 0, c.size, departments * months));
+
+        List<Group> groups = new ArrayList<>();
+        for (int d = 0; d < departments; d++) {
+            for (int m = 0; m < months; m++) {
+                int slot = (d * months + m) * 4;
+                if (acc[slot] == 0) continue;
+                groups.add(new Group(
+                        groupBy.department ? c.dictionary[d] : null,
+                        groupBy.month ? formatMonth(c.minMonth + m) : null,
+                        acc[slot], acc[slot + 1], acc[slot + 2], acc[slot + 3]));
+            }
+        }
+        groups.sort(Comparator.comparing(Group::getDepartment, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Group::getMonth, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return groups;
+    }
+
+    // The n highest net salaries among the rows matching the filter, highest first
+    public List<Row> top(Loader loader, int n, Filter filter) throws SQLException {
+        Columns c = snapshot(loader);
+        int departmentCode = c.code(filter.department);
+        List<Row> rows = new ArrayList<>();
+        if (departmentCode == Columns.UNKNOWN || n <= 0) return rows;
+
+        ScanSpec spec = new ScanSpec(c, departmentCode, filter, GroupBy.NONE, 1);
+        int[] best = ForkJoinPool.commonPool().invoke(new TopTask(spec, 0, c.size, n));
+        for (int row : best) {
+            rows.add(new Row(c.ids[row], c.employeeIds[row], c.dictionary[c.departments[row]],
+                    c.bonuses[row], c.deductions[row], c.netSalary[row]));
+        }
+        rows.sort(Comparator.comparingLong(Row::getNetSalary).reversed().thenComparingInt(Row::getId));
+        return rows;
+    }
+
+    private static String formatMonth(int month) {
+        int year = month / 12;
+        int monthOfYear = month % 12 + 1;
+        return year + (monthOfYear < 10 ? "-0" : "-") + monthOfYear;
+    }
+
+    // ---------------------- Storage ----------------------
+
+    // Immutable view of the first `size` rows; the arrays may be longer and shared with the builder
+    private static final class Columns {
+        static final int ANY = -1;
+        static final int UNKNOWN = -2;
+
+        final int size;
+        final int[] ids;
+        final int[] employeeIds;
+        final int[] departments;
+        final int[] months;
+        final long[] bonuses;
+        final long[] deductions;
+        final long[] netSalary;
+        final long[] createdAt;
+        final String[] dictionary;
+        final Map<String, Integer> codes;
+        final int minMonth;
+        final int maxMonth;
+
+        Columns(Builder b) {
+            size = b.size;
+            ids = b.ids;
+            employeeIds = b.employeeIds;
+            departments = b.departments;
+            months = b.months;
+            bonuses = b.bonuses;
+            deductions = b.deductions;
+            netSalary = b.netSalary;
+            createdAt = b.createdAt;
+            dictionary = b.dictionary.toArray(new String[0]);
+            codes = b.codesView;
+            minMonth = b.minMonth;
+            maxMonth = b.maxMonth;
+        }
+
+        int code(String department) {
+            if (department == null || department.isEmpty()) return ANY;
+            Integer code = codes.get(department);
+            return code == null || code >= dictionary.length ? UNKNOWN : code;
+        }
+    }
+
+    // Append-only column buffers, filled by the loader and then by inserts (under the store's lock)
+    public static final class Builder {
+        private int size;
+        private int[] ids = new int[1024];
+        private int[] employeeIds = new int[1024];
+        private int[] departments = new int[1024];
+        private int[] months = new int[1024];
+        private long[] bonuses = new long[1024];
+        private long[] deductions = new long[1024];
+        private long[] netSalary = new long[1024];
+        private long[] createdAt = new long[1024];
+        private final List<String> dictionary = new ArrayList<>();
+        private final HashMap<String, Integer> codes = new HashMap<>();
+        private Map<String, Integer> codesView = Map.of();
+        private int minMonth = Integer.MAX_VALUE;
+        private int maxMonth = Integer.MIN_VALUE;
+        private int lastId;
+
+        // Month boundaries of the last row, since consecutive rows almost always share a month
+        private final ZoneId zone = ZoneId.systemDefault();
+        private long monthStart = Long.MAX_VALUE;
+        private long monthEnd = Long.MIN_VALUE;
+        private int currentMonth;
+
+        public void append(int id, int employeeId, long bonusCents, long deductionCents, long netSalaryCents,
+                           long createdAtMillis, String department) {
+            if (size == ids.length) grow();
+            Integer code = codes.get(department);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(department);
+                codes.put(department, code);
+                codesView = Map.copyOf(codes);
+            }
+            int month = monthOf(createdAtMillis);
+            ids[size] = id;
+            employeeIds[size] = employeeId;
+            departments[size] = code;
+            months[size] = month;
+            bonuses[size] = bonusCents;
+            deductions[size] = deductionCents;
+            netSalary[size] = netSalaryCents;
+            createdAt[size] = createdAtMillis;
+            size++;
+            minMonth = Math.min(minMonth, month);
+            maxMonth = Math.max(maxMonth, month);
+            lastId = Math.max(lastId, id);
+        }
+
+        private int monthOf(long millis) {
+            if (millis < monthStart || millis >= monthEnd) {
+                ZonedDateTime start = Instant.ofEpochMilli(millis).atZone(zone)
+                        .withDayOfMonth(1).toLocalDate().atStartOfDay(zone);
+                monthStart = start.toInstant().toEpochMilli();
+                monthEnd = start.plusMonths(1).toInstant().toEpochMilli();
+                currentMonth = start.getYear() * 12 + start.getMonthValue() - 1;
+            }
+            return currentMonth;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            employeeIds = Arrays.copyOf(employeeIds, capacity);
+            departments = Arrays.copyOf(departments, capacity);
+            months = Arrays.copyOf(months, capacity);
+            bonuses = Arrays.copyOf(bonuses, capacity);
+            deductions = Arrays.copyOf(deductions, capacity);
+            netSalary = Arrays.copyOf(netSalary, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+        }
+
+        private Columns view() {
+            return new Columns(this);
+        }
+    }
+
+    // ---------------------- Parallel scans ----------------------
+
+    private static final class ScanSpec {
+        final Columns c;
+        final int departmentCode;
+        final int employeeId;
+        final long fromMillis;
+        final long toMillis;
+        final GroupBy groupBy;
+        final int months;
+
+        ScanSpec(Columns c, int departmentCode, Filter filter, GroupBy groupBy, int months) {
+            this.c = c;
+            this.departmentCode = departmentCode;
+            this.employeeId = filter.employeeId;
+            this.fromMillis = filter.fromMillis;
+            this.toMillis = filter.toMillis;
+            this.groupBy = groupBy;
+            this.months = months;
+        }
+
+        boolean matches(int row) {
+            return (departmentCode == Columns.ANY || c.departments[row] == departmentCode)
+                    && (employeeId == 0 || c.employeeIds[row] == employeeId)
+                    && c.createdAt[row] >= fromMillis && c.createdAt[row] < toMillis;
+        }
+    }
+
+    // Sums count, bonuses, deductions and net salary into four slots per group
+    private static final class PayoutTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final ScanSpec spec;
+        private final int from;
+        private final int to;
+        private final int groups;
+
+        PayoutTask(ScanSpec spec, int from, int to, int groups) {
+            this.spec = spec;
+            this.from = from;
+            this.to = to;
+            this.groups = groups;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > SCAN_CHUNK) {
+                int mid = (from + to) >>> 1;
+                PayoutTask left = new PayoutTask(spec, from, mid, groups);
+                left.fork();
+                long[] right = new PayoutTask(spec, mid, to, groups).compute();
+                long[] merged = left.join();
+                for (int i = 0; i < merged.length; i++) {
+                    merged[i] += right[i];
+                }
+                return merged;
+            }
+
+            long[] acc = new long[groups * 4];
+            Columns c = spec.c;
+            boolean byDepartment = spec.groupBy.department;
+            boolean byMonth = spec.groupBy.month;
+            for (int row = from; row < to; row++) {
+                if (!spec.matches(row)) continue;
+                int group = (byDepartment ? c.departments[row] * spec.months : 0)
+                        + (byMonth ? c.months[row] - c.minMonth : 0);
+                int slot = group * 4;
+                acc[slot]++;
+                acc[slot + 1] += c.bonuses[row];
+                acc[slot + 2] += c.deductions[row];
+                acc[slot + 3] += c.netSalary[row];
+            }
+            return acc;
+        }
+    }
+
+    // Row indexes of the n largest net salaries, kept in a min-heap per leaf
+    private static final class TopTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final ScanSpec spec;
+        private final int from;
+        private final int to;
+        private final int n;
+
+        TopTask(ScanSpec spec, int from, int to, int n) {
+            this.spec = spec;
+            this.from = from;
+            this.to = to;
+            this.n = n;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from > SCAN_CHUNK) {
+                int mid = (from + to) >>> 1;
+                TopTask left = new TopTask(spec, from, mid, n);
+                left.fork();
+                int[] right = new TopTask(spec, mid, to, n).compute();
+                int[] leftRows = left.join();
+                Heap heap = new Heap(spec.c.netSalary, n);
+                for (int row : leftRows) heap.offer(row);
+                for (int row : right) heap.offer(row);
+                return heap.toArray();
+            }
+
+            Heap heap = new Heap(spec.c.netSalary, n);
+            for (int row = from; row < to; row++) {
+                if (spec.matches(row)) heap.offer(row);
+            }
+            return heap.toArray();
+        }
+    }
+
+    // Bounded min-heap of row indexes ordered by a long column
+    private static final class Heap {
+        private final long[] keys;
+        private final int[] rows;
+        private int size;
+
+        Heap(long[] keys, int capacity) {
+            this.keys = keys;
+            this.rows = new int[capacity];
+        }
+
+        void offer(int row) {
+            if (size < rows.length) {
+                rows[size] = row;
+                siftUp(size++);
+            } else if (keys[row] > keys[rows[0]]) {
+                rows[0] = row;
+                siftDown(0);
+            }
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[rows[parent]] <= keys[rows[i]]) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) return;
+                int smallest = left + 1 < size && keys[rows[left + 1]] < keys[rows[left]] ? left + 1 : left;
+                if (keys[rows[i]] <= keys[rows[smallest]]) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int tmp = rows[a];
+            rows[a] = rows[b];
+            rows[b] = tmp;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+}
@@ -1,32 +1,127 @@
+import java.io.IOException;
 import java.sql.*;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-public class PayrollDAO {
-    private Connection connection;
+public class PayrollDAO implements PayrollAggregates.Loader, PayrollColumnStore.Loader {
+    // Kept current by every write below and served by GET /api/payroll/summary
+    private static final PayrollAggregates aggregates = new PayrollAggregates();
+
+    // Columnar copy of payroll for the /api/analytics endpoints; inserts append to it
+    private static final PayrollColumnStore columnStore = new PayrollColumnStore();
+
+    // Each employee's latest payroll for GET /api/employee/{id}/payroll; inserts push onto it.
+    // -Dcache.payrollHistory.maxEmployees, -Dcache.payrollHistory.depth and -Dcache.payrollHistory.ttlMs
+    private static final PayrollHistoryCache historyCache = new PayrollHistoryCache(
+            Integer.getInteger("cache.payrollHistory.maxEmployees", 10_000),
+            Integer.getInteger("cache.payrollHistory.depth", 24),
+            Long.getLong("cache.payrollHistory.ttlMs", 300_000L));
+
+    // Columns of idx_payroll_employee_history, so history reads never touch the table rows
+    private static final String HISTORY_SQL = "SELECT id, employee_id, pay_period, bonuses, deductions, net_salary, created_at "
+            + "FROM payroll WHERE employee_id = ? ORDER BY created_at DESC, id DESC";
+
+    // Edits and deletes only touch OPEN periods: a CLOSED period's totals are final and its rows are being archived.
+    // InnoDB reads pay_period with a shared lock for this subquery, so the write and closePeriod cannot interleave.
+    private static final String IN_OPEN_PERIOD = "pay_period IN (SELECT id FROM pay_period WHERE status = ?)";
+
+    // Rows per JDBC batch (and per transaction) in a bulk payroll run
+    private static final int RUN_BATCH_SIZE = Integer.getInteger("payroll.run.batchSize", 1000);
+
+    // Opt-in group commit for calculate requests: how long the writer waits to fill a batch, and its size cap
+    private static final boolean GROUP_COMMIT = Boolean.getBoolean("payroll.groupCommit");
+    private static final long GROUP_COMMIT_WINDOW_MICROS = Long.getLong("payroll.groupCommit.windowMicros", 2_000L);
+    private static final int GROUP_COMMIT_MAX_BATCH = Integer.getInteger("payroll.groupCommit.maxBatch", 128);
+    // How long a request waits while its row is still queued, and again once its row is in a batch
+    private static final long GROUP_COMMIT_TIMEOUT_MS = Long.getLong("payroll.groupCommit.timeoutMs", 30_000L);
+    private static PayrollGroupCommitter groupCommitter;
+
+    private final DatabaseConnection database;
+    private final EmployeeDAO employeeDAO;
+    private final PayPeriodDAO payPeriodDAO;
 
     public PayrollDAO() throws SQLException {
-        this.connection = DatabaseConnection.getInstance().getConnection();
+        this.database = DatabaseConnection.getInstance();
+        this.employeeDAO = new EmployeeDAO();
+        this.payPeriodDAO = new PayPeriodDAO();
     }
 
-    // Create payroll record
+    // Create payroll record (in the current pay period unless one is set)
     public boolean addPayroll(Payroll payroll) {
-        String sql = "INSERT INTO payroll (employee_id, bonuses, deductions, net_salary) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = "INSERT INTO payroll (employee_id, pay_period, bonuses, deductions, net_salary) VALUES (?, ?, ?, ?, ?)";
+        long generation = aggregates.currentGeneration();
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            if (payroll.getPayPeriod() == 0) {
+                payroll.setPayPeriod(openPeriod());
+            }
             pstmt.setInt(1, payroll.getEmployeeId());
-            pstmt.setBigDecimal(2, payroll.getBonuses());
-            pstmt.setBigDecimal(3, payroll.getDeductions());
-            pstmt.setBigDecimal(4, payroll.getNetSalary());
+            pstmt.setInt(2, payroll.getPayPeriod());
+            Money.bind(pstmt, 3, payroll.getBonusesCents());
+            Money.bind(pstmt, 4, payroll.getDeductionsCents());
+            Money.bind(pstmt, 5, payroll.getNetSalaryCents());
+            connection.setAutoCommit(false);
             
             int result = pstmt.executeUpdate();
+            if (result > 0) {
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        payroll.setId(keys.getInt(1));
+                    }
+                }
+                if (payroll.getId() > 0) {
+                    ChangeLog.append(connection, ChangeLog.PAYROLL, ChangeLog.INSERT, payroll.getId(), null);
+                } else {
+                    ChangeLog.append(connection, ChangeLog.PAYROLL, ChangeLog.BULK, payroll.getPayPeriod(), null);
+                }
+            }
+            connection.commit();
+            if (result > 0) {
+                payrollInserted(payroll, generation);
+            }
             return result > 0;
-        } catch (SQLException e) {
+        } catch (SQLException | ArithmeticException e) {
             System.out.println("Error adding payroll: " + e.getMessage());
             return false;
         }
     }
 
+    // The current pay period, created on first use; new payroll may only go into an OPEN one
+    private int openPeriod() throws SQLException {
+        int period = PayPeriod.current();
+        String status = payPeriodDAO.ensurePeriod(period);
+        if (!PayPeriod.OPEN.equals(status)) {
+            throw new SQLException("Pay period " + PayPeriod.format(period) + " is " + status.toLowerCase());
+        }
+        return period;
+    }
+
+    // Bring the in-memory views up to date with a committed insert; generation is the aggregates'
+    // from before the insert started
+    private void payrollInserted(Payroll payroll, long generation) {
+        if (!payroll.hasCreatedAt()) {
+            payroll.setCreatedAtMillis(System.currentTimeMillis());
+        }
+        String department = departmentOf(payroll.getEmployeeId());
+        aggregates.payrollAdded(department, payroll.getNetSalary(), generation);
+        if (payroll.getId() > 0) {
+            historyCache.payrollAdded(payroll);
+            columnStore.append(payroll.getId(), payroll.getEmployeeId(), payroll.getBonusesCents(),
+                    payroll.getDeductionsCents(), payroll.getNetSalaryCents(), payroll.getCreatedAtMillis(),
+                    department);
+        } else {
+            historyCache.invalidate(payroll.getEmployeeId());
+            columnStore.invalidate();
+        }
+    }
+
     // Get all payroll records with employee details
     public List<Payroll> getAllPayrollRecords() {
         List<Payroll> payrolls = new ArrayList<>();
@@ -37,16 +132,18 @@ public class PayrollDAO {
             ORDER BY p.id DESC
             """;
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = database.getReadConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
                 Payroll payroll = new Payroll();
                 payroll.setId(rs.getInt("id"));
                 payroll.setEmployeeId(rs.getInt("employee_id"));
-                payroll.setBonuses(rs.getBigDecimal("bonuses"));
-                payroll.setDeductions(rs.getBigDecimal("deductions"));
-                payroll.setNetSalary(rs.getBigDecimal("net_salary"));
+                payroll.setPayPeriod(rs.getInt("pay_period"));
+                payroll.setBonusesCents(Money.read(rs, "bonuses"));
+                payroll.setDeductionsCents(Money.read(rs, "deductions"));
+                payroll.setNetSalaryCents(Money.read(rs, "net_salary"));
                 payroll.setCreatedAt(rs.getTimestamp("created_at"));
                 payrolls.add(payroll);
             }
@@ -56,10 +153,78 @@ public class PayrollDAO {
         return payrolls;
     }
 
+    // Stream one page of payroll records (by id, newest first unless ascending is requested) with optional
+    // department, employee, pay period and created_at filters. The same Payroll instance is reused for every
+    // row, so the callback must not keep a reference to it. Returns the "after" cursor for the next page, or 0
+    // when this is the last page.
+    public int streamPayrollRecords(PageRequest page, RowCallback<Payroll> callback) throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT p.* FROM payroll p JOIN employee e ON p.employee_id = e.id WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (page.getAfter() > 0) {
+            sql.append(page.isDescending() ? " AND p.id < ?" : " AND p.id > ?");
+            params.add(page.getAfter());
+        }
+        if (page.getDepartment() != null) {
+            sql.append(" AND e.department = ?");
+            params.add(page.getDepartment());
+        }
+        if (page.getEmployeeId() > 0) {
+            sql.append(" AND p.employee_id = ?");
+            params.add(page.getEmployeeId());
+        }
+        if (page.getPayPeriod() > 0) {
+            sql.append(" AND p.pay_period = ?");
+            params.add(page.getPayPeriod());
+        }
+        if (page.getFrom() != null) {
+            sql.append(" AND p.created_at >= ?");
+            params.add(page.getFrom());
+        }
+        if (page.getTo() != null) {
+            sql.append(" AND p.created_at < ?");
+            params.add(page.getTo());
+        }
+        sql.append(page.isDescending() ? " ORDER BY p.id DESC" : " ORDER BY p.id");
+        if (page.hasLimit()) {
+            // One extra row tells us whether there is a next page
+            sql.append(" LIMIT ?");
+            params.add(page.getLimit() + 1);
+        }
+
+        int rows = 0;
+        try (Connection connection = database.getReadConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            bindParameters(pstmt, params);
+            pstmt.setFetchSize(DatabaseConnection.getFetchSize());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Payroll payroll = new Payroll();
+                while (rs.next()) {
+                    if (page.hasLimit() && rows == page.getLimit()) {
+                        return payroll.getId();
+                    }
+                    payroll.setId(rs.getInt("id"));
+                    payroll.setEmployeeId(rs.getInt("employee_id"));
+                    payroll.setPayPeriod(rs.getInt("pay_period"));
+                    payroll.setBonusesCents(Money.read(rs, "bonuses"));
+                    payroll.setDeductionsCents(Money.read(rs, "deductions"));
+                    payroll.setNetSalaryCents(Money.read(rs, "net_salary"));
+                    payroll.setCreatedAt(rs.getTimestamp("created_at"));
+                    callback.accept(payroll);
+                    rows++;
+                }
+            }
+        }
+        return 0;
+    }
+
     // Get payroll record by ID
     public Payroll getPayrollById(int id) {
         String sql = "SELECT * FROM payroll WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -67,9 +232,10 @@ public class PayrollDAO {
                     Payroll payroll = new Payroll();
                     payroll.setId(rs.getInt("id"));
                     payroll.setEmployeeId(rs.getInt("employee_id"));
-                    payroll.setBonuses(rs.getBigDecimal("bonuses"));
-                    payroll.setDeductions(rs.getBigDecimal("deductions"));
-                    payroll.setNetSalary(rs.getBigDecimal("net_salary"));
+                    payroll.setPayPeriod(rs.getInt("pay_period"));
+                    payroll.setBonusesCents(Money.read(rs, "bonuses"));
+                    payroll.setDeductionsCents(Money.read(rs, "deductions"));
+                    payroll.setNetSalaryCents(Money.read(rs, "net_salary"));
                     payroll.setCreatedAt(rs.getTimestamp("created_at"));
                     return payroll;
                 }
@@ -82,54 +248,154 @@ public class PayrollDAO {
 
     // Get payroll records by employee ID
     public List<Payroll> getPayrollByEmployeeId(int employeeId) {
+        try {
+            return loadPayrollHistory(employeeId, 0);
+        } catch (SQLException e) {
+            System.out.println("Error retrieving payroll by employee ID: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // An employee's latest payroll records, newest first; served from the history cache when it holds them
+    public List<Payroll> getPayrollHistory(int employeeId, int limit) throws SQLException {
+        List<Payroll> cached = historyCache.get(employeeId, limit);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = historyCache.currentGeneration(employeeId);
+        // Load at least a full cache entry so the next request with a smaller limit is a hit
+        List<Payroll> rows = loadPayrollHistory(employeeId, Math.max(limit, historyCache.getDepth()));
+        historyCache.put(employeeId, rows, generation);
+        return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+
+    // Newest first through the covering index; limit 0 reads them all
+    private List<Payroll> loadPayrollHistory(int employeeId, int limit) throws SQLException {
         List<Payroll> payrolls = new ArrayList<>();
-        String sql = "SELECT * FROM payroll WHERE employee_id = ? ORDER BY created_at DESC";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = limit > 0 ? HISTORY_SQL + " LIMIT ?" : HISTORY_SQL;
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, employeeId);
-            
+            if (limit > 0) pstmt.setInt(2, limit);
+
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Payroll payroll = new Payroll();
-                    payroll.setId(rs.getInt("id"));
-                    payroll.setEmployeeId(rs.getInt("employee_id"));
-                    payroll.setBonuses(rs.getBigDecimal("bonuses"));
-                    payroll.setDeductions(rs.getBigDecimal("deductions"));
-                    payroll.setNetSalary(rs.getBigDecimal("net_salary"));
-                    payroll.setCreatedAt(rs.getTimestamp("created_at"));
-                    payrolls.add(payroll);
+                    payrolls.add(readHistoryRow(rs));
                 }
             }
-        } catch (SQLException e) {
-            System.out.println("Error retrieving payroll by employee ID: " + e.getMessage());
         }
         return payrolls;
     }
 
-    // Update payroll record
+    private static Payroll readHistoryRow(ResultSet rs) throws SQLException {
+        Payroll payroll = new Payroll();
+        payroll.setId(rs.getInt("id"));
+        payroll.setEmployeeId(rs.getInt("employee_id"));
+        payroll.setPayPeriod(rs.getInt("pay_period"));
+        payroll.setBonusesCents(Money.read(rs, "bonuses"));
+        payroll.setDeductionsCents(Money.read(rs, "deductions"));
+        payroll.setNetSalaryCents(Money.read(rs, "net_salary"));
+        payroll.setCreatedAt(rs.getTimestamp("created_at"));
+        return payroll;
+    }
+
+    // Apply payroll another node inserted (see ChangeLogTailer) the same way as a local insert, so the
+    // totals, analytics columns and cached histories stay warm; rows already gone are skipped.
+    // generation is the aggregates' from before the rows could have committed (see ChangeLogTailer).
+    public void applyRemoteInserts(Set<Integer> ids, long generation) throws SQLException {
+        if (ids.isEmpty()) return;
+        String sql = "SELECT id, employee_id, pay_period, bonuses, deductions, net_salary, created_at "
+                + "FROM payroll WHERE id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ") ORDER BY id";
+        List<Payroll> rows = new ArrayList<>(ids.size());
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            // One-off IN list sizes would only crowd the statement cache
+            pstmt.setPoolable(false);
+            int i = 1;
+            for (int id : ids) pstmt.setInt(i++, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(readHistoryRow(rs));
+                }
+            }
+        }
+        for (Payroll payroll : rows) {
+            payrollInserted(payroll, generation);
+        }
+    }
+
+    // Payroll another node updated or deleted (or wrote in bulk): drop what depends on it.
+    // employeeId is 0 when the change was not tied to one employee.
+    public static void applyRemoteChange(int employeeId) {
+        aggregates.invalidate();
+        columnStore.invalidate();
+        if (employeeId > 0) {
+            historyCache.invalidate(employeeId);
+        } else {
+            historyCache.invalidateAll();
+        }
+    }
+
+    // Update payroll record; false unless it is in an OPEN period
     public boolean updatePayroll(Payroll payroll) {
-        String sql = "UPDATE payroll SET bonuses = ?, deductions = ?, net_salary = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setBigDecimal(1, payroll.getBonuses());
-            pstmt.setBigDecimal(2, payroll.getDeductions());
-            pstmt.setBigDecimal(3, payroll.getNetSalary());
+        long generation = aggregates.currentGeneration();
+        Payroll previous = getPayrollById(payroll.getId());
+        String sql = "UPDATE payroll SET bonuses = ?, deductions = ?, net_salary = ? WHERE id = ? AND " + IN_OPEN_PERIOD;
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            Money.bind(pstmt, 1, payroll.getBonusesCents());
+            Money.bind(pstmt, 2, payroll.getDeductionsCents());
+            Money.bind(pstmt, 3, payroll.getNetSalaryCents());
             pstmt.setInt(4, payroll.getId());
+            pstmt.setString(5, PayPeriod.OPEN);
+            connection.setAutoCommit(false);
             
             int result = pstmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.append(connection, ChangeLog.PAYROLL, ChangeLog.UPDATE, payroll.getId(),
+                        previous != null ? String.valueOf(previous.getEmployeeId()) : null);
+            }
+            connection.commit();
+            if (previous != null) {
+                historyCache.invalidate(previous.getEmployeeId());
+            }
+            if (result > 0 && previous != null) {
+                String department = departmentOf(previous.getEmployeeId());
+                aggregates.payrollRemoved(department, previous.getNetSalary(), generation);
+                aggregates.payrollAdded(department, payroll.getNetSalary(), generation);
+            }
+            columnStore.invalidate();
             return result > 0;
-        } catch (SQLException e) {
+        } catch (SQLException | ArithmeticException e) {
             System.out.println("Error updating payroll: " + e.getMessage());
             return false;
         }
     }
 
-    // Delete payroll record
+    // Delete payroll record; false unless it is in an OPEN period
     public boolean deletePayroll(int id) {
-        String sql = "DELETE FROM payroll WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        long generation = aggregates.currentGeneration();
+        Payroll previous = getPayrollById(id);
+        String sql = "DELETE FROM payroll WHERE id = ? AND " + IN_OPEN_PERIOD;
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
+            pstmt.setString(2, PayPeriod.OPEN);
+            connection.setAutoCommit(false);
             
             int result = pstmt.executeUpdate();
+            if (result > 0) {
+                ChangeLog.append(connection, ChangeLog.PAYROLL, ChangeLog.DELETE, id,
+                        previous != null ? String.valueOf(previous.getEmployeeId()) : null);
+            }
+            connection.commit();
+            if (previous != null) {
+                historyCache.invalidate(previous.getEmployeeId());
+            }
+            if (result > 0 && previous != null) {
+                aggregates.payrollRemoved(departmentOf(previous.getEmployeeId()), previous.getNetSalary(), generation);
+            }
+            columnStore.invalidate();
             return result > 0;
         } catch (SQLException e) {
             System.out.println("Error deleting payroll: " + e.getMessage());
@@ -139,51 +405,346 @@ public class PayrollDAO {
 
     // Calculate and create payroll for employee
     public boolean calculatePayroll(int employeeId, BigDecimal bonuses, BigDecimal deductions) {
-        // First get employee's basic salary
-        String getEmployeeSql = "SELECT basic_salary FROM employee WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(getEmployeeSql)) {
-            pstmt.setInt(1, employeeId);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    BigDecimal basicSalary = rs.getBigDecimal("basic_salary");
-                    BigDecimal netSalary = basicSalary.add(bonuses).subtract(deductions);
-                    
-                    // Create new payroll record
-                    Payroll payroll = new Payroll(employeeId, bonuses, deductions, netSalary);
-                    return addPayroll(payroll);
+        return createPayroll(employeeId, bonuses, deductions) != null;
+    }
+
+    // Calculate and create payroll for employee, returning the saved record (with its id) or null
+    public Payroll createPayroll(int employeeId, BigDecimal bonuses, BigDecimal deductions) {
+        // First get employee's basic salary (usually straight from the employee cache)
+        Employee employee = employeeDAO.getEmployeeById(employeeId);
+        if (employee == null) {
+            return null;
+        }
+
+        // Create new payroll record
+        Payroll payroll = new Payroll(employeeId, Money.toCents(bonuses), Money.toCents(deductions), 0);
+        payroll.calculateNetSalary(employee.getBasicSalary());
+        if (!GROUP_COMMIT) {
+            return addPayroll(payroll) ? payroll : null;
+        }
+
+        try {
+            payroll.setPayPeriod(openPeriod());
+            PayrollGroupCommitter committer = groupCommitter();
+            CompletableFuture<Payroll> result = committer.submit(payroll);
+            try {
+                return result.get(GROUP_COMMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (committer.withdraw(result)) {
+                    // Never written, so the caller can safely retry
+                    System.out.println("Error adding payroll: timed out waiting for group commit");
+                    return null;
+                }
+                // Already in a batch being written: reporting a failure now could make a retry write it twice
+                try {
+                    return result.get(GROUP_COMMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException stillWriting) {
+                    System.out.println("Error adding payroll: group commit batch still writing; the row may yet be saved");
+                    return null;
                 }
             }
+        } catch (ExecutionException e) {
+            System.out.println("Error adding payroll: " + e.getCause().getMessage());
         } catch (SQLException e) {
-            System.out.println("Error calculating payroll: " + e.getMessage());
+            System.out.println("Error adding payroll: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return false;
+        return null;
     }
 
-    // Get payroll summary statistics
-    public String getPayrollSummary() {
-        String sql = """
-            SELECT 
-                COUNT(*) as total_records,
-                SUM(net_salary) as total_payout,
-                AVG(net_salary) as average_salary
-            FROM payroll
-            """;
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            if (rs.next()) {
-                return String.format(
-                    "Total Records: %d, Total Payout: $%.2f, Average Salary: $%.2f",
-                    rs.getInt("total_records"),
-                    rs.getBigDecimal("total_payout"),
-                    rs.getBigDecimal("average_salary")
-                );
+    private PayrollGroupCommitter groupCommitter() {
+        synchronized (PayrollDAO.class) {
+            if (groupCommitter == null) {
+                groupCommitter = new PayrollGroupCommitter(database, aggregates::currentGeneration, this::payrollInserted,
+                        GROUP_COMMIT_WINDOW_MICROS, GROUP_COMMIT_MAX_BATCH);
+            }
+            return groupCommitter;
+        }
+    }
+
+    // Null unless group commit is enabled and has been used
+    public static synchronized PayrollGroupCommitter getGroupCommitter() {
+        return groupCommitter;
+    }
+
+    public static synchronized void shutdownGroupCommit() {
+        if (groupCommitter != null) {
+            groupCommitter.shutdown();
+        }
+    }
+
+    // Run payroll for every employee (optionally only some departments) with one bonus/deduction policy.
+    // Employees are read a page at a time in id order and their payroll rows written as one JDBC batch, one
+    // transaction per page on a single connection, so a failure only rolls back the page in flight. Each
+    // transaction locks the pay period and checks it is still OPEN, so a run cannot write into a period that
+    // closed part way through.
+    public PayrollRunResult runPayroll(List<String> departments, BigDecimal bonuses, BigDecimal deductions) {
+        PayrollRunResult result = new PayrollRunResult();
+        long start = System.nanoTime();
+
+        StringBuilder selectSql = new StringBuilder("SELECT id, basic_salary FROM employee WHERE id > ?");
+        if (departments != null && !departments.isEmpty()) {
+            selectSql.append(" AND department IN (");
+            for (int i = 0; i < departments.size(); i++) {
+                selectSql.append(i == 0 ? "?" : ", ?");
+            }
+            selectSql.append(")");
+        }
+        selectSql.append(" ORDER BY id LIMIT ").append(RUN_BATCH_SIZE);
+        String insertSql = "INSERT INTO payroll (employee_id, pay_period, bonuses, deductions, net_salary) VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection connection = database.getConnection();
+             PreparedStatement select = connection.prepareStatement(selectSql.toString());
+             PreparedStatement insert = connection.prepareStatement(insertSql)) {
+            if (departments != null) {
+                for (int i = 0; i < departments.size(); i++) {
+                    select.setString(i + 2, departments.get(i));
+                }
+            }
+            int period = openPeriod();
+            connection.setAutoCommit(false);
+
+            // The policy amounts are the same for every row, so convert and bind them once
+            long bonusCents = Money.toCents(bonuses);
+            long deductionCents = Money.toCents(deductions);
+            BigDecimal bonusValue = Money.toDecimal(Money.checkColumn(bonusCents));
+            BigDecimal deductionValue = Money.toDecimal(Money.checkColumn(deductionCents));
+
+            int lastId = 0;
+            while (true) {
+                PayPeriodDAO.lockOpen(connection, period);
+                select.setInt(1, lastId);
+                int pending = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getInt("id");
+                        long netSalary = Money.netSalary(Money.read(rs, "basic_salary"), bonusCents, deductionCents);
+                        insert.setInt(1, lastId);
+                        insert.setInt(2, period);
+                        insert.setBigDecimal(3, bonusValue);
+                        insert.setBigDecimal(4, deductionValue);
+                        Money.bind(insert, 5, netSalary);
+                        insert.addBatch();
+                        pending++;
+                    }
+                }
+                if (pending == 0) {
+                    connection.commit();
+                    break;
+                }
+                flushRunBatch(connection, insert, result, pending, period);
+                if (pending < RUN_BATCH_SIZE) break;
             }
+            result.setSuccess(true);
+            result.setMessage("Payroll run completed");
+        } catch (SQLException | ArithmeticException e) {
+            System.out.println("Error running payroll: " + e.getMessage());
+            result.setSuccess(false);
+            result.setMessage("Payroll run stopped after " + result.getRowsInserted() + " rows: " + e.getMessage());
+        }
+        if (result.getRowsInserted() > 0) {
+            // Cheaper to rebuild the totals once than to track every row of a bulk run
+            aggregates.invalidate();
+            columnStore.invalidate();
+            historyCache.invalidateAll();
+        }
+        result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private void flushRunBatch(Connection connection, PreparedStatement insert, PayrollRunResult result, int rows,
+                               int period) throws SQLException {
+        try {
+            insert.executeBatch();
+            ChangeLog.append(connection, ChangeLog.PAYROLL, ChangeLog.BULK, period, null);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+        result.setRowsInserted(result.getRowsInserted() + rows);
+        result.setBatches(result.getBatches() + 1);
+    }
+
+    // Get payroll summary statistics (served from memory once loaded)
+    public PayrollSummary getPayrollSummary() {
+        try {
+            return aggregates.snapshot(this);
         } catch (SQLException e) {
             System.out.println("Error getting payroll summary: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Full rebuild of the summary totals
+    @Override
+    public PayrollSummary loadSummary() throws SQLException {
+        String payrollSql = """
+            SELECT e.department,
+                COUNT(*) as total_records,
+                SUM(p.net_salary) as total_payout,
+                MIN(p.net_salary) as min_salary,
+                MAX(p.net_salary) as max_salary
+            FROM payroll p
+            JOIN employee e ON p.employee_id = e.id
+            GROUP BY e.department
+            """;
+        String employeeSql = "SELECT COUNT(*) as total_employees, SUM(basic_salary) as total_basic_salary FROM employee";
+
+        PayrollSummary summary = new PayrollSummary();
+        try (Connection connection = database.getConnection();
+             Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(payrollSql)) {
+                while (rs.next()) {
+                    summary.getDepartments().add(new PayrollSummary.Department(
+                            rs.getString("department"),
+                            rs.getLong("total_records"),
+                            rs.getBigDecimal("total_payout"),
+                            rs.getBigDecimal("min_salary"),
+                            rs.getBigDecimal("max_salary")));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(employeeSql)) {
+                if (rs.next()) {
+                    summary.setEmployeeCount(rs.getLong("total_employees"));
+                    BigDecimal total = rs.getBigDecimal("total_basic_salary");
+                    summary.setTotalBasicSalary(total != null ? total : BigDecimal.ZERO);
+                }
+            }
+        }
+        return summary;
+    }
+
+    // Reload one department's totals after its minimum or maximum was deleted
+    @Override
+    public PayrollSummary.Department loadDepartment(String department) throws SQLException {
+        String sql = """
+            SELECT COUNT(*) as total_records,
+                SUM(p.net_salary) as total_payout,
+                MIN(p.net_salary) as min_salary,
+                MAX(p.net_salary) as max_salary
+            FROM payroll p
+            JOIN employee e ON p.employee_id = e.id
+            WHERE e.department = ?
+            """;
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, department);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                BigDecimal total = rs.getBigDecimal("total_payout");
+                return new PayrollSummary.Department(department, rs.getLong("total_records"),
+                        total != null ? total : BigDecimal.ZERO,
+                        rs.getBigDecimal("min_salary"), rs.getBigDecimal("max_salary"));
+            }
+        }
+    }
+
+    // Stream every payroll row matching the filter (department, employee_id, pay_period, from, to; paging fields are
+    // ignored) with its employee's name and department into an export, in id order, through one cursor.
+    public void exportPayroll(PageRequest filter, PayrollExporter exporter) throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder("""
+            SELECT p.id, p.employee_id, e.name, e.department, p.bonuses, p.deductions, p.net_salary, p.created_at
+            FROM payroll p
+            JOIN employee e ON p.employee_id = e.id
+            WHERE 1 = 1""");
+        List<Object> params = new ArrayList<>();
+        if (filter.getDepartment() != null) {
+            sql.append(" AND e.department = ?");
+            params.add(filter.getDepartment());
+        }
+        if (filter.getEmployeeId() > 0) {
+            sql.append(" AND p.employee_id = ?");
+            params.add(filter.getEmployeeId());
+        }
+        if (filter.getPayPeriod() > 0) {
+            sql.append(" AND p.pay_period = ?");
+            params.add(filter.getPayPeriod());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND p.created_at >= ?");
+            params.add(filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND p.created_at < ?");
+            params.add(filter.getTo());
+        }
+        sql.append(" ORDER BY p.id");
+
+        try (Connection connection = database.getReadConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            bindParameters(pstmt, params);
+            pstmt.setFetchSize(DatabaseConnection.getFetchSize());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    exporter.row(rs.getInt("id"), rs.getInt("employee_id"), rs.getString("name"),
+                            rs.getString("department"), Money.read(rs, "bonuses"), Money.read(rs, "deductions"),
+                            Money.read(rs, "net_salary"), rs.getTimestamp("created_at"));
+                }
+            }
+        }
+    }
+
+    // Stream payroll joined with department into a fresh column snapshot
+    @Override
+    public void loadColumns(PayrollColumnStore.Builder target) throws SQLException {
+        String sql = """
+            SELECT p.id, p.employee_id, p.bonuses, p.deductions, p.net_salary, p.created_at, e.department
+            FROM payroll p
+            JOIN employee e ON p.employee_id = e.id
+            ORDER BY p.id
+            """;
+        try (Connection connection = database.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(DatabaseConnection.getFetchSize());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    target.append(rs.getInt("id"), rs.getInt("employee_id"),
+                            Money.read(rs, "bonuses"), Money.read(rs, "deductions"), Money.read(rs, "net_salary"),
+                            createdAt != null ? createdAt.getTime() : 0L, rs.getString("department"));
+                }
+            }
+        }
+    }
+
+    // Payout totals grouped by department and/or month
+    public List<PayrollColumnStore.Group> getPayout(PayrollColumnStore.GroupBy groupBy, PayrollColumnStore.Filter filter)
+            throws SQLException {
+        return columnStore.payout(this, groupBy, filter);
+    }
+
+    // Highest net salaries matching the filter
+    public List<PayrollColumnStore.Row> getTopEarners(int limit, PayrollColumnStore.Filter filter) throws SQLException {
+        return columnStore.top(this, limit, filter);
+    }
+
+    public static PayrollAggregates getAggregates() {
+        return aggregates;
+    }
+
+    public static PayrollColumnStore getColumnStore() {
+        return columnStore;
+    }
+
+    public static PayrollHistoryCache getHistoryCache() {
+        return historyCache;
+    }
+
+    private String departmentOf(int employeeId) {
+        Employee employee = employeeDAO.getEmployeeById(employeeId);
+        return employee != null ? employee.getDepartment() : null;
+    }
+
+    private void bindParameters(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
         }
-        return "No payroll data available";
     }
-}
\ No newline at end of file
+}
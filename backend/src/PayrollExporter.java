@@ -0,0 +1,372 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Encodes payroll rows as CSV or NDJSON straight into a direct ByteBuffer and
+ * drains it to a channel: a FileChannel for exports written to disk, or a
+ * channel over the response stream.
+ *
+ * Rows arrive one at a time from PayrollDAO.exportPayroll, so an export holds
+ * one buffer and one cursor whatever its size. Buffers (export.bufferKb,
+ * default 64) come from a pool of export.maxConcurrent (default 4); when all
+ * are in use {@link #acquire} returns null and the caller answers 503, so
+ * concurrent exports cannot add up to unbounded memory either.
+ *
+ * Files go to export.dir (default "exports") under generated names and are
+ * deleted export.retentionMinutes (default 60) after they were written.
+ */
+public final class PayrollExporter implements AutoCloseable {
+    private static final int BUFFER_BYTES = Integer.getInteger("export.bufferKb", 64) * 1024;
+    private static final int MAX_CONCURRENT = Integer.getInteger("export.maxConcurrent", 4);
+    private static final Path DIRECTORY = Paths.get(System.getProperty("export.dir", "exports"));
+    private static final long RETENTION_MILLIS = Long.getLong("export.retentionMinutes", 60L) * 60_000;
+    private static final Pattern FILE_NAME = Pattern.compile("payroll-[0-9]{8}-[0-9]{6}-[0-9a-f]{8}\\.(csv|ndjson)");
+
+    // Written straight after the numeric id, so its first occurrence in an NDJSON line is always the real field
+    private static final String NDJSON_EMPLOYEE_ID = ",\"employee_id\":";
+
+    private static final String CSV_HEADER = "id,employee_id,employee_name,department,bonuses,deductions,net_salary,created_at\n";
+
+    public enum Format {
+        CSV("text/csv; charset=utf-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+
+        public static Format fromParam(String value) {
+            if (value == null || value.equalsIgnoreCase("csv")) return CSV;
+            if (value.equalsIgnoreCase("ndjson")) return NDJSON;
+            throw new IllegalArgumentException("format must be csv or ndjson");
+        }
+    }
+
+    // Direct buffers handed out to running exports; at most MAX_CONCURRENT are ever allocated
+    private static final BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(MAX_CONCURRENT);
+    private static final AtomicInteger allocated = new AtomicInteger();
+
+    private static final LongAdder exports = new LongAdder();
+    private static final LongAdder rejectedExports = new LongAdder();
+    private static final LongAdder exportedRows = new LongAdder();
+    private static final LongAdder exportedBytes = new LongAdder();
+
+    private final Format format;
+    private final ByteBuffer buffer;
+    private final long start = System.nanoTime();
+    private WritableByteChannel channel;
+    private long rows;
+    private long bytesWritten;
+    private boolean closed;
+
+    private PayrollExporter(Format format, ByteBuffer buffer) {
+        this.format = format;
+        this.buffer = buffer;
+    }
+
+    // An exporter with a pooled buffer, or null if export.maxConcurrent exports are already running
+    public static PayrollExporter acquire(Format format) {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            if (allocated.incrementAndGet() > MAX_CONCURRENT) {
+                allocated.decrementAndGet();
+                rejectedExports.increment();
+                return null;
+            }
+            buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        }
+        buffer.clear();
+        return new PayrollExporter(format, buffer);
+    }
+
+    // Start writing to the channel (CSV gets its header row here)
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        if (format == Format.CSV) ascii(CSV_HEADER);
+    }
+
+    public void row(int id, int employeeId, String name, String department,
+                    long bonuses, long deductions, long netSalary, Timestamp createdAt) throws IOException {
+        if (format == Format.CSV) {
+            number(id).put(',');
+            number(employeeId).put(',');
+            csvString(name).put(',');
+            csvString(department).put(',');
+            cents(bonuses).put(',');
+            cents(deductions).put(',');
+            cents(netSalary).put(',');
+            timestamp(createdAt);
+        } else {
+            ascii("{\"id\":");
+            number(id);
+            ascii(NDJSON_EMPLOYEE_ID);
+            number(employeeId);
+            ascii(",\"employee_name\":");
+            jsonString(name);
+            ascii(",\"department\":");
+            jsonString(department);
+            ascii(",\"bonuses\":");
+            cents(bonuses);
+            ascii(",\"deductions\":");
+            cents(deductions);
+            ascii(",\"net_salary\":");
+            cents(netSalary);
+            ascii(",\"created_at\":");
+            if (createdAt == null) {
+                ascii("null");
+            } else {
+                put('"');
+                timestamp(createdAt);
+                put('"');
+            }
+            put('}');
+        }
+        put('\n');
+        rows++;
+    }
+
+    // employee_id of an NDJSON line this class wrote (e.g. from an archive file); -1 if the line has none
+    public static int employeeIdOf(String line) {
+        int start = line.indexOf(NDJSON_EMPLOYEE_ID);
+        if (start < 0) return -1;
+        int value = -1;
+        for (int i = start + NDJSON_EMPLOYEE_ID.length(); i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') break;
+            value = (value < 0 ? 0 : value * 10) + (c - '0');
+        }
+        return value;
+    }
+
+    // Write out whatever is still buffered
+    public void finish() throws IOException {
+        drain();
+    }
+
+    public long getRows() { return rows; }
+
+    // Bytes handed to the channel so far (the response channel may still compress them)
+    public long getBytesWritten() { return bytesWritten; }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    public long getRowsPerSecond() {
+        long millis = getElapsedMillis();
+        return millis <= 0 ? rows : rows * 1000 / millis;
+    }
+
+    public long getBytesPerSecond() {
+        long millis = getElapsedMillis();
+        return millis <= 0 ? bytesWritten : bytesWritten * 1000 / millis;
+    }
+
+    // Return the buffer to the pool and count the export
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        buffers.offer(buffer);
+        exports.increment();
+        exportedRows.add(rows);
+        exportedBytes.add(bytesWritten);
+    }
+
+    // ---------------------- Files ----------------------
+
+    // Export directory (created on first use), with files past their retention deleted
+    public static Path prepareDirectory() throws IOException {
+        Files.createDirectories(DIRECTORY);
+        long cutoff = System.currentTimeMillis() - RETENTION_MILLIS;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY, "payroll-*")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        return DIRECTORY;
+    }
+
+    // A fresh, unguessable file name for a new export
+    public static String newFileName(Format format) {
+        LocalDateTime now = LocalDateTime.now();
+        return String.format("payroll-%04d%02d%02d-%02d%02d%02d-%08x.%s",
+                now.getYear(), now.getMonthValue(), now.getDayOfMonth(),
+                now.getHour(), now.getMinute(), now.getSecond(),
+                ThreadLocalRandom.current().nextInt(), format.getExtension());
+    }
+
+    // Finished export file for a download request, or null if the name is not one of ours or it is gone
+    public static Path resolveFile(String name) {
+        if (name == null || !FILE_NAME.matcher(name).matches()) return null;
+        Path file = DIRECTORY.resolve(name);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    public static long getExportCount() { return exports.sum(); }
+    public static long getRejectedCount() { return rejectedExports.sum(); }
+    public static long getExportedRows() { return exportedRows.sum(); }
+    public static long getExportedBytes() { return exportedBytes.sum(); }
+
+    // ---------------------- Encoding ----------------------
+
+    private PayrollExporter put(char ascii) throws IOException {
+        if (!buffer.hasRemaining()) drain();
+        buffer.put((byte) ascii);
+        return this;
+    }
+
+    private PayrollExporter ascii(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            put(s.charAt(i));
+        }
+        return this;
+    }
+
+    private PayrollExporter number(long value) throws IOException {
+        ensure(20);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int startPosition = buffer.position();
+        do {
+            buffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        // Digits went in least significant first
+        for (int i = startPosition, j = buffer.position() - 1; i < j; i++, j--) {
+            byte b = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, b);
+        }
+        return this;
+    }
+
+    // Two fraction digits, like JsonWriter.writeCents
+    private PayrollExporter cents(long cents) throws IOException {
+        ensure(24);
+        if (cents < 0) {
+            buffer.put((byte) '-');
+            cents = -cents;
+        }
+        number(cents / 100);
+        int fraction = (int) (cents % 100);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + fraction / 10));
+        buffer.put((byte) ('0' + fraction % 10));
+        return this;
+    }
+
+    // yyyy-MM-dd HH:mm:ss in server local time; empty for null
+    private PayrollExporter timestamp(Timestamp value) throws IOException {
+        if (value == null) return this;
+        LocalDateTime t = value.toLocalDateTime();
+        digits(t.getYear(), 4).put('-');
+        digits(t.getMonthValue(), 2).put('-');
+        digits(t.getDayOfMonth(), 2).put(' ');
+        digits(t.getHour(), 2).put(':');
+        digits(t.getMinute(), 2).put(':');
+        return digits(t.getSecond(), 2);
+    }
+
+    private PayrollExporter digits(int value, int width) throws IOException {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            put((char) ('0' + value / divisor % 10));
+        }
+        return this;
+    }
+
+    // RFC 4180: quoted only when it holds a separator, quote or line break
+    private PayrollExporter csvString(String s) throws IOException {
+        if (s == null) return this;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) put('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') put('"');
+            i = utf8(s, i);
+        }
+        if (quote) put('"');
+        return this;
+    }
+
+    private PayrollExporter jsonString(String s) throws IOException {
+        if (s == null) return ascii("null");
+        put('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                put('\\').put(c);
+            } else if (c < 0x20) {
+                ascii("\\u00").put(Character.forDigit(c >> 4, 16)).put(Character.forDigit(c & 0xF, 16));
+            } else {
+                i = utf8(s, i);
+            }
+        }
+        return put('"');
+    }
+
+    // Encode the char at i (and its low surrogate, if paired) as UTF-8; returns the index of the last char used
+    private int utf8(String s, int i) throws IOException {
+        char c = s.charAt(i);
+        ensure(4);
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(++i));
+            buffer.put((byte) (0xF0 | (cp >> 18)));
+            buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (cp & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return i;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
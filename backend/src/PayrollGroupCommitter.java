@@ -0,0 +1,226 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Group commit for single payroll inserts (opt-in with -Dpayroll.groupCommit=true).
+ *
+ * Callers queue their row and wait on a future. One writer thread takes the
+ * first queued row, keeps collecting until the window closes or the batch is
+ * full, and writes the whole batch as one multi-row INSERT in one transaction.
+ * Each caller gets its own row back with the generated id. Under a burst this
+ * means one round trip and one commit (one log flush on MySQL) per batch
+ * instead of per request; a lone request only waits out the window.
+ *
+ * If the batch insert fails (say one row's pay period was closed meanwhile), the
+ * rows are retried one by one, so only the offending request fails. A caller
+ * that gives up waiting can {@link #withdraw} its row while it is still queued;
+ * once the writer has it, the row's outcome is only known from the future.
+ * Shutting down fails every row the writer has not written yet.
+ */
+public class PayrollGroupCommitter {
+    private static final String INSERT_PREFIX = "INSERT INTO payroll (employee_id, pay_period, bonuses, deductions, net_salary) VALUES ";
+
+    private static final class Pending {
+        final Payroll payroll;
+        final CompletableFuture<Payroll> result = new CompletableFuture<>();
+
+        Pending(Payroll payroll) {
+            this.payroll = payroll;
+        }
+    }
+
+    private final DatabaseConnection database;
+    private final LongSupplier generation;
+    private final ObjLongConsumer<Payroll> onInserted;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    // generation is read before each batch is written and handed to onInserted with each committed row
+    public PayrollGroupCommitter(DatabaseConnection database, LongSupplier generation, ObjLongConsumer<Payroll> onInserted,
+                                 long windowMicros, int maxBatch) {
+        this.database = database;
+        this.generation = generation;
+        this.onInserted = onInserted;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.writer = new Thread(this::writeLoop, "payroll-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Queue a row; the future completes with the row (id filled in) once its batch has committed
+    public CompletableFuture<Payroll> submit(Payroll payroll) {
+        Pending pending = new Pending(payroll);
+        if (!running) {
+            pending.result.completeExceptionally(new SQLException("Payroll group commit is shut down"));
+            return pending.result;
+        }
+        queue.add(pending);
+        return pending.result;
+    }
+
+    // Take a row back out of the queue before the writer picks it up. True means it will never be written;
+    // false means it is already in a batch (or done), and the future will report what happened to it.
+    public boolean withdraw(CompletableFuture<Payroll> result) {
+        // removeIf holds the queue's lock, as take and drainTo do, so the writer either has the row or never will
+        if (!queue.removeIf(pending -> pending.result == result)) {
+            return false;
+        }
+        result.completeExceptionally(new SQLException("Payroll request withdrawn before it was written"));
+        return true;
+    }
+
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        failQueued();
+    }
+
+    private void failQueued() {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new SQLException("Payroll group commit is shut down"));
+        }
+    }
+
+    public long getBatchCount() { return batches.sum(); }
+    public long getRowCount() { return rows.sum(); }
+    public long getFallbackCount() { return fallbacks.sum(); }
+    public int getQueued() { return queue.size(); }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    // Whatever is already queued joins for free; after that wait out the rest of the window
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) continue;
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                // Shut down while collecting: these rows were taken off the queue but never written
+                Thread.currentThread().interrupt();
+                for (Pending pending : batch) {
+                    pending.result.completeExceptionally(new SQLException("Payroll group commit is shut down"));
+                }
+                break;
+            } catch (RuntimeException e) {
+                System.out.println("Payroll group commit failed: " + e.getMessage());
+                for (Pending pending : batch) {
+                    pending.result.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+        // Anything submitted while shutdown was draining the queue
+        failQueued();
+    }
+
+    private void write(List<Pending> batch) {
+        long writeGeneration = generation.getAsLong();
+        try {
+            insertBatch(batch);
+            batches.increment();
+            rows.add(batch.size());
+            for (Pending pending : batch) {
+                completeInserted(pending, writeGeneration);
+            }
+        } catch (SQLException | ArithmeticException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // Find the bad row(s): each request gets its own outcome
+            fallbacks.increment();
+            for (Pending pending : batch) {
+                try {
+                    insertBatch(List.of(pending));
+                    batches.increment();
+                    rows.increment();
+                    completeInserted(pending, writeGeneration);
+                } catch (SQLException | ArithmeticException rowError) {
+                    pending.result.completeExceptionally(rowError);
+                }
+            }
+        }
+    }
+
+    private void completeInserted(Pending pending, long writeGeneration) {
+        try {
+            onInserted.accept(pending.payroll, writeGeneration);
+        } finally {
+            pending.result.complete(pending.payroll);
+        }
+    }
+
+    // One multi-row INSERT in one transaction; generated keys come back in row order
+    private void insertBatch(List<Pending> batch) throws SQLException {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + batch.size() * 19).append(INSERT_PREFIX);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+        }
+
+        try (Connection connection = database.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+                // One SQL string per batch size; caching them would push the hot statements out
+                pstmt.setPoolable(batch.size() == 1);
+                int index = 1;
+                for (Pending pending : batch) {
+                    Payroll payroll = pending.payroll;
+                    pstmt.setInt(index++, payroll.getEmployeeId());
+                    pstmt.setInt(index++, payroll.getPayPeriod());
+                    Money.bind(pstmt, index++, payroll.getBonusesCents());
+                    Money.bind(pstmt, index++, payroll.getDeductionsCents());
+                    Money.bind(pstmt, index++, payroll.getNetSalaryCents());
+                }
+                pstmt.executeUpdate();
+                List<Integer> ids = new ArrayList<>(batch.size());
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    for (Pending pending : batch) {
+                        if (!keys.next()) break;
+                        pending.payroll.setId(keys.getInt(1));
+                        ids.add(pending.payroll.getId());
+                    }
+                }
+                ChangeLog.appendAll(connection, ChangeLog.PAYROLL, ChangeLog.INSERT, ids);
+                if (ids.size() < batch.size()) {
+                    ChangeLog.append(connection, ChangeLog.PAYROLL, ChangeLog.BULK, batch.get(0).payroll.getPayPeriod(), null);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                for (Pending pending : batch) {
+                    pending.payroll.setId(0);
+                }
+                throw e;
+            }
+        }
+    }
+}
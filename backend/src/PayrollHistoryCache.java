@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of each employee's most recent payroll records, newest first.
+ *
+ * Holds up to maxEmployees employees (least-recently-used evicted) with at most
+ * depth records each. New payroll is pushed onto the front of a cached history
+ * by {@link #payrollAdded}, so a history view stays warm while payroll is being
+ * written for that employee; updates, deletes and bulk runs invalidate instead.
+ *
+ * A load only caches its result if no write for that employee happened since it
+ * started. Generations are striped by employee id, so payroll written for other
+ * employees does not stop a load from being cached.
+ */
+public class PayrollHistoryCache {
+    private static final int STRIPES = 64;
+
+    private final int maxEmployees;
+    private final int depth;
+    private final long ttlMillis;
+    private final LinkedHashMap<Integer, Entry> entries;
+
+    // Write generations per stripe of employee ids; guarded by entries
+    private final long[] generations = new long[STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PayrollHistoryCache(int maxEmployees, int depth, long ttlMillis) {
+        this.maxEmployees = maxEmployees;
+        this.depth = Math.max(1, depth);
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(Math.min(maxEmployees, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > PayrollHistoryCache.this.maxEmployees) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // The employee's latest `limit` records (copies), or null if they are not all cached
+    public List<Payroll> get(int employeeId, int limit) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(employeeId);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+                entries.remove(employeeId);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+        }
+        // A history shorter than depth is the whole history, so it answers any limit
+        if (entry == null || (limit > entry.rows.length && !entry.complete)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        int count = Math.min(limit, entry.rows.length);
+        List<Payroll> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(copy(entry.rows[i]));
+        }
+        return rows;
+    }
+
+    // Take before reading from the database and pass to put()
+    public long currentGeneration(int employeeId) {
+        synchronized (entries) {
+            return generations[stripe(employeeId)];
+        }
+    }
+
+    // Cache a history loaded newest first with LIMIT depth, unless the employee was written to since
+    public void put(int employeeId, List<Payroll> newestFirst, long loadGeneration) {
+        int count = Math.min(newestFirst.size(), depth);
+        Payroll[] rows = new Payroll[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = copy(newestFirst.get(i));
+        }
+        Entry entry = new Entry(rows, newestFirst.size() < depth, System.currentTimeMillis());
+        synchronized (entries) {
+            if (generations[stripe(employeeId)] != loadGeneration) return;
+            entries.put(employeeId, entry);
+        }
+    }
+
+    // A committed insert: becomes the newest record of a cached history
+    public void payrollAdded(Payroll payroll) {
+        int employeeId = payroll.getEmployeeId();
+        synchronized (entries) {
+            generations[stripe(employeeId)]++;
+            Entry entry = entries.get(employeeId);
+            if (entry == null) return;
+            int kept = Math.min(entry.rows.length, depth - 1);
+            Payroll[] rows = new Payroll[kept + 1];
+            rows[0] = copy(payroll);
+            System.arraycopy(entry.rows, 0, rows, 1, kept);
+            entries.put(employeeId, new Entry(rows, entry.complete && kept == entry.rows.length, entry.loadedAt));
+        }
+    }
+
+    public void invalidate(int employeeId) {
+        synchronized (entries) {
+            generations[stripe(employeeId)]++;
+            entries.remove(employeeId);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            for (int i = 0; i < STRIPES; i++) {
+                generations[i]++;
+            }
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getDepth() { return depth; }
+    public int getMaxEmployees() { return maxEmployees; }
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getEvictionCount() { return evictions.get(); }
+
+    private static int stripe(int employeeId) {
+        return employeeId & (STRIPES - 1);
+    }
+
+    private static Payroll copy(Payroll p) {
+        Payroll copy = new Payroll(p.getEmployeeId(), p.getBonusesCents(), p.getDeductionsCents(), p.getNetSalaryCents());
+        copy.setId(p.getId());
+        copy.setPayPeriod(p.getPayPeriod());
+        copy.setCreatedAtMillis(p.getCreatedAtMillis());
+        return copy;
+    }
+
+    private static final class Entry {
+        final Payroll[] rows;           // newest first, at most depth
+        final boolean complete;         // rows is the employee's whole history
+        final long loadedAt;
+
+        Entry(Payroll[] rows, boolean complete, long loadedAt) {
+            this.rows = rows;
+            this.complete = complete;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
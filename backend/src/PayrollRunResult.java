@@ -0,0 +1,68 @@
+public class PayrollRunResult {
+    private boolean success;
+    private String message;
+    private int rowsInserted;
+    private int batches;
+    private long elapsedMillis;
+
+    // Default constructor
+    public PayrollRunResult() {}
+
+    // Rows written per second over the whole run
+    public long getRowsPerSecond() {
+        if (elapsedMillis <= 0) return rowsInserted;
+        return rowsInserted * 1000L / elapsedMillis;
+    }
+
+    // Getters and Setters
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public int getRowsInserted() {
+        return rowsInserted;
+    }
+
+    public void setRowsInserted(int rowsInserted) {
+        this.rowsInserted = rowsInserted;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public void setBatches(int batches) {
+        this.batches = batches;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "PayrollRunResult{" +
+                "success=" + success +
+                ", message='" + message + '\'' +
+                ", rowsInserted=" + rowsInserted +
+                ", batches=" + batches +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
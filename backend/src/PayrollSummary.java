@@ -0,0 +1,91 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PayrollSummary {
+    private long totalRecords;
+    private BigDecimal totalPayout = BigDecimal.ZERO;
+    private long employeeCount;
+    private BigDecimal totalBasicSalary = BigDecimal.ZERO;
+    private final List<Department> departments = new ArrayList<>();
+
+    // Default constructor
+    public PayrollSummary() {}
+
+    public BigDecimal getAverageSalary() {
+        if (totalRecords == 0) return BigDecimal.ZERO;
+        return totalPayout.divide(BigDecimal.valueOf(totalRecords), 2, RoundingMode.HALF_UP);
+    }
+
+    public BigDecimal getAverageBasicSalary() {
+        if (employeeCount == 0) return BigDecimal.ZERO;
+        return totalBasicSalary.divide(BigDecimal.valueOf(employeeCount), 2, RoundingMode.HALF_UP);
+    }
+
+    // Getters and Setters
+    public long getTotalRecords() {
+        return totalRecords;
+    }
+
+    public void setTotalRecords(long totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+
+    public BigDecimal getTotalPayout() {
+        return totalPayout;
+    }
+
+    public void setTotalPayout(BigDecimal totalPayout) {
+        this.totalPayout = totalPayout;
+    }
+
+    public long getEmployeeCount() {
+        return employeeCount;
+    }
+
+    public void setEmployeeCount(long employeeCount) {
+        this.employeeCount = employeeCount;
+    }
+
+    public BigDecimal getTotalBasicSalary() {
+        return totalBasicSalary;
+    }
+
+    public void setTotalBasicSalary(BigDecimal totalBasicSalary) {
+        this.totalBasicSalary = totalBasicSalary;
+    }
+
+    public List<Department> getDepartments() {
+        return departments;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Total Records: %d, Total Payout: $%.2f, Average Salary: $%.2f",
+                totalRecords, totalPayout, getAverageSalary());
+    }
+
+    // Per-department payroll totals
+    public static class Department {
+        private final String name;
+        private final long count;
+        private final BigDecimal total;
+        private final BigDecimal min;
+        private final BigDecimal max;
+
+        public Department(String name, long count, BigDecimal total, BigDecimal min, BigDecimal max) {
+            this.name = name;
+            this.count = count;
+            this.total = total;
+            this.min = min;
+            this.max = max;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public BigDecimal getTotal() { return total; }
+        public BigDecimal getMin() { return min; }
+        public BigDecimal getMax() { return max; }
+    }
+}
@@ -0,0 +1,153 @@
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for the HttpServer that caps how many requests run at once.
+ *
+ * Requests run on a virtual thread each when the JVM supports it, otherwise on a
+ * fixed pool of platform threads. Requests over the concurrency cap wait in a
+ * bounded queue; once that is full the request is rejected and the server drops
+ * the connection instead of piling up work.
+ */
+public class RequestExecutor implements Executor {
+    public enum Mode { VIRTUAL, PLATFORM }
+
+    private final Mode mode;
+    private final ExecutorService delegate;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Semaphore slots;
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public RequestExecutor(Mode requestedMode, int maxConcurrent, int maxQueued) {
+        if (maxConcurrent < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Invalid limits: maxConcurrent=" + maxConcurrent + ", maxQueued=" + maxQueued);
+        }
+        ExecutorService virtual = requestedMode == Mode.VIRTUAL ? newVirtualThreadExecutor() : null;
+        if (virtual != null) {
+            this.mode = Mode.VIRTUAL;
+            this.delegate = virtual;
+        } else {
+            if (requestedMode == Mode.VIRTUAL) {
+                System.out.println("Virtual threads not available on this JVM, using a platform thread pool");
+            }
+            this.mode = Mode.PLATFORM;
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "http-worker-" + threadNumber.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.delegate = pool;
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.slots = new Semaphore(maxConcurrent);
+    }
+
+    // Build from -Dserver.executor, -Dserver.maxConcurrent and -Dserver.maxQueued
+    public static RequestExecutor fromSystemProperties() {
+        Mode mode = "platform".equalsIgnoreCase(System.getProperty("server.executor", "virtual"))
+                || !supportsVirtualThreads() ? Mode.PLATFORM : Mode.VIRTUAL;
+        int maxConcurrent = Integer.getInteger("server.maxConcurrent", mode == Mode.VIRTUAL ? 256 : 32);
+        int maxQueued = Integer.getInteger("server.maxQueued", 1000);
+        return new RequestExecutor(mode, maxConcurrent, maxQueued);
+    }
+
+    private static boolean supportsVirtualThreads() {
+        try {
+            java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively so the server still runs on older JDKs
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (slots.tryAcquire()) {
+            launch(task);
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Request queue is full (" + maxQueued + " waiting)");
+        }
+        waiting.offer(task);
+        // A running request may have finished between tryAcquire and offer
+        drain();
+    }
+
+    private void launch(Runnable task) {
+        active.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                    slots.release();
+                    drain();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            active.decrementAndGet();
+            slots.release();
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void drain() {
+        while (!waiting.isEmpty() && slots.tryAcquire()) {
+            Runnable next = waiting.poll();
+            if (next == null) {
+                slots.release();
+                return;
+            }
+            queued.decrementAndGet();
+            launch(next);
+        }
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    public Mode getMode() { return mode; }
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public int getMaxQueued() { return maxQueued; }
+    public int getActiveCount() { return active.get(); }
+    public int getQueuedCount() { return queued.get(); }
+    public long getCompletedCount() { return completed.get(); }
+    public long getRejectedCount() { return rejected.get(); }
+}
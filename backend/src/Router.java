@@ -0,0 +1,264 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single dispatch handler for the whole server, mounted on the "/" context.
+ *
+ * Routes are "METHOD /path/{param}" templates compiled into a segment tree
+ * when they are added. A request walks the tree over its raw path by index:
+ * literal segments are compared in place with regionMatches and parameter
+ * segments only record start/end offsets, so matching allocates nothing for
+ * plain routes and one small {@link Params} for routes with parameters.
+ * Integer parameters are parsed straight out of the path. A literal segment
+ * wins over a parameter at the same position.
+ *
+ * The router also does the work every handler used to repeat: CORS headers on
+ * every response, OPTIONS preflights answered here, 404/405 for unknown paths
+ * or methods, the session check on secured routes, per-request read routing
+ * (see {@link DatabaseConnection#beginRequest}) and per-route metrics labelled
+ * by template.
+ */
+public final class Router implements HttpHandler {
+
+    // Route body; parameters are only valid for the duration of the call
+    @FunctionalInterface
+    public interface Handler {
+        void handle(HttpExchange exchange, Params params) throws IOException;
+    }
+
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "DELETE", "PATCH"};
+
+    private static final Params NO_PARAMS = new Params(null);
+
+    private static final class Route {
+        final Handler handler;
+        final boolean secured;
+        final Metrics.Recorder metrics;
+        final String[] paramNames;
+
+        Route(String template, Handler handler, boolean secured, String[] paramNames) {
+            this.handler = handler;
+            this.secured = secured;
+            this.metrics = Metrics.recorder(template);
+            this.paramNames = paramNames;
+        }
+    }
+
+    private static final class Node {
+        String[] literals = new String[0];
+        Node[] literalChildren = new Node[0];
+        Node paramChild;
+        final Route[] byMethod = new Route[METHODS.length];
+        String allow;
+
+        Node literal(String segment) {
+            for (int i = 0; i < literals.length; i++) {
+                if (literals[i].equals(segment)) return literalChildren[i];
+            }
+            literals = Arrays.copyOf(literals, literals.length + 1);
+            literalChildren = Arrays.copyOf(literalChildren, literalChildren.length + 1);
+            literals[literals.length - 1] = segment;
+            return literalChildren[literalChildren.length - 1] = new Node();
+        }
+
+        Route any() {
+            for (Route route : byMethod) {
+                if (route != null) return route;
+            }
+            return null;
+        }
+    }
+
+    private final Node root = new Node();
+    private final Metrics.Recorder unmatched = Metrics.recorder("unmatched");
+    private final Metrics.Recorder preflight = Metrics.recorder("preflight");
+
+    public Router get(String template, Handler handler) { return add("GET", template, handler, true); }
+    public Router post(String template, Handler handler) { return add("POST", template, handler, true); }
+    public Router put(String template, Handler handler) { return add("PUT", template, handler, true); }
+    public Router delete(String template, Handler handler) { return add("DELETE", template, handler, true); }
+
+    // Route that does not need a session (login, health, metrics, static files)
+    public Router open(String method, String template, Handler handler) {
+        return add(method, template, handler, false);
+    }
+
+    private Router add(String method, String template, Handler handler, boolean secured) {
+        int slot = methodSlot(method);
+        if (slot < 0) throw new IllegalArgumentException("Unsupported method: " + method);
+
+        Node node = root;
+        List<String> names = new ArrayList<>();
+        for (String segment : template.split("/")) {
+            if (segment.isEmpty()) continue;
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                if (node.paramChild == null) node.paramChild = new Node();
+                node = node.paramChild;
+                names.add(segment.substring(1, segment.length() - 1));
+            } else {
+                node = node.literal(segment);
+            }
+        }
+        if (node.byMethod[slot] != null) {
+            throw new IllegalArgumentException("Duplicate route: " + method + " " + template);
+        }
+        node.byMethod[slot] = new Route(template, handler, secured, names.toArray(new String[0]));
+
+        StringBuilder allow = new StringBuilder("OPTIONS");
+        for (int i = 0; i < METHODS.length; i++) {
+            if (node.byMethod[i] != null) allow.append(", ").append(METHODS[i]);
+        }
+        node.allow = allow.toString();
+        return this;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        String path = exchange.getRequestURI().getRawPath();
+        String method = exchange.getRequestMethod();
+        MainServer.addCORSHeaders(exchange);
+
+        // Walk the tree segment by segment; only parameter segments are remembered (as offsets)
+        Params params = null;
+        Node node = root;
+        int pos = 0;
+        int length = path.length();
+        while (node != null) {
+            while (pos < length && path.charAt(pos) == '/') pos++;
+            if (pos >= length) break;
+            int end = path.indexOf('/', pos);
+            if (end < 0) end = length;
+            int segmentLength = end - pos;
+            Node next = null;
+            for (int i = 0; i < node.literals.length; i++) {
+                String literal = node.literals[i];
+                if (literal.length() == segmentLength && path.regionMatches(pos, literal, 0, segmentLength)) {
+                    next = node.literalChildren[i];
+                    break;
+                }
+            }
+            if (next == null && node.paramChild != null) {
+                next = node.paramChild;
+                if (params == null) params = new Params(path);
+                params.add(pos, end);
+            }
+            node = next;
+            pos = end;
+        }
+
+        boolean found = node != null && node.allow != null;
+        boolean preflightRequest = found && "OPTIONS".equals(method);
+        int slot = methodSlot(method);
+        Route route = found && slot >= 0 ? node.byMethod[slot] : null;
+        if (route == null && found && slot == 1) route = node.byMethod[0];  // HEAD falls back to GET; HttpResponses drops the body
+
+        Metrics.Recorder metrics = !found ? unmatched
+                : preflightRequest ? preflight
+                : route != null ? route.metrics : node.any().metrics;
+        metrics.begin();
+        int status = 500;
+        try {
+            if (!found) {
+                HttpResponses.sendJson(exchange, 404, "{\"success\":false,\"message\":\"Not found\"}");
+            } else if (preflightRequest) {
+                exchange.getResponseHeaders().set("Allow", node.allow);
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            } else if (route == null) {
+                exchange.getResponseHeaders().set("Allow", node.allow);
+                HttpResponses.sendJson(exchange, 405, "{\"success\":false,\"message\":\"Method not allowed\"}");
+            } else if (!route.secured || Sessions.getInstance().authorize(exchange)) {
+                if (params != null) params.names = route.paramNames;
+                // Reads go to a replica unless this request writes, asks for the primary, or follows the
+                // same user's write (read-your-writes)
+                String username = (String) exchange.getAttribute(Sessions.USERNAME_ATTRIBUTE);
+                boolean write = slot > 1;
+                DatabaseConnection.beginRequest(username, write,
+                        "primary".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("X-Read-Consistency")));
+                try {
+                    route.handler.handle(exchange, params != null ? params : NO_PARAMS);
+                } finally {
+                    DatabaseConnection.endRequest(username, write);
+                }
+            }
+            status = exchange.getResponseCode();
+        } finally {
+            metrics.end(status, System.nanoTime() - start);
+        }
+    }
+
+    private static int methodSlot(String method) {
+        switch (method) {
+            case "GET": return 0;
+            case "HEAD": return 1;
+            case "POST": return 2;
+            case "PUT": return 3;
+            case "DELETE": return 4;
+            case "PATCH": return 5;
+            default: return -1;
+        }
+    }
+
+    // Path parameters as offsets into the raw request path
+    public static final class Params {
+        private final String path;
+        private int[] bounds = new int[4];
+        private int count;
+        private String[] names = new String[0];
+
+        Params(String path) {
+            this.path = path;
+        }
+
+        void add(int start, int end) {
+            if (count + 2 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            bounds[count++] = start;
+            bounds[count++] = end;
+        }
+
+        public int size() {
+            return count / 2;
+        }
+
+        // Parameter value (decoded); allocates, prefer getInt for numeric ids
+        public String get(String name) {
+            int index = indexOf(name);
+            return URLDecoder.decode(path.substring(bounds[index * 2], bounds[index * 2 + 1]), StandardCharsets.UTF_8);
+        }
+
+        // Decimal int parsed in place; NumberFormatException if the segment is not one
+        public int getInt(String name) {
+            int index = indexOf(name);
+            int start = bounds[index * 2];
+            int end = bounds[index * 2 + 1];
+            boolean negative = start < end && path.charAt(start) == '-';
+            if (negative) start++;
+            if (start >= end || end - start > 10) throw new NumberFormatException("Not an integer: " + name);
+            long value = 0;
+            for (int i = start; i < end; i++) {
+                char c = path.charAt(i);
+                if (c < '0' || c > '9') throw new NumberFormatException("Not an integer: " + name);
+                value = value * 10 + (c - '0');
+            }
+            if (negative) value = -value;
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Not an integer: " + name);
+            }
+            return (int) value;
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) return i;
+            }
+            throw new IllegalArgumentException("No path parameter " + name);
+        }
+    }
+}
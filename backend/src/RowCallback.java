@@ -0,0 +1,7 @@
+import java.io.IOException;
+
+// Receives rows one at a time from the streaming DAO methods
+@FunctionalInterface
+public interface RowCallback<T> {
+    void accept(T row) throws IOException;
+}
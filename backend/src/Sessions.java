@@ -0,0 +1,201 @@
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Signed, expiring session tokens checked entirely in memory.
+ *
+ * A token is "payload.signature" (both base64url) where the payload is
+ * "sessionId:username:expiresAtMillis" and the signature is HMAC-SHA256 over
+ * the payload. Validating a request means checking the signature and the
+ * expiry, so no route that goes through {@link #authorize} touches the
+ * database to find out who is calling, and any server holding the same key
+ * accepts the token.
+ *
+ * Logout is the only state: revoked session ids are kept until their token
+ * would have expired (a daemon thread sweeps them every session.sweepSeconds),
+ * and each revocation goes into the change log so every other server refuses
+ * the token too (see {@link ChangeLogTailer}). The signing key comes from
+ * session.secret (base64), which servers sharing a database must all be given;
+ * without it the key is generated at startup, so tokens only work on the
+ * server that issued them and a restart logs everyone out.
+ */
+public final class Sessions {
+    public static final String USERNAME_ATTRIBUTE = "session.username";
+
+    private static final long TTL_MILLIS = Long.getLong("session.ttlMinutes", 480L) * 60_000;
+    private static final long SWEEP_SECONDS = Long.getLong("session.sweepSeconds", 60L);
+    private static final String HMAC = "HmacSHA256";
+
+    private static final Sessions instance = new Sessions();
+
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec key;
+    private final boolean sharedKey;
+    // Mac instances are not thread-safe and cost a provider lookup to create, so keep one per thread
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+    // Revoked session id -> when its token expires anyway
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private Sessions() {
+        String secret = System.getProperty("session.secret");
+        byte[] keyBytes;
+        this.sharedKey = secret != null && !secret.isEmpty();
+        if (sharedKey) {
+            keyBytes = Base64.getDecoder().decode(secret);
+        } else {
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+        }
+        this.key = new SecretKeySpec(keyBytes, HMAC);
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static Sessions getInstance() {
+        return instance;
+    }
+
+    // Start a session and return its token
+    public String create(String username) {
+        byte[] idBytes = new byte[16];
+        random.nextBytes(idBytes);
+        String id = Base64.getUrlEncoder().withoutPadding().encodeToString(idBytes);
+        long expiresAt = System.currentTimeMillis() + TTL_MILLIS;
+        issued.increment();
+
+        String payload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((id + ":" + username + ":" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        return payload + "." + sign(payload);
+    }
+
+    // Username for a live token, or null
+    public String validate(String token) {
+        String[] claims = claims(token);
+        return claims != null ? claims[1] : null;
+    }
+
+    // Log out the session behind a token on every server; false if it was not live. The revocation is written to
+    // the change log first, so if that fails (SQLException) the token still works everywhere rather than only here.
+    public boolean revoke(String token) throws SQLException {
+        String[] claims = claims(token);
+        if (claims == null) return false;
+        String revocation = claims[0] + ":" + claims[2];
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            ChangeLog.append(connection, ChangeLog.SESSION, ChangeLog.DELETE, 0, revocation);
+        }
+        return applyRevocation(revocation);
+    }
+
+    // Refuse a session another server revoked ("sessionId:expiresAtMillis", the change log's entity_key)
+    public boolean applyRevocation(String revocation) {
+        int colon = revocation.lastIndexOf(':');
+        if (colon <= 0) return false;
+        long expiresAt;
+        try {
+            expiresAt = Long.parseLong(revocation.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (expiresAt <= System.currentTimeMillis()) return false;
+        return revoked.put(revocation.substring(0, colon), expiresAt) == null;
+    }
+
+    // {sessionId, username, expiresAtMillis} of a correctly signed, unexpired, unrevoked token, or null
+    private String[] claims(String token) {
+        if (token == null) return null;
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) return null;
+
+        String payload = token.substring(0, dot);
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) return null;
+
+        String[] claims;
+        long expiresAt;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8);
+            // The id has no ':' and the expiry is a number, so the username is whatever lies between
+            int first = decoded.indexOf(':');
+            int last = decoded.lastIndexOf(':');
+            if (first <= 0 || last == first) return null;
+            claims = new String[]{decoded.substring(0, first), decoded.substring(first + 1, last), decoded.substring(last + 1)};
+            expiresAt = Long.parseLong(claims[2]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (expiresAt <= System.currentTimeMillis() || revoked.containsKey(claims[0])) return null;
+        return claims;
+    }
+
+    // Bearer token from the Authorization header, or null
+    public static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        return header.substring(7).trim();
+    }
+
+    // True if the request carries a live session; otherwise answers 401 and returns false
+    public boolean authorize(HttpExchange exchange) throws IOException {
+        String username = validate(bearerToken(exchange));
+        if (username == null) {
+            rejected.increment();
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            HttpResponses.sendJson(exchange, 401, "{\"success\":false,\"message\":\"Authentication required\"}");
+            return false;
+        }
+        exchange.setAttribute(USERNAME_ATTRIBUTE, username);
+        return true;
+    }
+
+    // False when the key was generated at startup, so no other server accepts this one's tokens
+    public boolean hasSharedKey() { return sharedKey; }
+    public static long getTtlMillis() { return TTL_MILLIS; }
+    public int getRevokedCount() { return revoked.size(); }
+    public long getIssuedCount() { return issued.sum(); }
+    public long getRejectedCount() { return rejected.sum(); }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private String sign(String payload) {
+        byte[] signature = macs.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " not available", e);
+        }
+    }
+}
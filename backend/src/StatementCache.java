@@ -0,0 +1,274 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepared statements kept open on one physical connection, LRU-bounded.
+ *
+ * ConnectionPool routes prepareStatement through here. A hit hands back the
+ * statement prepared on an earlier borrow, so the driver does not parse the
+ * SQL again and, with useServerPrepStmts, MySQL does not prepare it again
+ * either. What callers get is a proxy whose close() puts the statement back
+ * (parameters cleared, open result sets closed, fetch size and limits reset)
+ * instead of closing it, so DAO code keeps its try-with-resources blocks.
+ *
+ * Only the owning connection's borrower touches a cache, so it needs no
+ * locking. If the same SQL is prepared twice within one borrow the second
+ * copy is an ordinary uncached statement. Callers can keep a statement out of
+ * the cache with setPoolable(false) (say, SQL built for one batch size).
+ */
+final class StatementCache {
+
+    // Hit/miss counters shared by every connection of a pool
+    static final class Stats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private static final int DEFAULT = Integer.MIN_VALUE;
+
+    private final int maxSize;
+    private final Stats stats;
+    // Access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int maxSize, Stats stats) {
+        this.maxSize = maxSize;
+        this.stats = stats;
+    }
+
+    // prepareStatement(sql), (sql, autoGeneratedKeys) and (sql, resultSetType, resultSetConcurrency) are cached
+    static boolean isCacheable(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length == 0 || types[0] != String.class) return false;
+        if (types.length == 1) return true;
+        if (types.length == 2) return types[1] == int.class;
+        return types.length == 3 && types[1] == int.class && types[2] == int.class;
+    }
+
+    PreparedStatement prepare(Connection owner, Connection raw, Object[] args) throws SQLException {
+        String sql = (String) args[0];
+        int first = args.length > 1 ? (Integer) args[1] : DEFAULT;
+        int second = args.length > 2 ? (Integer) args[2] : DEFAULT;
+        Key key = new Key(sql, first, second);
+
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            stats.hits.increment();
+            entry.checkOut(owner);
+            return entry.proxy;
+        }
+        stats.misses.increment();
+        PreparedStatement statement = prepareRaw(raw, sql, first, second);
+        if (entry != null) {
+            // Already checked out in this borrow; the duplicate is not cached
+            return statement;
+        }
+
+        entry = new Entry(key, statement);
+        entries.put(key, entry);
+        entry.checkOut(owner);
+        evictOverflow();
+        return entry.proxy;
+    }
+
+    // The connection went back to the pool: anything its borrower left open is returned now
+    void releaseAll() {
+        for (Entry entry : entries.values()) {
+            if (entry.inUse) entry.checkIn();
+        }
+    }
+
+    // The connection is being discarded
+    void clear() {
+        for (Entry entry : entries.values()) {
+            entry.closeQuietly();
+        }
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.inUse) continue;
+            it.remove();
+            eldest.closeQuietly();
+            stats.evictions.increment();
+        }
+    }
+
+    private static PreparedStatement prepareRaw(Connection raw, String sql, int first, int second) throws SQLException {
+        if (first == DEFAULT) return raw.prepareStatement(sql);
+        if (second == DEFAULT) return raw.prepareStatement(sql, first);
+        return raw.prepareStatement(sql, first, second);
+    }
+
+    private static final class Key {
+        final String sql;
+        final int first;
+        final int second;
+        final int hash;
+
+        Key(String sql, int first, int second) {
+            this.sql = sql;
+            this.first = first;
+            this.second = second;
+            this.hash = Objects.hash(sql, first, second);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return first == other.first && second == other.second && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final class Entry implements InvocationHandler {
+        final Key key;
+        final PreparedStatement raw;
+        final PreparedStatement proxy;
+        final List<ResultSet> openResults = new ArrayList<>(2);
+        Connection owner;
+        boolean inUse;
+        boolean batched;
+        // Settings the borrower changed; only those are reset (some drivers run a command per setter)
+        boolean fetchSizeSet;
+        boolean maxRowsSet;
+        boolean queryTimeoutSet;
+        boolean poolable = true;
+
+        Entry(Key key, PreparedStatement raw) {
+            this.key = key;
+            this.raw = raw;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        void checkOut(Connection owner) {
+            this.owner = owner;
+            this.inUse = true;
+        }
+
+        // Logical close: leave the statement as a fresh prepare would
+        void checkIn() {
+            inUse = false;
+            owner = null;
+            try {
+                for (ResultSet rs : openResults) {
+                    rs.close();
+                }
+                openResults.clear();
+                raw.clearParameters();
+                if (batched) {
+                    raw.clearBatch();
+                    batched = false;
+                }
+                if (fetchSizeSet) {
+                    raw.setFetchSize(0);
+                    fetchSizeSet = false;
+                }
+                if (maxRowsSet) {
+                    raw.setMaxRows(0);
+                    maxRowsSet = false;
+                }
+                if (queryTimeoutSet) {
+                    raw.setQueryTimeout(0);
+                    queryTimeoutSet = false;
+                }
+                if (!poolable) discard();
+            } catch (SQLException e) {
+                System.out.println("Dropping cached statement after reset failed: " + e.getMessage());
+                discard();
+            }
+        }
+
+        void discard() {
+            if (entries.get(key) == this) entries.remove(key);
+            closeQuietly();
+        }
+
+        void closeQuietly() {
+            try {
+                raw.close();
+            } catch (SQLException e) {
+                // Statement (or its connection) is already gone
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (inUse) checkIn();
+                    return null;
+                case "isClosed":
+                    return !inUse || raw.isClosed();
+                case "getConnection":
+                    return owner;
+                case "setPoolable":
+                    poolable = (Boolean) args[0];
+                    return null;
+                case "isPoolable":
+                    return poolable;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + key.sql + "]";
+                case "addBatch":
+                    batched = true;
+                    break;
+                case "setFetchSize":
+                    fetchSizeSet = true;
+                    break;
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                    maxRowsSet = true;
+                    break;
+                case "setQueryTimeout":
+                    queryTimeoutSet = true;
+                    break;
+                default:
+                    break;
+            }
+            if (!inUse) {
+                throw new SQLException("Statement has already been closed");
+            }
+            Object result;
+            try {
+                result = method.invoke(raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                openResults.add((ResultSet) result);
+            }
+            return result;
+        }
+    }
+}
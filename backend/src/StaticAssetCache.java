@@ -0,0 +1,160 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory copy of the frontend directory.
+ *
+ * Each file is read once and kept as an immutable {@link Asset} holding the raw
+ * bytes, a gzip copy, a content-hash ETag and its content type. A file is
+ * re-read only when its modification time or size changes, and the file system
+ * is checked for that at most once per check interval.
+ */
+public class StaticAssetCache {
+    private final Path root;
+    private final long checkIntervalMillis;
+    private final ConcurrentHashMap<String, Asset> assets = new ConcurrentHashMap<>();
+
+    public StaticAssetCache(Path root, long checkIntervalMillis) {
+        this.root = root;
+        this.checkIntervalMillis = checkIntervalMillis;
+        preload();
+    }
+
+    private void preload() {
+        if (!Files.isDirectory(root)) {
+            System.out.println("Static file directory not found: " + root.toAbsolutePath());
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    String name = file.getFileName().toString();
+                    assets.put(name, load(name, file));
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error preloading static files: " + e.getMessage());
+        }
+    }
+
+    // Current version of a file in the root directory, or null if there is no such file
+    public Asset get(String fileName) throws IOException {
+        Asset asset = assets.get(fileName);
+        long now = System.currentTimeMillis();
+        if (asset != null && now - asset.checkedAt < checkIntervalMillis) {
+            return asset;
+        }
+
+        Path file = root.resolve(fileName).normalize();
+        if (!file.startsWith(root.normalize())) {
+            return null;
+        }
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            if (asset != null) assets.remove(fileName, asset);
+            return null;
+        }
+        if (!attrs.isRegularFile()) {
+            return null;
+        }
+
+        if (asset != null && asset.lastModified == attrs.lastModifiedTime().toMillis() && asset.size == attrs.size()) {
+            asset.checkedAt = now;
+            return asset;
+        }
+        Asset fresh = load(fileName, file);
+        assets.put(fileName, fresh);
+        return fresh;
+    }
+
+    public int size() {
+        return assets.size();
+    }
+
+    private static Asset load(String name, Path file) throws IOException {
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        byte[] data = Files.readAllBytes(file);
+        byte[] gzipped = gzip(data);
+        return new Asset(data, gzipped.length < data.length ? gzipped : null, etag(data),
+                getContentType(name), lastModified);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(buffer)) {
+            gz.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String etag(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder sb = new StringBuilder(34).append('"');
+            for (int i = 0; i < 16; i++) {
+                sb.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return sb.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String getContentType(String name) {
+        if (name.endsWith(".html")) return "text/html";
+        if (name.endsWith(".css")) return "text/css";
+        if (name.endsWith(".js")) return "application/javascript";
+        return "application/octet-stream";
+    }
+
+    // ---------------------- ASSET ----------------------
+    public static final class Asset {
+        private final byte[] data;
+        private final byte[] gzipped;
+        private final String etag;
+        private final String contentType;
+        private final long lastModified;
+        private final long size;
+        private volatile long checkedAt;
+
+        Asset(byte[] data, byte[] gzipped, String etag, String contentType, long lastModified) {
+            this.data = data;
+            this.gzipped = gzipped;
+            this.etag = etag;
+            this.contentType = contentType;
+            this.lastModified = lastModified;
+            this.size = data.length;
+            this.checkedAt = System.currentTimeMillis();
+        }
+
+        public byte[] getData() { return data; }
+        // Null when compressing would not make the file smaller
+        public byte[] getGzipped() { return gzipped; }
+        public String getEtag() { return etag; }
+        public String getContentType() { return contentType; }
+        public long getLastModified() { return lastModified; }
+
+        // True if an If-None-Match header value names this version
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) return false;
+            for (String tag : ifNoneMatch.split(",")) {
+                String t = tag.trim();
+                if (t.startsWith("W/")) t = t.substring(2);
+                if (t.equals("*") || t.equals(etag)) return true;
+            }
+            return false;
+        }
+    }
+}
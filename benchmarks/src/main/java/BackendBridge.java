@@ -0,0 +1,454 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import swiftpay.bench.Backend;
+
+/**
+ * Implements {@link Backend} from inside the unnamed package, where the backend
+ * classes (and MainServer's package-private helpers) are reachable.
+ */
+public class BackendBridge implements Backend {
+
+    // ---------------------- Request handling ----------------------
+    @Override
+    public Op parseFormData(String query) {
+        return () -> MainServer.parseFormData(query);
+    }
+
+    @Override
+    public Op readRequestBody(byte[] body) {
+        BodyExchange exchange = new BodyExchange(body);
+        return () -> {
+            exchange.rewind();
+            return MainServer.readRequestBody(exchange);
+        };
+    }
+
+    // What Metrics adds to every request besides two nanoTime calls
+    @Override
+    public Op recordLatency() {
+        Metrics.LatencyHistogram histogram = new Metrics.LatencyHistogram();
+        long[] nanos = {0};
+        return () -> {
+            nanos[0] = (nanos[0] + 7_919) & 0xFFFFFFF;
+            histogram.record(nanos[0]);
+            return null;
+        };
+    }
+
+    // Same route table shape as MainServer.buildRouter, with handlers that only read their path parameter
+    @Override
+    public Op route(String method, String path) {
+        int[] sink = {0};
+        Router.Handler plain = (exchange, params) -> sink[0]++;
+        Router.Handler byId = (exchange, params) -> sink[0] += params.getInt("id");
+        Router router = new Router()
+                .open("GET", "/", plain)
+                .open("GET", "/cors", plain)
+                .open("POST", "/api/login", plain)
+                .open("DELETE", "/api/login", plain)
+                .open("GET", "/api/employees", plain)
+                .open("POST", "/api/employees", plain)
+                .open("GET", "/api/employee/{id}", byId)
+                .open("PUT", "/api/employee/{id}", byId)
+                .open("DELETE", "/api/employee/{id}", byId)
+                .open("GET", "/api/payroll", plain)
+                .open("POST", "/api/payroll/calculate", plain)
+                .open("POST", "/api/payroll/run", plain)
+                .open("GET", "/api/payroll/summary", plain)
+                .open("GET", "/api/analytics/payout", plain)
+                .open("GET", "/api/analytics/top", plain)
+                .open("GET", "/api/status", plain)
+                .open("GET", "/api/metrics", plain)
+                .open("GET", "/frontend", plain)
+                .open("GET", "/frontend/{file}", plain);
+        BodyExchange exchange = new BodyExchange(new byte[0], method, URI.create(path));
+        return () -> {
+            exchange.getResponseHeaders().clear();
+            router.handle(exchange);
+            return sink[0];
+        };
+    }
+
+    // ---------------------- JSON ----------------------
+    @Override
+    public Op employeesJson(int rows) {
+        Employee[] employees = employees(rows);
+        DiscardingOutputStream sink = new DiscardingOutputStream();
+        return () -> {
+            JsonWriter writer = new JsonWriter(sink, 8192);
+            writer.writeByte('[');
+            for (int i = 0; i < employees.length; i++) {
+                if (i > 0) writer.writeByte(',');
+                writer.writeEmployee(employees[i]);
+            }
+            writer.writeByte(']');
+            writer.flush();
+            return sink.count;
+        };
+    }
+
+    @Override
+    public Op payrollJson(int rows) {
+        Payroll[] payrolls = payrolls(rows);
+        DiscardingOutputStream sink = new DiscardingOutputStream();
+        return () -> {
+            JsonWriter writer = new JsonWriter(sink, 8192);
+            writer.writeByte('[');
+            for (int i = 0; i < payrolls.length; i++) {
+                if (i > 0) writer.writeByte(',');
+                writer.writePayroll(payrolls[i]);
+            }
+            writer.writeByte(']');
+            writer.flush();
+            return sink.count;
+        };
+    }
+
+    // The MainServer converters JsonWriter replaced, kept here as the baseline
+    @Override
+    public Op legacyEmployeesJson(int rows) {
+        Employee[] employees = employees(rows);
+        return () -> {
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < employees.length; i++) {
+                if (i > 0) json.append(",");
+                Employee e = employees[i];
+                json.append(String.format("{\"id\":%d,\"name\":\"%s\",\"department\":\"%s\",\"basic_salary\":%.2f}",
+                        e.getId(), e.getName(), e.getDepartment(), e.getBasicSalary()));
+            }
+            json.append("]");
+            return json.toString().getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    @Override
+    public Op legacyPayrollJson(int rows) {
+        Payroll[] payrolls = payrolls(rows);
+        return () -> {
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < payrolls.length; i++) {
+                if (i > 0) json.append(",");
+                Payroll p = payrolls[i];
+                json.append(String.format(
+                        "{\"id\":%d,\"employee_id\":%d,\"bonuses\":%.2f,\"deductions\":%.2f,\"net_salary\":%.2f}",
+                        p.getId(), p.getEmployeeId(), p.getBonuses(), p.getDeductions(), p.getNetSalary()));
+            }
+            json.append("]");
+            return json.toString().getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    // ---------------------- Payroll math ----------------------
+    @Override
+    public Op calculateNetSalary() {
+        Payroll payroll = new Payroll(1, new BigDecimal("5000.00"), new BigDecimal("7500.00"), BigDecimal.ZERO);
+        BigDecimal basic = new BigDecimal("75000.00");
+        return () -> {
+            payroll.calculateNetSalary(basic);
+            return payroll.getNetSalaryCents();
+        };
+    }
+
+    @Override
+    public Op calculateNetSalaryCents() {
+        Payroll payroll = new Payroll(1, 500_000L, 750_000L, 0L);
+        long[] basic = {7_500_000L};
+        return () -> {
+            payroll.calculateNetSalary(basic[0]);
+            return payroll.getNetSalaryCents();
+        };
+    }
+
+    // basic + bonuses - deductions in BigDecimal, as Payroll did before it held cents
+    @Override
+    public Op legacyNetSalary() {
+        BigDecimal basic = new BigDecimal("75000.00");
+        BigDecimal bonuses = new BigDecimal("5000.00");
+        BigDecimal deductions = new BigDecimal("7500.00");
+        return () -> basic.add(bonuses).subtract(deductions);
+    }
+
+    // ---------------------- DAO paths ----------------------
+    @Override
+    public void startDatabase(int employees, int payrollsPerEmployee) throws Exception {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+            stmt.execute("RUNSCRIPT FROM 'classpath:/bench-schema.sql'");
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    // SYSTEM_RANGE's column is an upper-case X, which DATABASE_TO_LOWER only finds quoted
+                    "INSERT INTO employee (name, department, basic_salary) "
+                            + "SELECT CONCAT('Employee ', \"X\"), CONCAT('Dept', MOD(\"X\", 12)), 40000 + MOD(\"X\" * 37, 30000) "
+                            + "FROM SYSTEM_RANGE(1, ?)")) {
+                pstmt.setInt(1, employees);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO payroll (employee_id, pay_period, bonuses, deductions, net_salary) "
+                            + "SELECT e.id, ?, 1000, 500, e.basic_salary + 500 FROM employee e CROSS JOIN SYSTEM_RANGE(1, ?)")) {
+                pstmt.setInt(1, PayPeriod.current());
+                pstmt.setInt(2, payrollsPerEmployee);
+                pstmt.executeUpdate();
+            }
+        }
+        EmployeeDAO.getCache().invalidateAll();
+        PayrollDAO.getAggregates().invalidate();
+        PayrollDAO.getColumnStore().invalidate();
+    }
+
+    @Override
+    public void stopDatabase() {
+        DatabaseConnection.closeConnection();
+    }
+
+    @Override
+    public Op getEmployeeById(int employees, boolean cached) {
+        EmployeeDAO dao = newEmployeeDAO();
+        int[] next = {0};
+        return () -> {
+            if (!cached) EmployeeDAO.getCache().invalidateAll();
+            next[0] = next[0] % employees + 1;
+            return dao.getEmployeeById(next[0]);
+        };
+    }
+
+    @Override
+    public Op streamEmployees(int pageSize) {
+        EmployeeDAO dao = newEmployeeDAO();
+        PageRequest page = new PageRequest();
+        page.setLimit(pageSize);
+        long[] checksum = {0};
+        return () -> dao.streamEmployees(page, e -> checksum[0] += e.getId());
+    }
+
+    @Override
+    public Op streamPayroll(int pageSize) {
+        PayrollDAO dao = newPayrollDAO();
+        PageRequest page = new PageRequest();
+        page.setLimit(pageSize);
+        page.setDescending(true);
+        long[] checksum = {0};
+        return () -> dao.streamPayrollRecords(page, p -> checksum[0] += p.getNetSalaryCents());
+    }
+
+    @Override
+    public Op addPayroll(int employees) {
+        PayrollDAO dao = newPayrollDAO();
+        int[] next = {0};
+        return () -> {
+            next[0] = next[0] % employees + 1;
+            return dao.calculatePayroll(next[0], new BigDecimal("1000.00"), new BigDecimal("500.00"));
+        };
+    }
+
+    @Override
+    public Op payrollSummary(boolean cached) {
+        PayrollDAO dao = newPayrollDAO();
+        return () -> {
+            if (!cached) PayrollDAO.getAggregates().invalidate();
+            return dao.getPayrollSummary();
+        };
+    }
+
+    // ---------------------- Analytics ----------------------
+    @Override
+    public Op payout(int rows, boolean byMonth) {
+        PayrollColumnStore store = columnStore(rows);
+        PayrollColumnStore.Loader loader = syntheticColumns(rows);
+        PayrollColumnStore.GroupBy groupBy = byMonth
+                ? PayrollColumnStore.GroupBy.DEPARTMENT_MONTH : PayrollColumnStore.GroupBy.DEPARTMENT;
+        PayrollColumnStore.Filter filter = new PayrollColumnStore.Filter();
+        return () -> store.payout(loader, groupBy, filter);
+    }
+
+    @Override
+    public Op topEarners(int rows, int n) {
+        PayrollColumnStore store = columnStore(rows);
+        PayrollColumnStore.Loader loader = syntheticColumns(rows);
+        PayrollColumnStore.Filter filter = new PayrollColumnStore.Filter();
+        return () -> store.top(loader, n, filter);
+    }
+
+    // ---------------------- Employee search ----------------------
+    @Override
+    public Op searchIndex(int employees, String query, int limit) {
+        EmployeeSearchIndex index = new EmployeeSearchIndex();
+        String[][] rows = searchRows(employees);
+        EmployeeSearchIndex.Loader loader = target -> {
+            for (int i = 0; i < rows.length; i++) target.put(i + 1, rows[i][0], rows[i][1], 5_000_000);
+        };
+        return () -> index.search(loader, query, limit);
+    }
+
+    @Override
+    public Op searchScan(int employees, String query, int limit) {
+        String[][] rows = searchRows(employees);
+        String[] terms = query.toLowerCase().split(" ");
+        return () -> {
+            List<String> hits = new ArrayList<>();
+            for (String[] row : rows) {
+                String name = row[0].toLowerCase();
+                String department = row[1].toLowerCase();
+                boolean all = true;
+                for (String term : terms) {
+                    all &= name.contains(term) || department.contains(term);
+                }
+                if (all) hits.add(row[0]);
+            }
+            hits.sort(null);
+            return hits.size() > limit ? hits.subList(0, limit) : hits;
+        };
+    }
+
+    // Name/department pairs from small first- and last-name pools, so terms repeat like real names do
+    private static String[][] searchRows(int employees) {
+        String[] first = {"Aarav", "Priya", "John", "Maria", "Wei", "Fatima", "Lucas", "Emma", "Ravi", "Sofia",
+                "Omar", "Hana", "Diego", "Chloe", "Kenji", "Amara"};
+        String[] last = {"Sharma", "Reddy", "Smith", "Garcia", "Chen", "Khan", "Silva", "Johnson", "Patel",
+                "Rossi", "Haddad", "Sato", "Lopez", "Martin", "Tanaka", "Okafor", "Nguyen"};
+        String[] departments = {"Engineering", "Finance", "Human Resources", "Marketing", "Sales", "Operations",
+                "Legal", "Support"};
+        String[][] rows = new String[employees][];
+        for (int i = 0; i < employees; i++) {
+            rows[i] = new String[]{first[i % first.length] + " " + last[(i / first.length) % last.length] + " " + i,
+                    departments[i % departments.length]};
+        }
+        return rows;
+    }
+
+    // ---------------------- Fixtures ----------------------
+    private PayrollColumnStore columnStore;
+    private int columnStoreRows;
+
+    // One snapshot shared by the analytics ops, since a 10M-row copy per op would not fit the heap
+    private PayrollColumnStore columnStore(int rows) {
+        if (columnStore == null || columnStoreRows != rows) {
+            columnStore = new PayrollColumnStore();
+            columnStoreRows = rows;
+        }
+        return columnStore;
+    }
+
+    private static Employee[] employees(int rows) {
+        Employee[] employees = new Employee[rows];
+        for (int i = 0; i < rows; i++) {
+            employees[i] = new Employee(i + 1, "Employee " + i, "Dept " + (i % 12),
+                    BigDecimal.valueOf(4_000_000 + i * 37L, 2), null, null);
+        }
+        return employees;
+    }
+
+    private static Payroll[] payrolls(int rows) {
+        Payroll[] payrolls = new Payroll[rows];
+        for (int i = 0; i < rows; i++) {
+            payrolls[i] = new Payroll(i + 1, (i % 5000) + 1, BigDecimal.valueOf(50_000 + i, 2),
+                    BigDecimal.valueOf(75_000 + i, 2), BigDecimal.valueOf(7_250_000 + i, 2), null);
+        }
+        return payrolls;
+    }
+
+    private static PayrollColumnStore.Loader syntheticColumns(int rows) {
+        String[] departments = new String[12];
+        for (int d = 0; d < departments.length; d++) departments[d] = "Dept " + d;
+        long year = 365L * 24 * 3600 * 1000;
+        long start = System.currentTimeMillis() - year;
+        long step = Math.max(1, year / rows);
+        return target -> {
+            for (int i = 0; i < rows; i++) {
+                target.append(i + 1, i % 50_000 + 1, 100_000, 50_000, 4_000_000 + (i * 7919L) % 3_000_000,
+                        start + i * step, departments[i % departments.length]);
+            }
+        };
+    }
+
+    private static EmployeeDAO newEmployeeDAO() {
+        try {
+            return new EmployeeDAO();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static PayrollDAO newPayrollDAO() {
+        try {
+            return new PayrollDAO();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Counts and drops everything written to it
+    private static final class DiscardingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    // Just enough of an HttpExchange to hand readRequestBody a request body
+    private static final class BodyExchange extends HttpExchange {
+        private final byte[] body;
+        private final String method;
+        private final URI uri;
+        private final Headers requestHeaders = new Headers();
+        private final Headers responseHeaders = new Headers();
+        private InputStream in;
+
+        BodyExchange(byte[] body) {
+            this(body, "POST", URI.create("/api/payroll/calculate"));
+        }
+
+        BodyExchange(byte[] body, String method, URI uri) {
+            this.body = body;
+            this.method = method;
+            this.uri = uri;
+        }
+
+        void rewind() {
+            in = new ByteArrayInputStream(body);
+        }
+
+        @Override public InputStream getRequestBody() { return in; }
+        @Override public Headers getRequestHeaders() { return requestHeaders; }
+        @Override public Headers getResponseHeaders() { return responseHeaders; }
+        @Override public URI getRequestURI() { return uri; }
+        @Override public String getRequestMethod() { return method; }
+        @Override public HttpContext getHttpContext() { return null; }
+        @Override public void close() {}
+        @Override public OutputStream getResponseBody() { return OutputStream.nullOutputStream(); }
+        @Override public void sendResponseHeaders(int rCode, long responseLength) throws IOException {}
+        @Override public InetSocketAddress getRemoteAddress() { return null; }
+        @Override public int getResponseCode() { return -1; }
+        @Override public InetSocketAddress getLocalAddress() { return null; }
+        @Override public String getProtocol() { return "HTTP/1.1"; }
+        @Override public Object getAttribute(String name) { return null; }
+        @Override public void setAttribute(String name, Object value) {}
+        @Override public void setStreams(InputStream i, OutputStream o) {}
+        @Override public HttpPrincipal getPrincipal() { return null; }
+    }
+}
@@ -0,0 +1,58 @@
+package swiftpay.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Fork-join scans over a synthetic PayrollColumnStore snapshot (loaded once, outside the measurement)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class AnalyticsBenchmark {
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    private Backend.Op byDepartment;
+    private Backend.Op byDepartmentMonth;
+    private Backend.Op top100;
+
+    @Setup
+    public void setUp() throws Exception {
+        Backend backend = Backend.load();
+        byDepartment = backend.payout(rows, false);
+        byDepartmentMonth = backend.payout(rows, true);
+        top100 = backend.topEarners(rows, 100);
+        // First call of each loads its snapshot
+        byDepartment.run();
+        byDepartmentMonth.run();
+        top100.run();
+    }
+
+    @Benchmark
+    public Object payoutByDepartment() throws Exception {
+        return byDepartment.run();
+    }
+
+    @Benchmark
+    public Object payoutByDepartmentMonth() throws Exception {
+        return byDepartmentMonth.run();
+    }
+
+    @Benchmark
+    public Object topEarners() throws Exception {
+        return top100.run();
+    }
+}
@@ -0,0 +1,78 @@
+package swiftpay.bench;
+
+/**
+ * The backend operations the benchmarks measure.
+ *
+ * The backend classes live in the unnamed package, which code in a named
+ * package (and JMH requires one) cannot reference. {@code BackendBridge}, in
+ * the unnamed package of this module, implements this interface; each method
+ * builds its fixtures up front and returns an {@link Op} that performs only
+ * the measured work.
+ */
+public interface Backend {
+
+    @FunctionalInterface
+    interface Op {
+        Object run() throws Exception;
+    }
+
+    static Backend load() {
+        try {
+            return (Backend) Class.forName("BackendBridge").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BackendBridge not found on the classpath", e);
+        }
+    }
+
+    // ---- Request handling ----
+    Op parseFormData(String query);
+
+    Op readRequestBody(byte[] body);
+
+    Op recordLatency();
+
+    // Router dispatch (match, params, handler call) for one request line
+    Op route(String method, String path);
+
+    // ---- JSON encoding, current and the String.format converters it replaced ----
+    Op employeesJson(int rows);
+
+    Op payrollJson(int rows);
+
+    Op legacyEmployeesJson(int rows);
+
+    Op legacyPayrollJson(int rows);
+
+    // ---- Payroll math ----
+    Op calculateNetSalary();
+
+    Op calculateNetSalaryCents();
+
+    Op legacyNetSalary();
+
+    // ---- DAO paths against the embedded database ----
+    void startDatabase(int employees, int payrollsPerEmployee) throws Exception;
+
+    void stopDatabase();
+
+    Op getEmployeeById(int employees, boolean cached);
+
+    Op streamEmployees(int pageSize);
+
+    Op streamPayroll(int pageSize);
+
+    Op addPayroll(int employees);
+
+    Op payrollSummary(boolean cached);
+
+    // ---- In-memory analytics ----
+    Op payout(int rows, boolean byMonth);
+
+    Op topEarners(int rows, int n);
+
+    // ---- Employee search ----
+    Op searchIndex(int employees, String query, int limit);
+
+    // Lowercase contains() of every term over every employee, the LIKE '%term%' the index replaced
+    Op searchScan(int employees, String query, int limit);
+}
@@ -0,0 +1,105 @@
+package swiftpay.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The DAO paths through the real connection pool against an in-memory H2
+ * database in MySQL mode, seeded with {@code employees} rows and
+ * {@code payrollsPerEmployee} payroll rows for each of them.
+ *
+ * H2 does not match MySQL's absolute numbers; use these to compare DAO and
+ * pool changes with each other, not to size production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Ddb.driver=org.h2.Driver",
+        "-Ddb.url=jdbc:h2:mem:swiftpay;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "-Ddb.username=sa",
+        "-Ddb.password="
+})
+public class DaoBenchmark {
+    @Param({"10000"})
+    public int employees;
+
+    @Param({"5"})
+    public int payrollsPerEmployee;
+
+    private Backend backend;
+    private Backend.Op employeeCached;
+    private Backend.Op employeeUncached;
+    private Backend.Op employeePage;
+    private Backend.Op payrollPage;
+    private Backend.Op addPayroll;
+    private Backend.Op summaryCached;
+    private Backend.Op summaryRebuilt;
+
+    @Setup
+    public void setUp() throws Exception {
+        backend = Backend.load();
+        backend.startDatabase(employees, payrollsPerEmployee);
+        employeeCached = backend.getEmployeeById(employees, true);
+        employeeUncached = backend.getEmployeeById(employees, false);
+        employeePage = backend.streamEmployees(100);
+        payrollPage = backend.streamPayroll(100);
+        addPayroll = backend.addPayroll(employees);
+        summaryCached = backend.payrollSummary(true);
+        summaryRebuilt = backend.payrollSummary(false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        backend.stopDatabase();
+    }
+
+    @Benchmark
+    public Object getEmployeeByIdCached() throws Exception {
+        return employeeCached.run();
+    }
+
+    @Benchmark
+    public Object getEmployeeByIdUncached() throws Exception {
+        return employeeUncached.run();
+    }
+
+    @Benchmark
+    public Object streamEmployeesPage() throws Exception {
+        return employeePage.run();
+    }
+
+    @Benchmark
+    public Object streamPayrollPage() throws Exception {
+        return payrollPage.run();
+    }
+
+    @Benchmark
+    public Object calculateAndAddPayroll() throws Exception {
+        return addPayroll.run();
+    }
+
+    @Benchmark
+    public Object payrollSummaryCached() throws Exception {
+        return summaryCached.run();
+    }
+
+    @Benchmark
+    public Object payrollSummaryRebuilt() throws Exception {
+        return summaryRebuilt.run();
+    }
+}
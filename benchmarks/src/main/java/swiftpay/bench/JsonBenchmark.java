@@ -0,0 +1,61 @@
+package swiftpay.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// JsonWriter against the String.format converters it replaced, per list response
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    @Param({"100", "10000"})
+    public int rows;
+
+    private Backend.Op employees;
+    private Backend.Op payroll;
+    private Backend.Op legacyEmployees;
+    private Backend.Op legacyPayroll;
+
+    @Setup
+    public void setUp() {
+        Backend backend = Backend.load();
+        employees = backend.employeesJson(rows);
+        payroll = backend.payrollJson(rows);
+        legacyEmployees = backend.legacyEmployeesJson(rows);
+        legacyPayroll = backend.legacyPayrollJson(rows);
+    }
+
+    @Benchmark
+    public Object employeesJsonWriter() throws Exception {
+        return employees.run();
+    }
+
+    @Benchmark
+    public Object employeesStringFormat() throws Exception {
+        return legacyEmployees.run();
+    }
+
+    @Benchmark
+    public Object payrollJsonWriter() throws Exception {
+        return payroll.run();
+    }
+
+    @Benchmark
+    public Object payrollStringFormat() throws Exception {
+        return legacyPayroll.run();
+    }
+}
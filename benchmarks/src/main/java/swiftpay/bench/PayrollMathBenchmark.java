@@ -0,0 +1,50 @@
+package swiftpay.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Payroll.calculateNetSalary (BigDecimal and cents entry points) against plain BigDecimal arithmetic
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayrollMathBenchmark {
+    private Backend.Op fromDecimal;
+    private Backend.Op fromCents;
+    private Backend.Op bigDecimal;
+
+    @Setup
+    public void setUp() {
+        Backend backend = Backend.load();
+        fromDecimal = backend.calculateNetSalary();
+        fromCents = backend.calculateNetSalaryCents();
+        bigDecimal = backend.legacyNetSalary();
+    }
+
+    @Benchmark
+    public Object calculateNetSalary() throws Exception {
+        return fromDecimal.run();
+    }
+
+    @Benchmark
+    public Object calculateNetSalaryCents() throws Exception {
+        return fromCents.run();
+    }
+
+    @Benchmark
+    public Object bigDecimalNetSalary() throws Exception {
+        return bigDecimal.run();
+    }
+}
@@ -0,0 +1,75 @@
+package swiftpay.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// MainServer.parseFormData and readRequestBody on typical request payloads, router dispatch, and the per-request metrics cost
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+    private static final String LIST_QUERY = "limit=100&after=2500&sort=desc&department=Engineering&from=2024-01-01";
+    private static final String CALCULATE_FORM = "employee_id=42&bonuses=1500.00&deductions=725.50";
+
+    private Backend.Op parseListQuery;
+    private Backend.Op parseCalculateForm;
+    private Backend.Op readCalculateBody;
+    private Backend.Op recordLatency;
+    private Backend.Op routeList;
+    private Backend.Op routeEmployeeById;
+
+    @Setup
+    public void setUp() {
+        Backend backend = Backend.load();
+        parseListQuery = backend.parseFormData(LIST_QUERY);
+        parseCalculateForm = backend.parseFormData(CALCULATE_FORM);
+        readCalculateBody = backend.readRequestBody(CALCULATE_FORM.getBytes(StandardCharsets.UTF_8));
+        recordLatency = backend.recordLatency();
+        routeList = backend.route("GET", "/api/payroll/summary");
+        routeEmployeeById = backend.route("PUT", "/api/employee/12345");
+    }
+
+    @Benchmark
+    public Object parseFormDataListQuery() throws Exception {
+        return parseListQuery.run();
+    }
+
+    @Benchmark
+    public Object parseFormDataCalculate() throws Exception {
+        return parseCalculateForm.run();
+    }
+
+    @Benchmark
+    public Object readRequestBody() throws Exception {
+        return readCalculateBody.run();
+    }
+
+    @Benchmark
+    public Object routeStaticPath() throws Exception {
+        return routeList.run();
+    }
+
+    @Benchmark
+    public Object routeWithPathParam() throws Exception {
+        return routeEmployeeById.run();
+    }
+
+    @Benchmark
+    public Object metricsRecordLatency() throws Exception {
+        return recordLatency.run();
+    }
+}
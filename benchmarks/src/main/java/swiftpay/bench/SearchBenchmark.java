@@ -0,0 +1,53 @@
+package swiftpay.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// EmployeeSearchIndex lookups against a linear contains() scan over the same synthetic employees
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class SearchBenchmark {
+    @Param({"10000", "100000"})
+    public int employees;
+
+    // Typeahead prefix, a full surname, and a two-word query
+    @Param({"pr", "garcia", "maria sales"})
+    public String query;
+
+    private Backend.Op index;
+    private Backend.Op scan;
+
+    @Setup
+    public void setUp() throws Exception {
+        Backend backend = Backend.load();
+        index = backend.searchIndex(employees, query, 10);
+        scan = backend.searchScan(employees, query, 10);
+        // First call loads the index
+        index.run();
+    }
+
+    @Benchmark
+    public Object indexed() throws Exception {
+        return index.run();
+    }
+
+    @Benchmark
+    public Object linearScan() throws Exception {
+        return scan.run();
+    }
+}
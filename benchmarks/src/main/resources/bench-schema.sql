@@ -0,0 +1,50 @@
+-- database/payroll_schema.sql without the MySQL-only parts, for the embedded
+-- H2 database (MODE=MySQL) the DAO benchmarks run against.
+-- Keep in step with database/payroll_schema.sql.
+
+CREATE TABLE admin (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE employee (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    department VARCHAR(50) NOT NULL,
+    basic_salary DECIMAL(10, 2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE pay_period (
+    id INT PRIMARY KEY,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'OPEN',
+    row_count BIGINT NOT NULL DEFAULT 0,
+    total_net DECIMAL(14, 2),
+    archive_file VARCHAR(255),
+    closed_at TIMESTAMP NULL,
+    archived_at TIMESTAMP NULL
+);
+
+-- Not partitioned here (H2 has no PARTITION BY)
+CREATE TABLE payroll (
+    id INT AUTO_INCREMENT,
+    employee_id INT NOT NULL,
+    pay_period INT NOT NULL,
+    bonuses DECIMAL(10, 2) DEFAULT 0.00,
+    deductions DECIMAL(10, 2) DEFAULT 0.00,
+    net_salary DECIMAL(10, 2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, pay_period)
+);
+
+CREATE INDEX idx_employee_department_id ON employee (department, id);
+CREATE INDEX idx_employee_created_at_id ON employee (created_at, id);
+CREATE INDEX idx_payroll_employee_history ON payroll (employee_id, created_at, id, pay_period, bonuses, deductions, net_salary);
+CREATE INDEX idx_payroll_created_at_id ON payroll (created_at, id);
+CREATE INDEX idx_pay_period_status ON pay_period (status, end_date);
+
+INSERT INTO admin (username, password) VALUES ('admin', 'admin123');
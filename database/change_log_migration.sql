@@ -0,0 +1,18 @@
+-- Adds the change log servers use to keep each other's caches current, on databases created
+-- before it was added to payroll_schema.sql. Without it each server runs alone (the change log
+-- is disabled at startup).
+USE payroll_system;
+
+CREATE TABLE change_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    node_id VARCHAR(32) NOT NULL,
+    entity VARCHAR(16) NOT NULL,
+    action VARCHAR(16) NOT NULL,
+    entity_id INT NOT NULL DEFAULT 0,
+    entity_key VARCHAR(100),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_change_log_created_at ON change_log (created_at);
+-- Logouts a starting server reads before it begins tailing
+CREATE INDEX idx_change_log_entity_id ON change_log (entity, id);
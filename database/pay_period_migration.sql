@@ -0,0 +1,57 @@
+-- Adds pay periods to an existing payroll_system database (new installs get them from
+-- payroll_schema.sql). Existing rows are assigned to the month they were created in.
+USE payroll_system;
+
+CREATE TABLE pay_period (
+    id INT PRIMARY KEY,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'OPEN',
+    row_count BIGINT NOT NULL DEFAULT 0,
+    total_net DECIMAL(14, 2),
+    archive_file VARCHAR(255),
+    archive_claim VARCHAR(80),
+    closed_at TIMESTAMP NULL,
+    claimed_at TIMESTAMP NULL,
+    archived_at TIMESTAMP NULL
+);
+CREATE INDEX idx_pay_period_status ON pay_period (status, end_date);
+
+ALTER TABLE payroll ADD COLUMN pay_period INT NULL AFTER employee_id;
+UPDATE payroll SET pay_period = YEAR(created_at) * 100 + MONTH(created_at);
+UPDATE payroll SET pay_period = YEAR(CURDATE()) * 100 + MONTH(CURDATE()) WHERE pay_period IS NULL;
+ALTER TABLE payroll MODIFY pay_period INT NOT NULL;
+
+-- Every month that has payroll becomes a period; all start OPEN and the archiver closes
+-- the finished ones (payroll.period.closeAfterDays)
+INSERT INTO pay_period (id, start_date, end_date)
+SELECT DISTINCT pay_period,
+       STR_TO_DATE(CONCAT(pay_period, '01'), '%Y%m%d'),
+       STR_TO_DATE(CONCAT(pay_period, '01'), '%Y%m%d') + INTERVAL 1 MONTH
+FROM payroll;
+
+-- Partitioned tables cannot have foreign keys; the constraint name is MySQL's default
+-- (check SHOW CREATE TABLE payroll if it was renamed). From here on EmployeeDAO deletes an
+-- employee's payroll rows itself, and the archiver reports rows left without an employee
+-- (swiftpay_payroll_orphan_rows on /api/metrics).
+ALTER TABLE payroll DROP FOREIGN KEY payroll_ibfk_1;
+ALTER TABLE payroll DROP PRIMARY KEY, ADD PRIMARY KEY (id, pay_period);
+
+-- Months before 2026 share p_history; the archiver adds monthly partitions after p202612
+-- as the calendar reaches them, and reports rows that still land in pmax (swiftpay_payroll_pmax_rows)
+ALTER TABLE payroll PARTITION BY RANGE (pay_period) (
+    PARTITION p_history VALUES LESS THAN (202601),
+    PARTITION p202601 VALUES LESS THAN (202602),
+    PARTITION p202602 VALUES LESS THAN (202603),
+    PARTITION p202603 VALUES LESS THAN (202604),
+    PARTITION p202604 VALUES LESS THAN (202605),
+    PARTITION p202605 VALUES LESS THAN (202606),
+    PARTITION p202606 VALUES LESS THAN (202607),
+    PARTITION p202607 VALUES LESS THAN (202608),
+    PARTITION p202608 VALUES LESS THAN (202609),
+    PARTITION p202609 VALUES LESS THAN (202610),
+    PARTITION p202610 VALUES LESS THAN (202611),
+    PARTITION p202611 VALUES LESS THAN (202612),
+    PARTITION p202612 VALUES LESS THAN (202701),
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
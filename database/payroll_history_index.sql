@@ -0,0 +1,7 @@
+-- Replaces the (employee_id, created_at) payroll index with one covering every column
+-- GET /api/employee/{id}/payroll reads, on databases created before it was added to
+-- payroll_schema.sql. Run after pay_period_migration.sql (the index includes pay_period).
+USE payroll_system;
+
+CREATE INDEX idx_payroll_employee_history ON payroll (employee_id, created_at, id, pay_period, bonuses, deductions, net_salary);
+DROP INDEX idx_payroll_employee_created_at ON payroll;
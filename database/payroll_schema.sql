@@ -20,18 +20,82 @@ CREATE TABLE employee (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
--- Payroll table
+-- Pay periods (one per month, id = yyyymm): OPEN takes new payroll, CLOSED is final,
+-- ARCHIVING is claimed by one server's archiver (archive_claim, since claimed_at),
+-- ARCHIVED has had its rows moved out of payroll into archive_file
+CREATE TABLE pay_period (
+    id INT PRIMARY KEY,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'OPEN',
+    row_count BIGINT NOT NULL DEFAULT 0,
+    total_net DECIMAL(14, 2),
+    archive_file VARCHAR(255),
+    archive_claim VARCHAR(80),
+    closed_at TIMESTAMP NULL,
+    claimed_at TIMESTAMP NULL,
+    archived_at TIMESTAMP NULL
+);
+
+-- Payroll table, one partition per pay period so current-period queries only touch the hot
+-- partition and an archived period is dropped whole. The months below run through 2026; the
+-- archiver (started by every server) splits later ones off pmax ahead of time, moving any rows
+-- already there. pmax should stay empty: the archiver warns and reports
+-- swiftpay_payroll_pmax_rows when it is not.
+-- Partitioned tables cannot have foreign keys, so nothing here ties employee_id to employee:
+-- EmployeeDAO deletes an employee's payroll rows in the same transaction as the employee, and
+-- the archiver counts rows whose employee is missing (swiftpay_payroll_orphan_rows).
 CREATE TABLE payroll (
-    id INT AUTO_INCREMENT PRIMARY KEY,
+    id INT AUTO_INCREMENT,
     employee_id INT NOT NULL,
+    pay_period INT NOT NULL,
     bonuses DECIMAL(10, 2) DEFAULT 0.00,
     deductions DECIMAL(10, 2) DEFAULT 0.00,
     net_salary DECIMAL(10, 2) NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    FOREIGN KEY (employee_id) REFERENCES employee(id) ON DELETE CASCADE
+    PRIMARY KEY (id, pay_period)
+)
+PARTITION BY RANGE (pay_period) (
+    PARTITION p_history VALUES LESS THAN (202601),
+    PARTITION p202601 VALUES LESS THAN (202602),
+    PARTITION p202602 VALUES LESS THAN (202603),
+    PARTITION p202603 VALUES LESS THAN (202604),
+    PARTITION p202604 VALUES LESS THAN (202605),
+    PARTITION p202605 VALUES LESS THAN (202606),
+    PARTITION p202606 VALUES LESS THAN (202607),
+    PARTITION p202607 VALUES LESS THAN (202608),
+    PARTITION p202608 VALUES LESS THAN (202609),
+    PARTITION p202609 VALUES LESS THAN (202610),
+    PARTITION p202610 VALUES LESS THAN (202611),
+    PARTITION p202611 VALUES LESS THAN (202612),
+    PARTITION p202612 VALUES LESS THAN (202701),
+    PARTITION pmax VALUES LESS THAN MAXVALUE
 );
 
--- Insert default admin user
+-- One row per write other servers' caches depend on (see ChangeLog); each server tails it by id
+-- and skips its own rows. Rows older than changelog.retentionHours are purged.
+CREATE TABLE change_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    node_id VARCHAR(32) NOT NULL,
+    entity VARCHAR(16) NOT NULL,
+    action VARCHAR(16) NOT NULL,
+    entity_id INT NOT NULL DEFAULT 0,
+    entity_key VARCHAR(100),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Indexes backing keyset pagination and filters on /api/employees and /api/payroll
+CREATE INDEX idx_employee_department_id ON employee (department, id);
+CREATE INDEX idx_employee_created_at_id ON employee (created_at, id);
+-- Covers GET /api/employee/{id}/payroll (every column it reads), newest first by a backward scan
+CREATE INDEX idx_payroll_employee_history ON payroll (employee_id, created_at, id, pay_period, bonuses, deductions, net_salary);
+CREATE INDEX idx_payroll_created_at_id ON payroll (created_at, id);
+CREATE INDEX idx_pay_period_status ON pay_period (status, end_date);
+CREATE INDEX idx_change_log_created_at ON change_log (created_at);
+-- Logouts a starting server reads before it begins tailing
+CREATE INDEX idx_change_log_entity_id ON change_log (entity, id);
+
+-- Insert default admin user (plaintext here; re-stored as a salted hash on first login)
 INSERT INTO admin (username, password) VALUES 
 ('admin', 'admin123');
 
@@ -42,9 +106,14 @@ INSERT INTO employee (name, department, basic_salary) VALUES
 ('Mike Johnson', 'HR', 55000.00),
 ('Sarah Wilson', 'Finance', 70000.00);
 
+-- Open the current pay period
+SET @period = YEAR(CURDATE()) * 100 + MONTH(CURDATE());
+INSERT INTO pay_period (id, start_date, end_date) VALUES
+(@period, DATE_FORMAT(CURDATE(), '%Y-%m-01'), DATE_FORMAT(CURDATE(), '%Y-%m-01') + INTERVAL 1 MONTH);
+
 -- Insert sample payroll records
-INSERT INTO payroll (employee_id, bonuses, deductions, net_salary) VALUES 
-(1, 5000.00, 7500.00, 72500.00),
-(2, 3000.00, 6500.00, 61500.00),
-(3, 2000.00, 5500.00, 51500.00),
-(4, 4000.00, 7000.00, 67000.00);
\ No newline at end of file
+INSERT INTO payroll (employee_id, pay_period, bonuses, deductions, net_salary) VALUES 
+(1, @period, 5000.00, 7500.00, 72500.00),
+(2, @period, 3000.00, 6500.00, 61500.00),
+(3, @period, 2000.00, 5500.00, 51500.00),
+(4, @period, 4000.00, 7000.00, 67000.00);
\ No newline at end of file
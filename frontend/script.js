@@ -6,17 +6,27 @@ const API_BASE_URL = 'http://localhost:8080';
 // Authentication Functions
 function checkAuthentication() {
     const isLoggedIn = localStorage.getItem('isLoggedIn');
-    if (isLoggedIn !== 'true') {
+    if (isLoggedIn !== 'true' || !localStorage.getItem('authToken')) {
         window.location.href = 'index.html';
         return false;
     }
     return true;
 }
 
+// Adds the session token from login to a set of request headers
+function authHeaders(headers = {}) {
+    const token = localStorage.getItem('authToken');
+    return token ? { ...headers, 'Authorization': `Bearer ${token}` } : headers;
+}
+
 function logout() {
+    // End the session on the server (best effort) before forgetting the token
+    fetch(`${API_BASE_URL}/api/login`, { method: 'DELETE', headers: authHeaders() }).catch(() => {});
+
     // Clear authentication data
     localStorage.removeItem('isLoggedIn');
     localStorage.removeItem('username');
+    localStorage.removeItem('authToken');
     
     // Redirect to login page
     window.location.href = 'index.html';
@@ -34,10 +44,16 @@ async function apiRequest(endpoint, options = {}) {
     };
     
     const config = { ...defaultOptions, ...options };
+    config.headers = authHeaders(config.headers);
     
     try {
         const response = await fetch(url, config);
         
+        if (response.status === 401) {
+            // Session expired or revoked: back to the login page
+            logout();
+        }
+        
         if (!response.ok) {
             throw new Error(`HTTP error! status: ${response.status}`);
         }